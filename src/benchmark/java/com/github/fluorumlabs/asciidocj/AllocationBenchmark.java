@@ -0,0 +1,56 @@
+package com.github.fluorumlabs.asciidocj;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Bytes allocated per conversion, for tracking allocation in lexers.
+ * <p>
+ * Requires HotSpot (uses {@code com.sun.management.ThreadMXBean}). Run with
+ * <pre>
+ * java -cp target/classes:$(cat target/classpath.txt) com.github.fluorumlabs.asciidocj.AllocationBenchmark
+ * </pre>
+ * Optional argument is the number of measured conversions, 200 by default.
+ */
+public class AllocationBenchmark {
+    private static final String DOCUMENT = buildDocument();
+
+    private static String buildDocument() {
+        StringBuilder result = new StringBuilder("= Allocation benchmark\n\n");
+        for (int i = 0; i < 20; i++) {
+            result.append("== Section ").append(i).append("\n\n")
+                    .append("Paragraph with *bold*, _italic_, `monospace`, #marked# and ^super^ text, ")
+                    .append("a https://example.com[link] and a footnote.footnote:[Footnote ").append(i).append("]\n\n")
+                    .append("[cols=\"1,2a\",options=\"header\"]\n|===\n|Name |Value\n")
+                    .append("|cell |Cell with _formatting_\n2+|Spanned cell\n|===\n\n")
+                    .append("[source,java]\n----\n");
+            for (int j = 0; j < 50; j++) {
+                result.append("System.out.println(\"Line ").append(j).append("\");\n");
+            }
+            result.append("----\n\n====\nExample block with *strong* text.\n====\n\n")
+                    .append("* One\n** Nested *bold*\n. First\n. Second\n\n");
+        }
+        return result.toString();
+    }
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        for (int i = 0; i < iterations; i++) {
+            AsciiDocument.from(DOCUMENT).getHtml();
+        }
+
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            AsciiDocument.from(DOCUMENT).getHtml();
+        }
+        long nanos = System.nanoTime() - start;
+        allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+
+        System.out.printf("Document size:                 %10d chars%n", DOCUMENT.length());
+        System.out.printf("Allocated per conversion:      %10d bytes%n", allocated / iterations);
+        System.out.printf("Time per conversion:           %10.3f ms%n", nanos / 1e6 / iterations);
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.fluorumlabs.asciidocj;
+
+/**
+ * Conversion time of documents with large description lists, horizontal lists and Q&amp;A lists, which
+ * stress per-item work in stage two renderers.
+ * <p>
+ * Run with
+ * <pre>
+ * java -cp target/classes:$(cat target/classpath.txt) com.github.fluorumlabs.asciidocj.DescriptionListBenchmark
+ * </pre>
+ * Optional arguments are the number of items per list, 2000 by default, and the number of measured
+ * conversions, 10 by default.
+ */
+public class DescriptionListBenchmark {
+    private static String buildDocument(String style, int items) {
+        StringBuilder result = new StringBuilder("= Description list benchmark\n\n== Section\n\n");
+        if (!style.isEmpty()) {
+            result.append('[').append(style).append("]\n");
+        }
+        for (int i = 0; i < items; i++) {
+            result.append("Term ").append(i).append(" with *bold*:: Description ").append(i)
+                    .append(" with _emphasis_ and `code`\n");
+            if (i % 10 == 0) {
+                result.append("Nested term::: Nested description\n");
+            }
+        }
+        return result.toString();
+    }
+
+    public static void main(String[] args) {
+        int items = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        for (String style : new String[]{"", "horizontal", "qanda", "glossary"}) {
+            String document = buildDocument(style, items);
+            for (int i = 0; i < iterations; i++) {
+                AsciiDocument.from(document).getHtml();
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                AsciiDocument.from(document).getHtml();
+            }
+            long nanos = (System.nanoTime() - start) / iterations;
+            System.out.printf("%-12s %6d items: %10.2f ms%n", style.isEmpty() ? "plain" : style, items, nanos / 1e6);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.fluorumlabs.asciidocj;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.safety.Cleaner;
+import org.jsoup.safety.Safelist;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+/**
+ * Cost of sanitizing converted documents: plain conversion, conversion followed by {@link Cleaner}, and
+ * conversion with safelist.
+ * <p>
+ * Requires HotSpot (uses {@code com.sun.management.ThreadMXBean}). Run with
+ * <pre>
+ * java -cp target/classes:$(cat target/classpath.txt) com.github.fluorumlabs.asciidocj.SanitizerBenchmark
+ * </pre>
+ * Optional argument is the number of measured conversions, 50 by default.
+ */
+public class SanitizerBenchmark {
+    private static final String DOCUMENT = buildDocument();
+
+    private static final Safelist SAFELIST = Safelist.relaxed().addAttributes(":all", "class", "id");
+
+    private static String buildDocument() {
+        StringBuilder result = new StringBuilder("= Sanitizer benchmark\n:toc:\n\n");
+        for (int i = 0; i < 100; i++) {
+            result.append("== Section ").append(i).append("\n\n")
+                    .append("Paragraph with *bold*, _italic_, `monospace` text, a https://example.com[link], ")
+                    .append("pass:[<span onclick=\"alert(1)\">raw</span>] HTML and a footnote.footnote:[Footnote ")
+                    .append(i).append("]\n\n")
+                    .append("++++\n<div class=\"raw\" style=\"color: red\"><script>alert(1)</script><b>Raw block</b></div>\n++++\n\n")
+                    .append("[cols=\"1,2a\",options=\"header\"]\n|===\n|Name |Value\n");
+            for (int j = 0; j < 20; j++) {
+                result.append("|cell ").append(j).append(" |Cell with _formatting_\n");
+            }
+            result.append("|===\n\n[source,java]\n----\n");
+            for (int j = 0; j < 20; j++) {
+                result.append("System.out.println(\"Line ").append(j).append("\"); // <1>\n");
+            }
+            result.append("----\n<1> Callout\n\n* One\n** Nested *bold*\n. First\n. Second\n\n");
+        }
+        return result.toString();
+    }
+
+    private static void measure(String name, int iterations, Supplier<String> conversion) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        for (int i = 0; i < iterations; i++) {
+            conversion.get();
+        }
+
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            conversion.get();
+        }
+        long nanos = System.nanoTime() - start;
+        allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+
+        System.out.printf("%-22s %10.3f ms %12d bytes%n", name, nanos / 1e6 / iterations, allocated / iterations);
+    }
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+
+        System.out.printf("Document size: %d chars%n", DOCUMENT.length());
+        measure("Plain", iterations, () -> AsciiDocument.from(DOCUMENT).getHtml());
+        measure("Cleaner", iterations, () -> {
+            Document document = AsciiDocument.from(DOCUMENT).getDocument();
+            Document clean = new Cleaner(SAFELIST).clean(document);
+            clean.outputSettings(document.outputSettings());
+            return clean.body().html();
+        });
+        measure("Safelist", iterations, () -> AsciiDocument.from(DOCUMENT).with(SAFELIST).getHtml());
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.fluorumlabs.asciidocj;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Time to first conversion, for comparing HotSpot with native image.
+ * <p>
+ * Build with {@code mvn package -Pnative -DskipTests} (requires GraalVM with {@code native-image}), then run
+ * both variants:
+ * <pre>
+ * target/asciidocj-startup
+ * java -cp target/classes:$(cat target/classpath.txt) com.github.fluorumlabs.asciidocj.StartupBenchmark
+ * </pre>
+ * Optional arguments are the number of conversions used to measure steady state time, 100 by default, and
+ * {@code --warm-up} to call {@link AsciidocEngine#warmUp()} before the first conversion.
+ * <p>
+ * To compare with AppCDS (JDK 13+), create archive with a training run and pass it to the benchmark. AppCDS
+ * only archives classes loaded from jars, so package benchmark and library classes first:
+ * <pre>
+ * java -XX:ArchiveClassesAtExit=target/asciidocj.jsa -cp $CLASSPATH com.github.fluorumlabs.asciidocj.AsciidocEngine
+ * java -XX:SharedArchiveFile=target/asciidocj.jsa -cp $CLASSPATH com.github.fluorumlabs.asciidocj.StartupBenchmark 100 --warm-up
+ * </pre>
+ */
+public class StartupBenchmark {
+    private static final String DOCUMENT = "= Startup benchmark\n" +
+            ":toc:\n" +
+            ":sectnums:\n" +
+            "\n" +
+            "Preamble with *bold*, _italic_, `monospace` and a footnote.footnote:[Footnote text]\n" +
+            "\n" +
+            "== Lists\n" +
+            "\n" +
+            "* One\n" +
+            "** Nested with https://example.com[link]\n" +
+            ". First\n" +
+            ". Second\n" +
+            "\n" +
+            "Term:: Definition\n" +
+            "\n" +
+            "== Blocks\n" +
+            "\n" +
+            "NOTE: Admonition paragraph referencing <<tables>>.\n" +
+            "\n" +
+            "[source,java]\n" +
+            "----\n" +
+            "System.out.println(\"Hello\"); // <1>\n" +
+            "----\n" +
+            "<1> Callout\n" +
+            "\n" +
+            ".Example\n" +
+            "====\n" +
+            "Example block\n" +
+            "====\n" +
+            "\n" +
+            "[[tables]]\n" +
+            "== Tables\n" +
+            "\n" +
+            "[cols=\"1,2\",options=\"header\"]\n" +
+            "|===\n" +
+            "|Name |Value\n" +
+            "|a |Cell with _formatting_\n" +
+            "2+|Spanned cell\n" +
+            "|===\n";
+
+    public static void main(String[] args) {
+        long mainEntered = System.nanoTime();
+        long startupMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        boolean warmUp = args.length > 1 && args[1].equals("--warm-up");
+
+        long warmUpNanos = 0;
+        if (warmUp) {
+            AsciidocEngine.warmUp();
+            warmUpNanos = System.nanoTime() - mainEntered;
+        }
+
+        long firstConversionStart = System.nanoTime();
+        AsciiDocument.from(DOCUMENT).getHtml();
+        long firstRequestNanos = System.nanoTime() - firstConversionStart;
+        long firstConversionNanos = System.nanoTime() - mainEntered;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            AsciiDocument.from(DOCUMENT).getHtml();
+        }
+        long steadyNanos = (System.nanoTime() - start) / Math.max(iterations, 1);
+
+        System.out.printf("Startup (process start to main):   %8.1f ms%n", (double) startupMillis);
+        if (warmUp) {
+            System.out.printf("Warm-up:                           %8.1f ms%n", warmUpNanos / 1e6);
+        }
+        System.out.printf("First request latency:             %8.1f ms%n", firstRequestNanos / 1e6);
+        System.out.printf("First conversion (including init): %8.1f ms%n", firstConversionNanos / 1e6);
+        System.out.printf("Time to first conversion:          %8.1f ms%n", startupMillis + firstConversionNanos / 1e6);
+        System.out.printf("Steady state conversion (avg %d):  %8.3f ms%n", iterations, steadyNanos / 1e6);
+    }
+}
@@ -0,0 +1,79 @@
+package com.github.fluorumlabs.asciidocj;
+
+import com.github.fluorumlabs.asciidocj.impl.AnchorIndex;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Anchors of a linked document set. Documents converted with the same instance resolve references to
+ * each other, like {@code xref:other.adoc#id[]} or {@code <<other.adoc#id>>}, to reference text of the
+ * target anchor without converting the target document again.
+ * <p>
+ * Anchors of a document become known once it is parsed, so convert the whole set with
+ * {@link AsciidocEngine#convertAll(java.util.Collection)} to resolve references regardless of order.
+ * Instances are thread-safe.
+ */
+public class AsciiAnchors {
+    private final Map<String, AnchorIndex> documents = new ConcurrentHashMap<>();
+
+    private AsciiAnchors() {
+    }
+
+    /**
+     * Create an empty anchor set.
+     *
+     * @return new anchor set
+     */
+    public static AsciiAnchors create() {
+        return new AsciiAnchors();
+    }
+
+    /**
+     * Get locations of all known documents, normalized: with forward slashes and without {@code .adoc}
+     * extension.
+     *
+     * @return document locations
+     */
+    public Set<String> getDocuments() {
+        return Collections.unmodifiableSet(new HashSet<>(documents.keySet()));
+    }
+
+    /**
+     * Get ids of all anchors of the document.
+     *
+     * @param location document location
+     * @return anchor ids, empty if document is unknown
+     */
+    public Set<String> getIds(String location) {
+        AnchorIndex index = documents.get(AnchorIndex.documentKey(location));
+        return index == null ? Collections.emptySet() : index.getIds();
+    }
+
+    /**
+     * Check if document has an anchor.
+     *
+     * @param location document location
+     * @param id       anchor id
+     * @return {@code true} if anchor exists
+     */
+    public boolean contains(String location, String id) {
+        AnchorIndex index = documents.get(AnchorIndex.documentKey(location));
+        return index != null && index.contains(id);
+    }
+
+    /**
+     * Register new index for document, replacing anchors of its previous conversion.
+     *
+     * @param location document location
+     * @return index to be filled by parser
+     */
+    AnchorIndex register(String location) {
+        AnchorIndex index = new AnchorIndex(location, documents::get);
+        documents.put(AnchorIndex.documentKey(location), index);
+        return index;
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.fluorumlabs.asciidocj;
+
+import com.github.fluorumlabs.asciidocj.impl.BlockTree;
+import org.jsoup.nodes.Element;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Rendered document split into blocks with stable keys and content hashes, for live preview: keep blocks of
+ * the previous render and send {@link #diff(AsciiBlocks)} of the next one to the client instead of the whole
+ * HTML.
+ * <p>
+ * Blocks are top-level blocks of document and of its sections, so that editing a paragraph replaces just that
+ * paragraph rather than the whole section. Blocks keep their HTML but not the jsoup tree, so retaining
+ * previous render costs about as much as its HTML. Instances are immutable.
+ */
+public class AsciiBlocks {
+    private final BlockTree.Block root;
+
+    private AsciiBlocks(BlockTree.Block root) {
+        this.root = root;
+    }
+
+    /**
+     * Split rendered document into blocks.
+     *
+     * @param body rendered document body
+     * @return blocks
+     */
+    static AsciiBlocks of(Element body) {
+        return new AsciiBlocks(BlockTree.build(body));
+    }
+
+    /**
+     * Compute patch operations that turn previous render of the same document into this one. Operations are
+     * applied in order, each to the result of the preceding ones; see {@link AsciiPatch}. Time is
+     * proportional to the number of changed blocks.
+     *
+     * @param previous blocks of previous render
+     * @return operations, empty if renders are the same
+     */
+    public List<AsciiPatch> diff(AsciiBlocks previous) {
+        List<AsciiPatch> patches = new ArrayList<>();
+        BlockTree.diff(Objects.requireNonNull(previous).root, root, new BlockTree.Listener() {
+            @Override
+            public void insert(int[] path, int index, String key, String html) {
+                patches.add(new AsciiPatch(AsciiPatch.Type.INSERT, path, index, key, html));
+            }
+
+            @Override
+            public void replace(int[] path, int index, String key, String html) {
+                patches.add(new AsciiPatch(AsciiPatch.Type.REPLACE, path, index, key, html));
+            }
+
+            @Override
+            public void remove(int[] path, int index, String key) {
+                patches.add(new AsciiPatch(AsciiPatch.Type.REMOVE, path, index, key, null));
+            }
+        });
+        return patches;
+    }
+
+    /**
+     * Get HTML of document body.
+     *
+     * @return HTML, same as {@link AsciiDocument#getHtml()}
+     */
+    public String getHtml() {
+        return root.getInnerHtml();
+    }
+}
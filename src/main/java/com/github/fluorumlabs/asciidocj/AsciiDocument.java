@@ -1,26 +1,45 @@
 package com.github.fluorumlabs.asciidocj;
 
+import com.github.fluorumlabs.asciidocj.impl.AttributeScope;
 import com.github.fluorumlabs.asciidocj.impl.ParserException;
+import com.github.fluorumlabs.asciidocj.impl.ResourceGuard;
 import com.github.fluorumlabs.asciidocj.impl.jflex.AsciidocDocumentParser;
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
+import org.jsoup.safety.Cleaner;
+import org.jsoup.safety.Safelist;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
 
 /**
  * Created by Artem Godin on 12/4/2018.
  */
 public class AsciiDocument {
-    private JSONObject attributes;
+    private final JSONObject attributes;
     private AsciidocDocumentParser parser;
+    private ResourceGuard guard;
     private String asciidoc;
     private Document document;
+    private List<AsciiSection> outline;
+    private AsciiLimits limits = AsciiLimits.unlimited();
+    private AsciiIncludeResolver includeResolver;
+    private AsciiImageResolver imageResolver;
+    private AsciiLexerProfile lexerProfile;
+    private AsciiLexerProfile recordedProfile;
+    private Safelist safelist;
+    private AsciiAnchors anchors;
+    private String location;
+    private boolean prepared;
 
     private AsciiDocument(String asciidoc, JSONObject attributes) {
-        this.attributes = attributes;
-        this.parser = new AsciidocDocumentParser();
+        this.attributes = new AttributeScope(attributes);
         this.asciidoc = asciidoc;
     }
 
@@ -28,6 +47,16 @@ public class AsciiDocument {
         return from(asciidoc, new JSONObject());
     }
 
+    /**
+     * Create document with baseline attributes. Baseline is not modified by conversion: attributes defined
+     * or unset by the document, as well as ones set with {@code with(...)}, are kept by the document itself.
+     * The same baseline can be shared by documents converted in parallel, as long as it is not modified
+     * while they are converted.
+     *
+     * @param asciidoc   Asciidoc source
+     * @param attributes baseline attributes
+     * @return document
+     */
     public static AsciiDocument from(String asciidoc, JSONObject attributes) {
         return new AsciiDocument(asciidoc, attributes);
     }
@@ -48,6 +77,89 @@ public class AsciiDocument {
         return this;
     }
 
+    /**
+     * Set resource limits for conversion. Conversions exceeding the limits throw {@link AsciiLimitException}.
+     *
+     * @param limits resource limits
+     * @return this
+     */
+    public AsciiDocument with(AsciiLimits limits) {
+        this.limits = limits;
+
+        return this;
+    }
+
+    /**
+     * Set resolver of {@code include::} directives. Without resolver include directives are left as is.
+     *
+     * @param includeResolver include resolver
+     * @return this
+     */
+    public AsciiDocument with(AsciiIncludeResolver includeResolver) {
+        this.includeResolver = includeResolver;
+
+        return this;
+    }
+
+    /**
+     * Set resolver of local images. Images that specify neither width nor height get the size of
+     * image file, and with {@code data-uri} attribute set images are embedded as {@code data:} URIs.
+     * Without resolver only sizes specified in the document are emitted and images are never embedded.
+     *
+     * @param imageResolver image resolver
+     * @return this
+     */
+    public AsciiDocument with(AsciiImageResolver imageResolver) {
+        this.imageResolver = imageResolver;
+
+        return this;
+    }
+
+    /**
+     * Set profile collecting lexer rule statistics of this document. Profile can be shared between documents,
+     * including ones converted concurrently.
+     *
+     * @param lexerProfile lexer profile
+     * @return this
+     */
+    public AsciiDocument with(AsciiLexerProfile lexerProfile) {
+        this.lexerProfile = lexerProfile;
+
+        return this;
+    }
+
+    /**
+     * Restrict HTML of converted document to safelist, for documents from untrusted sources. Raw HTML of
+     * passthrough blocks, {@code pass:[]} macros and {@code +++} escapes is sanitized as it is attached, and
+     * rendered elements are sanitized in place as rendering completes. Result is the same as running
+     * {@link Cleaner} over the converted document, without making another copy of it.
+     * <p>
+     * Safelist is copied when conversion starts.
+     *
+     * @param safelist allowed tags and attributes, or {@code null} to allow any HTML
+     * @return this
+     */
+    public AsciiDocument with(Safelist safelist) {
+        this.safelist = safelist;
+
+        return this;
+    }
+
+    /**
+     * Make document a part of linked document set. Anchors of document are registered in the set under
+     * given location, and references to other documents of the set are resolved relative to it.
+     *
+     * @param anchors  anchors of linked document set
+     * @param location location of this document, like {@code guide/install.adoc}
+     * @return this
+     */
+    public AsciiDocument with(AsciiAnchors anchors, String location) {
+        this.anchors = Objects.requireNonNull(anchors);
+        this.location = Objects.requireNonNull(location);
+
+        return this;
+    }
+
     public Document getDocument() {
         return parseAndGetDocument();
     }
@@ -60,6 +172,101 @@ public class AsciiDocument {
         return getDocumentBody().html();
     }
 
+    /**
+     * Get HTML of document body encoded for HTTP serving, with entity tag and requested compressed variants
+     * computed while serializing.
+     *
+     * @param encodings compressed variants to produce
+     * @return rendered HTML
+     */
+    public AsciiRenderedHtml getRenderedHtml(AsciiRenderedHtml.Encoding... encodings) {
+        return AsciiRenderedHtml.of(getDocumentBody(), encodings);
+    }
+
+    /**
+     * Take compact binary snapshot of converted document, that can be kept instead of the document and
+     * restored or written to HTML later.
+     *
+     * @return snapshot
+     */
+    public AsciiSnapshot snapshot() {
+        return AsciiSnapshot.of(getDocumentBody());
+    }
+
+    /**
+     * Split converted document into blocks, for sending only changed blocks of the next render to live
+     * preview. Keep the result and pass it to {@link AsciiBlocks#diff(AsciiBlocks)} of the next render of
+     * the same document.
+     *
+     * @return blocks
+     */
+    public AsciiBlocks getBlocks() {
+        return AsciiBlocks.of(getDocumentBody());
+    }
+
+    /**
+     * Write HTML of document body, as returned by {@link #getHtml()}, in bounded-memory mode intended for
+     * very large documents. Top level sections are rendered and written out as soon as they are parsed, so
+     * peak memory is proportional to the largest section rather than to the whole document. TOC, footnotes
+     * and references to sections that come later are completed at the end via a temporary file.
+     * <p>
+     * Resulting document is not kept, and references without reference text only resolve to anchors known
+     * to {@link AsciiAnchors} index, not to text of elements already written out.
+     *
+     * @param out output
+     * @throws IOException if output cannot be written
+     */
+    public void writeHtml(Writer out) throws IOException {
+        if (document != null) {
+            out.write(getHtml());
+            return;
+        }
+        AsciidocDocumentParser streamingParser = new AsciidocDocumentParser();
+        ResourceGuard streamingGuard = newResourceGuard();
+        streamingParser.setResourceGuard(streamingGuard);
+        streamingParser.setIncludeResolver(includeResolver);
+        streamingParser.setImageResolver(imageResolver);
+        streamingParser.setSafelist(safelist);
+        if (anchors != null) {
+            streamingParser.setAnchors(anchors.register(location));
+        }
+        try (AsciiLexerProfile.Recording ignored = record(); ResourceGuard.Stage stage = streamingGuard.start()) {
+            streamingParser.render(asciidoc, new AttributeScope(attributes), out);
+        } catch (ParserException e) {
+            throw new IllegalArgumentException("Cannot parse Asciidoc", e);
+        }
+    }
+
+    /**
+     * Get section tree of the document. If document was not converted yet, only section headers are
+     * processed, which is much faster than full conversion.
+     *
+     * @return top level sections
+     */
+    public List<AsciiSection> getOutline() {
+        if (outline == null) {
+            JSONArray entries;
+            JSONObject outlineAttributes;
+            if (prepared) {
+                entries = parser.getOutline();
+                outlineAttributes = attributes;
+            } else {
+                outlineAttributes = new AttributeScope(attributes);
+                AsciidocDocumentParser outlineParser = new AsciidocDocumentParser();
+                ResourceGuard outlineGuard = newResourceGuard();
+                outlineParser.setResourceGuard(outlineGuard);
+                outlineParser.setIncludeResolver(includeResolver);
+                try (AsciiLexerProfile.Recording ignored = record(); ResourceGuard.Stage stage = outlineGuard.start()) {
+                    entries = outlineParser.parseOutline(asciidoc, outlineAttributes);
+                } catch (ParserException e) {
+                    throw new IllegalArgumentException("Cannot parse Asciidoc", e);
+                }
+            }
+            outline = AsciiSection.fromOutline(entries, outlineAttributes.optInt("toclevels", 3));
+        }
+        return outline;
+    }
+
     public JSONObject getAttributesAsJSON() {
         return getAttributesAsJSON(new JSONObject());
     }
@@ -86,12 +293,52 @@ public class AsciiDocument {
 
     private Document parseAndGetDocument() {
         if (document == null) {
-            try {
-                document = parser.parse(asciidoc, attributes);
+            prepare();
+            // Deferred rendering continues timeout of parsing, without time spent in between
+            try (AsciiLexerProfile.Recording ignored = record(); ResourceGuard.Stage stage = guard.start()) {
+                document = parser.render();
+            }
+        }
+        return document;
+    }
+
+    /**
+     * Run first stage of conversion, registering anchors of document. Rendering is deferred until document
+     * is requested.
+     */
+    void prepare() {
+        if (!prepared) {
+            parser = new AsciidocDocumentParser();
+            guard = newResourceGuard();
+            parser.setResourceGuard(guard);
+            parser.setIncludeResolver(includeResolver);
+            parser.setImageResolver(imageResolver);
+            parser.setSafelist(safelist);
+            if (anchors != null) {
+                parser.setAnchors(anchors.register(location));
+            }
+            try (AsciiLexerProfile.Recording ignored = record(); ResourceGuard.Stage stage = guard.start()) {
+                parser.prepare(asciidoc, attributes);
             } catch (ParserException e) {
                 throw new IllegalArgumentException("Cannot parse Asciidoc", e);
             }
+            prepared = true;
         }
-        return document;
+    }
+
+    private AsciiLexerProfile.Recording record() {
+        AsciiLexerProfile profile = lexerProfile;
+        // Document is counted as one conversion, by the first of its stages recorded into profile
+        boolean conversion = profile != null && profile != recordedProfile;
+        if (conversion) {
+            recordedProfile = profile;
+        }
+        return AsciiLexerProfile.record(profile, conversion);
+    }
+
+    private ResourceGuard newResourceGuard() {
+        ResourceGuard result = new ResourceGuard(limits);
+        result.checkInputLength(asciidoc.length());
+        return result;
     }
 }
@@ -0,0 +1,54 @@
+package com.github.fluorumlabs.asciidocj;
+
+import com.github.fluorumlabs.asciidocj.impl.DataUriCache;
+import com.github.fluorumlabs.asciidocj.impl.DirectoryImageResolver;
+import com.github.fluorumlabs.asciidocj.impl.ImageSizeCache;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Resolver of local images. Documents with resolver emit {@code width} and {@code height} of
+ * {@code image::} and {@code image:} macros that specify neither, so that browsers can lay out the page
+ * before images are loaded. Documents that set {@code data-uri} attribute also embed resolved images as
+ * {@code data:} URIs.
+ */
+@FunctionalInterface
+public interface AsciiImageResolver {
+    /**
+     * Get intrinsic size of image.
+     *
+     * @param target image target, with {@code imagesdir} prepended
+     * @return width and height in pixels, or {@code null} if size cannot be determined
+     * @throws IOException if image cannot be read
+     */
+    int[] getSize(String target) throws IOException;
+
+    /**
+     * Get image encoded as {@code data:} URI.
+     *
+     * @param target      image target, with {@code imagesdir} prepended
+     * @param maxFileSize maximum size of image file to embed, in bytes
+     * @return {@code data:} URI, or {@code null} if image cannot be embedded and must be referenced by target
+     * @throws IOException if image cannot be read
+     */
+    default String getDataUri(String target, long maxFileSize) throws IOException {
+        return null;
+    }
+
+    /**
+     * Resolve images as files relative to base directory. Only headers of PNG, JPEG, GIF, WebP and SVG
+     * files are read for sizes. Targets outside of base directory and URIs are not resolved.
+     * <p>
+     * Sizes and {@code data:} URIs are kept in caches shared by all directory resolvers, and validated
+     * against modification time and size of files, so images used by many documents are read and
+     * encoded once.
+     *
+     * @param baseDir base directory, the directory of the converted document
+     * @return resolver
+     * @throws IOException if base directory does not exist
+     */
+    static AsciiImageResolver fromDirectory(Path baseDir) throws IOException {
+        return new DirectoryImageResolver(baseDir, ImageSizeCache.shared(), DataUriCache.shared());
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.fluorumlabs.asciidocj;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resolved target of {@code include::} directive. Instances are immutable and can be shared between
+ * documents and threads.
+ */
+public class AsciiInclude {
+    private final String location;
+    private final List<String> lines;
+
+    private AsciiInclude(String location, List<String> lines) {
+        this.location = location;
+        this.lines = lines;
+    }
+
+    /**
+     * Create include from Asciidoc source.
+     *
+     * @param location location of included document, used to resolve nested includes and in error messages
+     * @param asciidoc Asciidoc source
+     * @return resolved include
+     */
+    public static AsciiInclude of(String location, String asciidoc) {
+        return new AsciiInclude(location, Collections.unmodifiableList(Arrays.asList(asciidoc.split("\r?\n"))));
+    }
+
+    /**
+     * Location of included document, as returned by resolver.
+     *
+     * @return location
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * Lines of included document.
+     *
+     * @return unmodifiable list of lines
+     */
+    public List<String> getLines() {
+        return lines;
+    }
+}
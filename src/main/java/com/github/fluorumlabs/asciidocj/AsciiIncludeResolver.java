@@ -0,0 +1,39 @@
+package com.github.fluorumlabs.asciidocj;
+
+import com.github.fluorumlabs.asciidocj.impl.DirectoryIncludeResolver;
+import com.github.fluorumlabs.asciidocj.impl.IncludeCache;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Resolver of {@code include::} directive targets. Documents without resolver leave {@code include::}
+ * directives as is.
+ */
+@FunctionalInterface
+public interface AsciiIncludeResolver {
+    /**
+     * Resolve include target.
+     *
+     * @param target         include target, with attribute references substituted
+     * @param parentLocation location of including document, or {@code null} for the converted document itself
+     * @return resolved include, or {@code null} if target cannot be resolved
+     * @throws IOException if target cannot be read
+     */
+    AsciiInclude resolve(String target, String parentLocation) throws IOException;
+
+    /**
+     * Resolve includes as files relative to the including file. Targets outside of base directory are
+     * not resolved.
+     * <p>
+     * Files are memory-mapped and kept in a size-bounded cache shared by all directory resolvers.
+     * Cached files are validated against modification time and size on every include.
+     *
+     * @param baseDir base directory, also the directory of the converted document
+     * @return resolver
+     * @throws IOException if base directory does not exist
+     */
+    static AsciiIncludeResolver fromDirectory(Path baseDir) throws IOException {
+        return new DirectoryIncludeResolver(baseDir, IncludeCache.shared());
+    }
+}
@@ -0,0 +1,250 @@
+package com.github.fluorumlabs.asciidocj;
+
+import com.github.fluorumlabs.asciidocj.impl.LexerProfile;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hit histogram of lexer rules, for finding grammar hot spots with real documents. For every rule of
+ * document parser, inline formatter and other lexers, profile counts hits, matched characters,
+ * pushbacks and time spent in rule action.
+ * <p>
+ * Profile collects statistics of documents it is set to with {@link AsciiDocument#with(AsciiLexerProfile)}.
+ * Lexer rules are identified by action number of generated lexer, together with text matched by the first
+ * hit. Profiling adds two {@link System#nanoTime()} calls per matched rule, so profiled conversions are
+ * noticeably slower.
+ * Thread-safe.
+ */
+public class AsciiLexerProfile {
+    private static final Recording NOT_RECORDING = new Recording(null, false);
+
+    private final Map<String, Rule> rules = new LinkedHashMap<>();
+    private long conversions;
+
+    /**
+     * Statistics of a single lexer rule
+     */
+    public static class Rule {
+        private final String lexer;
+        private final int action;
+        private final String sample;
+        private long hits;
+        private long matchedChars;
+        private long pushbacks;
+        private long pushedBackChars;
+        private long selfNanos;
+        private long totalNanos;
+
+        private Rule(String lexer, int action, String sample) {
+            this.lexer = lexer;
+            this.action = action;
+            this.sample = sample;
+        }
+
+        private Rule(Rule rule) {
+            this(rule.lexer, rule.action, rule.sample);
+            hits = rule.hits;
+            matchedChars = rule.matchedChars;
+            pushbacks = rule.pushbacks;
+            pushedBackChars = rule.pushedBackChars;
+            selfNanos = rule.selfNanos;
+            totalNanos = rule.totalNanos;
+        }
+
+        /**
+         * @return simple class name of lexer, like {@code AsciidocFormatter}
+         */
+        public String getLexer() {
+            return lexer;
+        }
+
+        /**
+         * @return action number of rule in generated lexer
+         */
+        public int getAction() {
+            return action;
+        }
+
+        /**
+         * @return text matched by the first hit of rule, up to 40 characters
+         */
+        public String getSample() {
+            return sample;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMatchedChars() {
+            return matchedChars;
+        }
+
+        /**
+         * @return number of {@code yypushback} calls in rule action
+         */
+        public long getPushbacks() {
+            return pushbacks;
+        }
+
+        public long getPushedBackChars() {
+            return pushedBackChars;
+        }
+
+        /**
+         * @return time spent in rule action, not including rule actions of lexers invoked from it
+         */
+        public long getSelfNanos() {
+            return selfNanos;
+        }
+
+        /**
+         * @return time spent in rule action, including rule actions of lexers invoked from it
+         */
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+    }
+
+    /**
+     * Recording of a single conversion stage, adding statistics to profile when closed
+     */
+    static class Recording implements AutoCloseable {
+        private final AsciiLexerProfile target;
+        private final boolean conversion;
+        private final LexerProfile profile;
+        private final LexerProfile previous;
+
+        private Recording(AsciiLexerProfile target, boolean conversion) {
+            this.target = target;
+            this.conversion = conversion;
+            this.profile = target == null ? null : new LexerProfile();
+            this.previous = target == null ? null : LexerProfile.activate(profile);
+        }
+
+        @Override
+        public void close() {
+            if (target != null) {
+                LexerProfile.activate(previous);
+                target.add(profile, conversion);
+            }
+        }
+    }
+
+    /**
+     * Start recording on current thread.
+     *
+     * @param target     profile to add statistics to, or {@code null} to not record
+     * @param conversion whether this is the first stage of document recorded into target, to be counted
+     *                   as a conversion
+     * @return recording, to be closed on the same thread
+     */
+    static Recording record(AsciiLexerProfile target, boolean conversion) {
+        return target == null ? NOT_RECORDING : new Recording(target, conversion);
+    }
+
+    private synchronized void add(LexerProfile profile, boolean conversion) {
+        if (conversion) {
+            conversions++;
+        }
+        for (Map.Entry<String, LexerProfile.Rules> entry : profile.getLexers().entrySet()) {
+            LexerProfile.Rules lexerRules = entry.getValue();
+            for (int action = 0; action < lexerRules.size(); action++) {
+                if (lexerRules.getHits(action) == 0) {
+                    continue;
+                }
+                int ruleAction = action;
+                Rule rule = rules.computeIfAbsent(entry.getKey() + '#' + action,
+                        key -> new Rule(entry.getKey(), ruleAction, lexerRules.getSample(ruleAction)));
+                rule.hits += lexerRules.getHits(action);
+                rule.matchedChars += lexerRules.getMatchedChars(action);
+                rule.pushbacks += lexerRules.getPushbacks(action);
+                rule.pushedBackChars += lexerRules.getPushedBackChars(action);
+                rule.selfNanos += lexerRules.getSelfNanos(action);
+                rule.totalNanos += lexerRules.getTotalNanos(action);
+            }
+        }
+    }
+
+    /**
+     * Get statistics of rules that were hit, hottest first.
+     *
+     * @return copy of statistics, sorted by self time
+     */
+    public synchronized List<Rule> getRules() {
+        List<Rule> result = new ArrayList<>(rules.size());
+        for (Rule rule : rules.values()) {
+            result.add(new Rule(rule));
+        }
+        result.sort(Comparator.comparingLong(Rule::getSelfNanos).reversed());
+        return result;
+    }
+
+    /**
+     * Get number of recorded documents. Every document is counted once, no matter how many of its
+     * conversion stages, like parsing, rendering or outline extraction, were recorded.
+     *
+     * @return number of documents
+     */
+    public synchronized long getConversions() {
+        return conversions;
+    }
+
+    public synchronized void clear() {
+        rules.clear();
+        conversions = 0;
+    }
+
+    /**
+     * Format hottest rules as a table.
+     *
+     * @param limit maximum number of rules
+     * @return report
+     */
+    public String getReport(int limit) {
+        List<Rule> hottest = getRules();
+        long totalSelf = hottest.stream().mapToLong(Rule::getSelfNanos).sum();
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%9s %6s %9s %11s %12s %10s %11s  %s%n",
+                "self ms", "self%", "total ms", "hits", "matched", "pushbacks", "pushed back", "rule"));
+        for (Rule rule : hottest.subList(0, Math.min(limit, hottest.size()))) {
+            report.append(String.format("%9.2f %5.1f%% %9.2f %11d %12d %10d %11d  %s#%d %s%n",
+                    rule.selfNanos / 1e6, totalSelf == 0 ? 0.0 : 100.0 * rule.selfNanos / totalSelf, rule.totalNanos / 1e6,
+                    rule.hits, rule.matchedChars, rule.pushbacks, rule.pushedBackChars,
+                    rule.lexer, rule.action, quote(rule.sample)));
+        }
+        return report.toString();
+    }
+
+    private static String quote(String sample) {
+        StringBuilder quoted = new StringBuilder(sample.length() + 2).append('"');
+        for (char c : sample.toCharArray()) {
+            switch (c) {
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                case '\0':
+                    quoted.append("\\0");
+                    break;
+                case '"':
+                case '\\':
+                    quoted.append('\\').append(c);
+                    break;
+                default:
+                    quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.fluorumlabs.asciidocj;
+
+/**
+ * Thrown when conversion exceeds one of {@link AsciiLimits}, or is cancelled.
+ */
+public class AsciiLimitException extends RuntimeException {
+    public enum Limit {
+        INPUT_LENGTH, NESTING_DEPTH, NODES, FORMATTER_INVOCATIONS, TIMEOUT, CANCELLED
+    }
+
+    private final Limit limit;
+
+    /**
+     * Constructs a new exception for the violated limit.
+     *
+     * @param limit   violated limit
+     * @param message the detail message
+     */
+    public AsciiLimitException(Limit limit, String message) {
+        super(message);
+        this.limit = limit;
+    }
+
+    public Limit getLimit() {
+        return limit;
+    }
+}
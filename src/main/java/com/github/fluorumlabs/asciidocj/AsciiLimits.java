@@ -0,0 +1,143 @@
+package com.github.fluorumlabs.asciidocj;
+
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Resource limits for conversion of untrusted Asciidoc. Instances are immutable, every {@code with...}
+ * method returns a new copy.
+ * <p>
+ * Violation of any limit aborts conversion with {@link AsciiLimitException}.
+ */
+public class AsciiLimits {
+    private static final AsciiLimits UNLIMITED = new AsciiLimits();
+
+    private int maxInputLength = Integer.MAX_VALUE;
+    private int maxNestingDepth = Integer.MAX_VALUE;
+    private int maxNodes = Integer.MAX_VALUE;
+    private int maxFormatterInvocations = Integer.MAX_VALUE;
+    private Duration timeout = null;
+    private BooleanSupplier cancellation = null;
+
+    private AsciiLimits() {
+    }
+
+    private AsciiLimits(AsciiLimits source) {
+        this.maxInputLength = source.maxInputLength;
+        this.maxNestingDepth = source.maxNestingDepth;
+        this.maxNodes = source.maxNodes;
+        this.maxFormatterInvocations = source.maxFormatterInvocations;
+        this.timeout = source.timeout;
+        this.cancellation = source.cancellation;
+    }
+
+    /**
+     * No limits at all. This is the default for {@link AsciiDocument}.
+     *
+     * @return unlimited limits
+     */
+    public static AsciiLimits unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * Maximal length of Asciidoc source, in characters.
+     *
+     * @param maxInputLength maximal length
+     * @return new limits
+     */
+    public AsciiLimits withMaxInputLength(int maxInputLength) {
+        AsciiLimits result = new AsciiLimits(this);
+        result.maxInputLength = maxInputLength;
+        return result;
+    }
+
+    /**
+     * Maximal nesting depth of delimited blocks, list item continuations and table cells
+     * parsed as sub-documents.
+     *
+     * @param maxNestingDepth maximal depth
+     * @return new limits
+     */
+    public AsciiLimits withMaxNestingDepth(int maxNestingDepth) {
+        AsciiLimits result = new AsciiLimits(this);
+        result.maxNestingDepth = maxNestingDepth;
+        return result;
+    }
+
+    /**
+     * Maximal number of elements and text nodes created while parsing.
+     *
+     * @param maxNodes maximal node count
+     * @return new limits
+     */
+    public AsciiLimits withMaxNodes(int maxNodes) {
+        AsciiLimits result = new AsciiLimits(this);
+        result.maxNodes = maxNodes;
+        return result;
+    }
+
+    /**
+     * Maximal number of inline formatter runs (paragraphs, titles, nested quotes, macros etc.).
+     *
+     * @param maxFormatterInvocations maximal invocation count
+     * @return new limits
+     */
+    public AsciiLimits withMaxFormatterInvocations(int maxFormatterInvocations) {
+        AsciiLimits result = new AsciiLimits(this);
+        result.maxFormatterInvocations = maxFormatterInvocations;
+        return result;
+    }
+
+    /**
+     * Maximal conversion time. Only time spent converting the document is counted, so that documents
+     * rendered after deferral, like by {@link AsciidocEngine#convertAll}, are not charged for waiting.
+     * Checked periodically while lexing and rendering.
+     *
+     * @param timeout maximal conversion time
+     * @return new limits
+     */
+    public AsciiLimits withTimeout(Duration timeout) {
+        AsciiLimits result = new AsciiLimits(this);
+        result.timeout = timeout;
+        return result;
+    }
+
+    /**
+     * Cooperative cancellation token, polled periodically while lexing. Conversion is aborted as soon
+     * as it returns {@code true}. For example: {@code AtomicBoolean::get} or
+     * {@code Thread.currentThread()::isInterrupted}.
+     *
+     * @param cancellation cancellation token
+     * @return new limits
+     */
+    public AsciiLimits withCancellation(BooleanSupplier cancellation) {
+        AsciiLimits result = new AsciiLimits(this);
+        result.cancellation = cancellation;
+        return result;
+    }
+
+    public int getMaxInputLength() {
+        return maxInputLength;
+    }
+
+    public int getMaxNestingDepth() {
+        return maxNestingDepth;
+    }
+
+    public int getMaxNodes() {
+        return maxNodes;
+    }
+
+    public int getMaxFormatterInvocations() {
+        return maxFormatterInvocations;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public BooleanSupplier getCancellation() {
+        return cancellation;
+    }
+}
@@ -0,0 +1,170 @@
+package com.github.fluorumlabs.asciidocj;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.parser.Parser;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Operation on rendered document, as returned by {@link AsciiBlocks#diff(AsciiBlocks)}.
+ * <p>
+ * Operation targets child node at {@link #getIndex()} of container element found by following
+ * {@link #getPath()} from document body, where every number is an index in {@code childNodes} of the
+ * element reached so far. Indexes refer to the document with all preceding operations applied. In the
+ * browser it is applied as
+ * <pre>
+ * let container = body;
+ * patch.path.forEach(i =&gt; container = container.childNodes[i]);
+ * const node = container.childNodes[patch.index];
+ * </pre>
+ * followed by {@code node.remove()}, or by inserting HTML before {@code node} (at the end if there is no
+ * node), replacing {@code node} for {@code replace}.
+ * <p>
+ * Instances are immutable. Path array is returned without copying and must not be modified.
+ */
+public class AsciiPatch {
+    /**
+     * Type of operation
+     */
+    public enum Type {
+        /**
+         * Insert HTML before child node at index, or append it if index is the number of child nodes
+         */
+        INSERT,
+        /**
+         * Replace child node at index with HTML
+         */
+        REPLACE,
+        /**
+         * Remove child node at index
+         */
+        REMOVE
+    }
+
+    private final Type type;
+    private final int[] path;
+    private final int index;
+    private final String key;
+    private final String html;
+
+    AsciiPatch(Type type, int[] path, int index, String key, String html) {
+        this.type = type;
+        this.path = path;
+        this.index = index;
+        this.key = key;
+        this.html = html;
+    }
+
+    /**
+     * Apply operations to rendered document, as client would do.
+     *
+     * @param patches operations, in order
+     * @param body    document body of previous render
+     */
+    public static void apply(List<AsciiPatch> patches, Element body) {
+        for (AsciiPatch patch : patches) {
+            patch.apply(body);
+        }
+    }
+
+    /**
+     * Convert operations to JSON for sending to client.
+     *
+     * @param patches operations
+     * @return JSON array of {@link #toJSON()} objects
+     */
+    public static JSONArray toJSON(List<AsciiPatch> patches) {
+        JSONArray result = new JSONArray();
+        for (AsciiPatch patch : patches) {
+            result.put(patch.toJSON());
+        }
+        return result;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Child node indexes of container, starting from document body.
+     *
+     * @return path, empty for top-level blocks; not to be modified
+     */
+    public int[] getPath() {
+        return path;
+    }
+
+    /**
+     * Child node index in container.
+     *
+     * @return index
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Key of block: {@code #id} for blocks with id, or kind and ordinal like {@code div.paragraph@3}.
+     * Informational, operations are addressed by path and index.
+     *
+     * @return key
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * HTML of inserted or new block.
+     *
+     * @return HTML, or {@code null} for {@link Type#REMOVE}
+     */
+    public String getHtml() {
+        return html;
+    }
+
+    /**
+     * Apply operation to rendered document.
+     *
+     * @param body document body
+     */
+    public void apply(Element body) {
+        Element container = body;
+        for (int i : path) {
+            container = (Element) container.childNode(i);
+        }
+        if (type != Type.INSERT) {
+            container.childNode(index).remove();
+        }
+        if (type != Type.REMOVE) {
+            List<Node> nodes = Parser.parseFragment(html, container, body.baseUri());
+            container.insertChildren(index, nodes);
+        }
+    }
+
+    /**
+     * Convert operation to JSON, like {@code {"op":"replace","path":[3,1],"index":2,"key":"#intro","html":"..."}}.
+     * {@code html} is omitted for {@code remove}.
+     *
+     * @return JSON
+     */
+    public JSONObject toJSON() {
+        JSONObject result = new JSONObject()
+                .put("op", type.name().toLowerCase(Locale.ROOT))
+                .put("path", new JSONArray(path))
+                .put("index", index)
+                .put("key", key);
+        if (html != null) {
+            result.put("html", html);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return toJSON().toString();
+    }
+}
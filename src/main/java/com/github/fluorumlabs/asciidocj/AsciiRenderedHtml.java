@@ -0,0 +1,119 @@
+package com.github.fluorumlabs.asciidocj;
+
+import com.github.fluorumlabs.asciidocj.impl.ContentEncoder;
+import org.jsoup.nodes.Element;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * HTML of document body encoded for HTTP serving: UTF-8 bytes, strong entity tag and, optionally, compressed
+ * variants. Everything is computed in a single pass while serializing the rendered document, so cached
+ * instances can be written to responses as is.
+ * <p>
+ * Instances are immutable. Byte arrays are returned without copying and must not be modified.
+ */
+public class AsciiRenderedHtml {
+    /**
+     * Content encodings that can be produced along with plain bytes
+     */
+    public enum Encoding {
+        /**
+         * {@code Content-Encoding: gzip}
+         */
+        GZIP,
+        /**
+         * {@code Content-Encoding: deflate}, which is zlib format
+         */
+        DEFLATE
+    }
+
+    private final byte[] bytes;
+    private final String etag;
+    private final byte[] gzip;
+    private final byte[] deflate;
+
+    private AsciiRenderedHtml(byte[] bytes, String etag, byte[] gzip, byte[] deflate) {
+        this.bytes = bytes;
+        this.etag = etag;
+        this.gzip = gzip;
+        this.deflate = deflate;
+    }
+
+    /**
+     * Serialize children of rendered element.
+     *
+     * @param body      rendered document body
+     * @param encodings compressed variants to produce
+     * @return rendered HTML
+     */
+    static AsciiRenderedHtml of(Element body, Encoding... encodings) {
+        Set<Encoding> encodingSet = encodings.length == 0 ? EnumSet.noneOf(Encoding.class) : EnumSet.copyOf(Arrays.asList(encodings));
+        try {
+            ContentEncoder encoder = new ContentEncoder(encodingSet.contains(Encoding.GZIP), encodingSet.contains(Encoding.DEFLATE));
+            try (Writer writer = new OutputStreamWriter(encoder, StandardCharsets.UTF_8)) {
+                body.html(writer);
+            }
+            String etag = '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(encoder.getDigest()) + '"';
+            return new AsciiRenderedHtml(encoder.getBytes(), etag, encoder.getGzip(), encoder.getDeflate());
+        } catch (IOException e) {
+            // Output is collected in memory
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * HTML encoded as UTF-8, same as {@link AsciiDocument#getHtml()}.
+     *
+     * @return bytes, not to be modified
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Length of HTML in bytes, for {@code Content-Length} header.
+     *
+     * @return length
+     */
+    public int getLength() {
+        return bytes.length;
+    }
+
+    /**
+     * Strong entity tag derived from SHA-256 of bytes, quoted and ready for {@code ETag} header.
+     *
+     * @return entity tag
+     */
+    public String getETag() {
+        return etag;
+    }
+
+    /**
+     * Compressed HTML.
+     *
+     * @param encoding content encoding
+     * @return bytes, not to be modified, or {@code null} if variant was not requested
+     */
+    public byte[] getBytes(Encoding encoding) {
+        return encoding == Encoding.GZIP ? gzip : deflate;
+    }
+
+    /**
+     * Write HTML to output.
+     *
+     * @param out output
+     * @throws IOException if output cannot be written
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,93 @@
+package com.github.fluorumlabs.asciidocj;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Section of document outline.
+ * <p>
+ * Outline contains the same sections as the table of contents: sections having an id,
+ * up to the {@code toclevels} depth.
+ */
+public class AsciiSection {
+    private final int level;
+    private final String id;
+    private final String number;
+    private final String title;
+    private final String numberedTitle;
+    private final List<AsciiSection> sections = new ArrayList<>();
+
+    private AsciiSection(JSONObject entry) {
+        this.level = entry.getInt("level") - 1;
+        this.id = entry.getString("id");
+        this.number = entry.getString("sectNum");
+        this.title = entry.getString("title");
+        this.numberedTitle = entry.getString("numberedTitle");
+    }
+
+    /**
+     * Section level: 1 for {@code ==}, 2 for {@code ===} and so on.
+     *
+     * @return section level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Section number, like {@code 1.2} or {@code A}. Empty if sections are not numbered.
+     *
+     * @return section number
+     */
+    public String getNumber() {
+        return number;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Section title as it appears in the table of contents, like {@code 1.2. Title} or {@code Appendix A: Title}
+     *
+     * @return numbered title
+     */
+    public String getNumberedTitle() {
+        return numberedTitle;
+    }
+
+    public List<AsciiSection> getSections() {
+        return Collections.unmodifiableList(sections);
+    }
+
+    static List<AsciiSection> fromOutline(JSONArray outline, int tocLevels) {
+        List<AsciiSection> roots = new ArrayList<>();
+        List<AsciiSection> stack = new ArrayList<>();
+        for (int i = 0; i < outline.length(); i++) {
+            JSONObject entry = outline.getJSONObject(i);
+            int level = entry.getInt("level");
+            if (level < 2 || level > tocLevels || entry.getString("id").isEmpty()) {
+                continue;
+            }
+            AsciiSection section = new AsciiSection(entry);
+            while (!stack.isEmpty() && stack.get(stack.size() - 1).level >= section.level) {
+                stack.remove(stack.size() - 1);
+            }
+            if (stack.isEmpty()) {
+                roots.add(section);
+            } else {
+                stack.get(stack.size() - 1).sections.add(section);
+            }
+            stack.add(section);
+        }
+        return roots;
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.fluorumlabs.asciidocj;
+
+import com.github.fluorumlabs.asciidocj.impl.SnapshotCodec;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Objects;
+
+/**
+ * Compact binary form of converted document, for keeping many documents in memory or on disk without
+ * retaining their jsoup trees. Snapshot can be restored to jsoup document, or written straight to HTML
+ * without restoring, which gives the same result as {@link AsciiDocument#getHtml()}.
+ * <p>
+ * Snapshot is a table of interned tag names, attribute names and classes followed by varint-encoded tree,
+ * typically smaller than HTML of the document. Instances are immutable. Byte array is returned without
+ * copying and must not be modified.
+ */
+public class AsciiSnapshot {
+    private final byte[] bytes;
+
+    private AsciiSnapshot(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * Take snapshot of rendered document.
+     *
+     * @param body rendered document body
+     * @return snapshot
+     */
+    static AsciiSnapshot of(Element body) {
+        return new AsciiSnapshot(SnapshotCodec.encode(body));
+    }
+
+    /**
+     * Wrap bytes of snapshot previously obtained with {@link #getBytes()}.
+     *
+     * @param bytes snapshot bytes, not to be modified afterwards
+     * @return snapshot
+     * @throws IllegalArgumentException if bytes are not a snapshot
+     */
+    public static AsciiSnapshot of(byte[] bytes) {
+        if (!SnapshotCodec.isSnapshot(Objects.requireNonNull(bytes))) {
+            throw new IllegalArgumentException("Not a document snapshot");
+        }
+        return new AsciiSnapshot(bytes);
+    }
+
+    /**
+     * Snapshot bytes, for storing.
+     *
+     * @return bytes, not to be modified
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Restore document. Every call returns a new document.
+     *
+     * @return document, same as {@link AsciiDocument#getDocument()} of original document
+     */
+    public Document restore() {
+        return SnapshotCodec.decode(bytes);
+    }
+
+    /**
+     * Get HTML of document body without restoring the document.
+     *
+     * @return HTML, same as {@link AsciiDocument#getHtml()} of original document
+     */
+    public String getHtml() {
+        StringWriter out = new StringWriter(bytes.length + bytes.length / 2);
+        try {
+            writeHtml(out);
+        } catch (IOException e) {
+            // Output is collected in memory
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Write HTML of document body without restoring the document.
+     *
+     * @param out output
+     * @throws IOException if output cannot be written
+     */
+    public void writeHtml(Writer out) throws IOException {
+        SnapshotCodec.writeHtml(bytes, out);
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.fluorumlabs.asciidocj;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+
+/**
+ * JVM warm-up for conversion.
+ * <p>
+ * First conversions are much slower than steady state: classes are loaded and initialized, and lexers and
+ * renderers are interpreted before JIT compiles them. {@link #warmUp()} converts an embedded corpus covering
+ * every block and inline element type, so that this cost is paid at application startup instead of by the
+ * first requests.
+ * <p>
+ * Class loading can be further reduced with AppCDS (JDK 13+). The {@link #main(String[])} method is a training
+ * run that loads every class used for conversion:
+ * <pre>
+ * java -XX:ArchiveClassesAtExit=asciidocj.jsa -cp ... com.github.fluorumlabs.asciidocj.AsciidocEngine
+ * java -XX:SharedArchiveFile=asciidocj.jsa -cp ... your.Application
+ * </pre>
+ * With JDK 10-12, use {@code -XX:DumpLoadedClassList=asciidocj.classlist} for the training run, then
+ * {@code -Xshare:dump -XX:SharedClassListFile=asciidocj.classlist -XX:SharedArchiveFile=asciidocj.jsa}.
+ * The same classpath must be used for dumping and running, and it must consist of jars only.
+ */
+public final class AsciidocEngine {
+    private static final int DEFAULT_ITERATIONS = 20;
+
+    private static final String CORPUS = "warmup.adoc";
+    private static final String PARTIAL = "Included partial paragraph with *formatting*.\n";
+
+    private AsciidocEngine() {
+    }
+
+    /**
+     * Warm up conversion with the default number of iterations.
+     */
+    public static void warmUp() {
+        warmUp(DEFAULT_ITERATIONS);
+    }
+
+    /**
+     * Warm up conversion by converting embedded corpus several times.
+     *
+     * @param iterations number of conversions
+     */
+    public static void warmUp(int iterations) {
+        String corpus = loadCorpus();
+        AsciiIncludeResolver resolver = (target, parentLocation) -> AsciiInclude.of(target, PARTIAL);
+        for (int i = 0; i < iterations; i++) {
+            AsciiDocument.from(corpus).getOutline();
+            AsciiDocument document = AsciiDocument.from(corpus)
+                    .with(resolver)
+                    .with(AsciiLimits.unlimited().withTimeout(Duration.ofMinutes(1)));
+            document.getHtml();
+            document.getOutline();
+        }
+    }
+
+    /**
+     * Convert documents in one batch. All documents are parsed before any of them is rendered, so references
+     * between documents sharing {@link AsciiAnchors} resolve regardless of their order, without converting
+     * any document twice. Converted documents are then available from {@link AsciiDocument#getHtml()}.
+     *
+     * @param documents documents to convert
+     */
+    public static void convertAll(Collection<AsciiDocument> documents) {
+        for (AsciiDocument document : documents) {
+            document.prepare();
+        }
+        for (AsciiDocument document : documents) {
+            document.getDocument();
+        }
+    }
+
+    /**
+     * Training run for AppCDS archive.
+     *
+     * @param args optional number of iterations
+     */
+    public static void main(String[] args) {
+        warmUp(args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS);
+    }
+
+    private static String loadCorpus() {
+        try (InputStream stream = AsciidocEngine.class.getResourceAsStream(CORPUS)) {
+            if (stream == null) {
+                throw new IllegalStateException("Warm-up corpus " + CORPUS + " not found");
+            }
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = stream.read(buffer)) >= 0) {
+                result.write(buffer, 0, read);
+            }
+            return new String(result.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package com.github.fluorumlabs.asciidocj.cli;
+
+import com.github.fluorumlabs.asciidocj.AsciiDocument;
+import com.github.fluorumlabs.asciidocj.AsciiIncludeResolver;
+import com.github.fluorumlabs.asciidocj.AsciiLexerProfile;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Command-line batch converter. Converts files, directories and glob patterns to HTML in parallel and prints
+ * throughput statistics, which makes it usable for capacity planning against real documents.
+ * <p>
+ * Packaged as executable jar with {@code mvn package -Pcli}.
+ */
+public class AsciidocCli {
+    private static final String USAGE = "Usage: asciidocj [options] <file|directory|glob>...\n" +
+            "\n" +
+            "Converts .adoc files to HTML of document body, written next to sources or to output directory.\n" +
+            "Directories are searched recursively, quote globs like 'docs/**/*.adoc' to expand them here.\n" +
+            "\n" +
+            "Options:\n" +
+            "  -a, --attribute name[=value]  set document attribute, may be repeated\n" +
+            "  -o, --output <directory>      write outputs to directory, keeping paths relative to arguments;\n" +
+            "                                documents that would be written to the same file are rejected\n" +
+            "  -j, --threads <count>         number of parallel conversions, number of processors by default\n" +
+            "  -s, --slowest <count>         number of slowest documents to report, 5 by default\n" +
+            "  -p, --profile <count>         report given number of hottest lexer rules, slows down conversion\n" +
+            "  -h, --help                    print this help\n";
+
+    private final Map<String, String> attributes = new LinkedHashMap<>();
+    private Path output;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int slowest = 5;
+    private AsciiLexerProfile profile;
+    private int hottest;
+
+    // Source file and its path relative to the argument it was found by
+    private final Map<Path, Path> sources = new LinkedHashMap<>();
+
+    private static class Result {
+        private final Path source;
+        private final long bytes;
+        private final long nanos;
+        private final String error;
+
+        private Result(Path source, long bytes, long nanos, String error) {
+            this.source = source;
+            this.bytes = bytes;
+            this.nanos = nanos;
+            this.error = error;
+        }
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Run converter.
+     *
+     * @param args command line arguments
+     * @param out  output for statistics
+     * @param err  output for errors
+     * @return exit code: 0 on success, 1 if some documents failed, 2 on invalid arguments
+     */
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        AsciidocCli cli = new AsciidocCli();
+        try {
+            if (!cli.parseArguments(args, out)) {
+                return 0;
+            }
+            if (cli.sources.isEmpty()) {
+                err.println("No documents found");
+                return 2;
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            err.println(e.getMessage());
+            err.print(USAGE);
+            return 2;
+        }
+        return cli.convert(out, err);
+    }
+
+    /**
+     * Parse arguments and collect sources
+     *
+     * @param args command line arguments
+     * @param out  output for help
+     * @return {@code false} if help was requested
+     * @throws IOException if directories cannot be read
+     */
+    private boolean parseArguments(String[] args, PrintStream out) throws IOException {
+        List<String> patterns = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "-h":
+                case "--help":
+                    out.print(USAGE);
+                    return false;
+                case "-a":
+                case "--attribute":
+                    String attribute = value(args, ++i, arg);
+                    int equals = attribute.indexOf('=');
+                    if (equals < 0) {
+                        attributes.put(attribute, "");
+                    } else {
+                        attributes.put(attribute.substring(0, equals), attribute.substring(equals + 1));
+                    }
+                    break;
+                case "-o":
+                case "--output":
+                    output = Paths.get(value(args, ++i, arg));
+                    break;
+                case "-j":
+                case "--threads":
+                    threads = positive(value(args, ++i, arg), arg);
+                    break;
+                case "-s":
+                case "--slowest":
+                    slowest = positive(value(args, ++i, arg), arg);
+                    break;
+                case "-p":
+                case "--profile":
+                    hottest = positive(value(args, ++i, arg), arg);
+                    profile = new AsciiLexerProfile();
+                    break;
+                default:
+                    if (arg.startsWith("-") && arg.length() > 1) {
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                    }
+                    patterns.add(arg);
+            }
+        }
+        for (String pattern : patterns) {
+            collect(pattern);
+        }
+        checkTargets();
+        return true;
+    }
+
+    /**
+     * Reject sources that would be written to the same file, like {@code a/x.adoc} and {@code b/x.adoc} with
+     * output directory. Files matched by several arguments are converted once.
+     */
+    private void checkTargets() {
+        Map<Path, Path> written = new HashMap<>();
+        for (Iterator<Map.Entry<Path, Path>> iterator = sources.entrySet().iterator(); iterator.hasNext(); ) {
+            Path source = iterator.next().getKey();
+            Path target = getTarget(source, sources.get(source)).toAbsolutePath().normalize();
+            Path previous = written.putIfAbsent(target, source);
+            if (previous == null) {
+                continue;
+            }
+            if (!previous.toAbsolutePath().normalize().equals(source.toAbsolutePath().normalize())) {
+                throw new IllegalArgumentException("Both " + previous + " and " + source + " would be written to " + target);
+            }
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Get output file of source
+     *
+     * @param source   source file
+     * @param relative path of source relative to the argument it was found by
+     * @return output file
+     */
+    private Path getTarget(Path source, Path relative) {
+        String name = relative.getFileName().toString().replaceFirst("\\.(adoc|asciidoc|asc)$", "") + ".html";
+        return output == null ? source.resolveSibling(name) : output.resolve(relative).resolveSibling(name);
+    }
+
+    private static String value(String[] args, int i, String option) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value of " + option);
+        }
+        return args[i];
+    }
+
+    private static int positive(String value, String option) {
+        try {
+            int result = Integer.parseInt(value);
+            if (result > 0) {
+                return result;
+            }
+        } catch (NumberFormatException ignore) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Invalid value of " + option + ": " + value);
+    }
+
+    private void collect(String pattern) throws IOException {
+        int glob = indexOfGlob(pattern);
+        if (glob < 0) {
+            Path path = Paths.get(pattern);
+            if (Files.isDirectory(path)) {
+                collect(path, path.getFileSystem().getPathMatcher("glob:**.adoc"));
+            } else if (Files.isRegularFile(path)) {
+                sources.put(path, path.getFileName());
+            } else {
+                throw new IllegalArgumentException("No such file: " + pattern);
+            }
+        } else {
+            // Base directory is the part of pattern before first segment with wildcards
+            int slash = Math.max(pattern.lastIndexOf('/', glob), pattern.lastIndexOf('\\', glob));
+            Path base = Paths.get(slash < 0 ? "." : pattern.substring(0, slash + 1));
+            String relative = pattern.substring(slash + 1);
+            if (Files.isDirectory(base)) {
+                PathMatcher matcher = base.getFileSystem().getPathMatcher("glob:" + relative);
+                if (relative.startsWith("**/")) {
+                    // Like in shells, docs/**/*.adoc includes docs/*.adoc
+                    PathMatcher topLevel = base.getFileSystem().getPathMatcher("glob:" + relative.substring(3));
+                    collect(base, path -> matcher.matches(path) || topLevel.matches(path));
+                } else {
+                    collect(base, matcher);
+                }
+            }
+        }
+    }
+
+    private void collect(Path base, PathMatcher matcher) throws IOException {
+        try (Stream<Path> files = Files.walk(base)) {
+            for (Path file : files.filter(Files::isRegularFile).sorted().collect(Collectors.toList())) {
+                Path relative = base.relativize(file);
+                if (matcher.matches(relative)) {
+                    sources.put(file, relative);
+                }
+            }
+        }
+    }
+
+    private static int indexOfGlob(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if ("*?[{".indexOf(pattern.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int convert(PrintStream out, PrintStream err) {
+        long start = System.nanoTime();
+        List<Result> results = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Result>> tasks = new ArrayList<>();
+            for (Map.Entry<Path, Path> source : sources.entrySet()) {
+                tasks.add(executor.submit(() -> convert(source.getKey(), source.getValue())));
+            }
+            for (Future<Result> task : tasks) {
+                results.add(task.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            err.println("Interrupted");
+            return 1;
+        } catch (ExecutionException e) {
+            // Conversion errors are reported in results
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        long nanos = System.nanoTime() - start;
+
+        List<Result> failures = results.stream().filter(r -> r.error != null).collect(Collectors.toList());
+        for (Result failure : failures) {
+            err.println(failure.source + ": " + failure.error);
+        }
+        report(out, results, nanos);
+        return failures.isEmpty() ? 0 : 1;
+    }
+
+    private Result convert(Path source, Path relative) {
+        long start = System.nanoTime();
+        long bytes = 0;
+        try {
+            byte[] asciidoc = Files.readAllBytes(source);
+            bytes = asciidoc.length;
+            Path parent = source.toAbsolutePath().getParent();
+            String html = AsciiDocument.from(new String(asciidoc, StandardCharsets.UTF_8))
+                    .with(new HashMap<>(attributes))
+                    .with(AsciiIncludeResolver.fromDirectory(parent))
+                    .with(profile)
+                    .getHtml();
+            Path target = getTarget(source, relative);
+            if (target.getParent() != null) {
+                Files.createDirectories(target.getParent());
+            }
+            Files.write(target, html.getBytes(StandardCharsets.UTF_8));
+            return new Result(source, bytes, System.nanoTime() - start, null);
+        } catch (IOException | RuntimeException e) {
+            return new Result(source, bytes, System.nanoTime() - start, String.valueOf(e.getMessage()));
+        }
+    }
+
+    private void report(PrintStream out, List<Result> results, long nanos) {
+        double seconds = nanos / 1e9;
+        long bytes = results.stream().mapToLong(r -> r.bytes).sum();
+        long[] latencies = results.stream().mapToLong(r -> r.nanos).sorted().toArray();
+        long failures = results.stream().filter(r -> r.error != null).count();
+
+        out.printf("Documents:       %10d (%d failed)%n", results.size(), failures);
+        out.printf("Input:           %10.2f MB%n", bytes / 1e6);
+        out.printf("Wall time:       %10.2f s on %d threads%n", seconds, threads);
+        out.printf("Throughput:      %10.1f docs/sec%n", results.size() / seconds);
+        out.printf("                 %10.2f MB/sec%n", bytes / 1e6 / seconds);
+        out.printf("Latency p50:     %10.2f ms%n", percentile(latencies, 50) / 1e6);
+        out.printf("Latency p99:     %10.2f ms%n", percentile(latencies, 99) / 1e6);
+        out.println("Slowest documents:");
+        results.stream()
+                .sorted(Comparator.comparingLong((Result r) -> r.nanos).reversed())
+                .limit(slowest)
+                .forEach(r -> out.printf("  %10.2f ms  %s%n", r.nanos / 1e6, r.source));
+        if (profile != null) {
+            out.println("Hottest lexer rules:");
+            out.print(profile.getReport(hottest));
+        }
+    }
+
+    /**
+     * Nearest-rank percentile
+     */
+    private static long percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+}
@@ -0,0 +1,196 @@
+package com.github.fluorumlabs.asciidocj.impl;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Anchors of a single document: reference text and section number by id.
+ * <p>
+ * Index is filled by lexers of the document and its sub-documents while parsing, so every forward
+ * reference is known by the time links are rendered. Reference texts are stored in intermediate
+ * (escaped) form, and parsed once per anchor when first referenced. Anchors of other documents are looked up via document resolver, when the document is
+ * a part of a linked document set.
+ */
+public class AnchorIndex {
+    private final Map<String, String> reftexts = new HashMap<>();
+    private final Map<String, Element> parsedReftexts = new HashMap<>();
+    private final Map<String, String> sectionLabels = new HashMap<>();
+    private final Map<String, String> idsByReftext = new HashMap<>();
+
+    private boolean partial;
+
+    private Document indexedDocument;
+    private final Map<String, Element> elementsById = new HashMap<>();
+
+    private final String location;
+    private final Function<String, AnchorIndex> documents;
+
+    /**
+     * Create index of standalone document
+     */
+    public AnchorIndex() {
+        this(null, key -> null);
+    }
+
+    /**
+     * Create index of a document in linked document set
+     *
+     * @param location  location of document, used to resolve relative references to other documents
+     * @param documents indices of documents by {@link #documentKey(String)}
+     */
+    public AnchorIndex(String location, Function<String, AnchorIndex> documents) {
+        this.location = location == null ? "" : documentKey(location);
+        this.documents = documents;
+    }
+
+    public synchronized boolean contains(String id) {
+        return reftexts.containsKey(id);
+    }
+
+    public synchronized void put(String id, String reftext) {
+        String previous = reftexts.put(id, reftext);
+        parsedReftexts.remove(id);
+        if (previous != null && id.equals(idsByReftext.get(previous))) {
+            idsByReftext.remove(previous);
+        }
+        idsByReftext.putIfAbsent(reftext, id);
+    }
+
+    public synchronized String getReftext(String id) {
+        return reftexts.getOrDefault(id, "");
+    }
+
+    /**
+     * Get reference text parsed into nodes, with intermediate elements still escaped, see
+     * {@link Utils#inflateIntermediate(Element, org.json.JSONObject, AnchorIndex)}. Text is parsed once,
+     * every call returns a new copy.
+     *
+     * @param id anchor id
+     * @return element holding parsed reference text, or {@code null} if anchor has no reference text
+     */
+    public synchronized Element getParsedReftext(String id) {
+        String reftext = reftexts.get(id);
+        if (reftext == null || reftext.isEmpty()) {
+            return null;
+        }
+        Element parsed = parsedReftexts.get(id);
+        if (parsed == null) {
+            parsed = Document.createShell("").body().append(reftext);
+            parsedReftexts.put(id, parsed);
+        }
+        return parsed.clone();
+    }
+
+    /**
+     * Find anchor referenced by its text instead of id
+     *
+     * @param reftext reference text
+     * @return id or {@code null} if there is no such anchor
+     */
+    public synchronized String findId(String reftext) {
+        return idsByReftext.get(reftext);
+    }
+
+    public synchronized void putSectionLabel(String id, String label) {
+        sectionLabels.put(id, label);
+    }
+
+    public synchronized String getSectionLabel(String id) {
+        return sectionLabels.get(id);
+    }
+
+    /**
+     * Find element by id in rendered document. Elements are indexed in a single pass when first needed,
+     * instead of traversing the whole document for every reference; index is checked against the current
+     * state of element, as renderers may move ids around.
+     *
+     * @param document document being rendered, or {@code null} for elements already detached by renderers
+     * @param id       element id
+     * @return element or {@code null} if there is no such element
+     */
+    public synchronized Element getElementById(Document document, String id) {
+        if (document == null) {
+            return null;
+        }
+        if (indexedDocument != document) {
+            indexedDocument = document;
+            elementsById.clear();
+            for (Element element : document.getAllElements()) {
+                String elementId = element.id();
+                if (!elementId.isEmpty()) {
+                    elementsById.putIfAbsent(elementId, element);
+                }
+            }
+        }
+        Element element = elementsById.get(id);
+        if (element != null && (element.ownerDocument() != document || !id.equals(element.id()))) {
+            element = document.getElementById(id);
+            elementsById.put(id, element);
+        }
+        return element;
+    }
+
+    /**
+     * Mark index as partial while document is rendered section by section: anchors of sections that are
+     * not parsed yet are unknown, so unresolved references have to be rendered again at the end.
+     *
+     * @param partial whether index is partial
+     */
+    public synchronized void setPartial(boolean partial) {
+        this.partial = partial;
+    }
+
+    public synchronized boolean isPartial() {
+        return partial;
+    }
+
+    public synchronized Set<String> getIds() {
+        return Collections.unmodifiableSet(new HashSet<>(reftexts.keySet()));
+    }
+
+    /**
+     * Get index of another document of the same linked document set
+     *
+     * @param target reference to other document, relative to this one
+     * @return index or {@code null} if document is unknown
+     */
+    public AnchorIndex getDocument(String target) {
+        int slash = location.lastIndexOf('/');
+        String base = slash >= 0 ? location.substring(0, slash + 1) : "";
+        return documents.apply(documentKey(target.startsWith("/") ? target : base + target));
+    }
+
+    /**
+     * Normalize document location: use forward slashes, resolve {@code .} and {@code ..} segments and strip
+     * Asciidoc extension, so that {@code dir/../other.adoc} and {@code other} refer to the same document
+     *
+     * @param location document location
+     * @return document key
+     */
+    public static String documentKey(String location) {
+        Deque<String> segments = new ArrayDeque<>();
+        for (String segment : location.replace('\\', '/').split("/")) {
+            if (segment.equals("..") && !segments.isEmpty() && !segments.peekLast().equals("..")) {
+                segments.removeLast();
+            } else if (!segment.isEmpty() && !segment.equals(".")) {
+                segments.addLast(segment);
+            }
+        }
+        String key = String.join("/", segments);
+        if (key.endsWith(".adoc")) {
+            key = key.substring(0, key.length() - 5);
+        } else if (key.endsWith(".asciidoc")) {
+            key = key.substring(0, key.length() - 9);
+        }
+        return key;
+    }
+}
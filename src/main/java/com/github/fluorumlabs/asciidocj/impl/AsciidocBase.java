@@ -1,6 +1,7 @@
 package com.github.fluorumlabs.asciidocj.impl;
 
-import org.apache.commons.lang3.StringUtils;
+import com.github.fluorumlabs.asciidocj.AsciiImageResolver;
+import com.github.fluorumlabs.asciidocj.AsciiIncludeResolver;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.jsoup.nodes.Document;
@@ -8,8 +9,11 @@ import org.jsoup.nodes.Element;
 import org.jsoup.nodes.Node;
 import org.jsoup.nodes.TextNode;
 import org.jsoup.parser.Tag;
+import org.jsoup.safety.Safelist;
 import org.jsoup.select.Elements;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -21,8 +25,12 @@ import static com.github.fluorumlabs.asciidocj.impl.Utils.*;
  */
 public abstract class AsciidocBase {
     protected final static String DEFAULT_IMAGESDIR = "images/";
+    // Larger images are referenced even if data-uri is set
+    protected final static long DEFAULT_DATA_URI_MAXSIZE = 1024 * 1024;
 
     protected Document document;
+    // Element the tree is built into; elements above it belong to the caller and are never closed
+    protected Element root;
     protected StringBuilder textBuilder = new StringBuilder(256);
     protected Element currentElement;
     protected Element lastBlockParent;
@@ -31,6 +39,21 @@ public abstract class AsciidocBase {
     protected JSONObject currentProperties = new JSONObject();
     protected JSONObject attributes = new JSONObject();
 
+    protected ResourceGuard guard = new ResourceGuard();
+    protected AnchorIndex anchors = new AnchorIndex();
+    protected AsciiIncludeResolver includeResolver;
+    protected AsciiImageResolver imageResolver;
+    protected HtmlSanitizer sanitizer;
+
+    // Section-level flushing
+    protected SectionSpool spool;
+    private Element streamedToc;
+    private int tocMarker;
+    // Copies of headers of flushed sections, kept in a document so that TOC gets the same HTML as without flushing
+    private Element tocHeaders;
+    private final Map<Integer, Element> deferredLinks = new LinkedHashMap<>();
+    private final Set<String> flushedIds = new HashSet<>();
+
     // We don't need that :)
     protected static class Yytoken {
     }
@@ -45,9 +68,9 @@ public abstract class AsciidocBase {
             if (properties.has("id")) {
                 element.attr("id", properties.getString("id"));
                 if (properties.has("title:html"))
-                    attributes.put("anchor:" + properties.getString("id"), properties.get("title:html"));
+                    anchors.put(properties.getString("id"), properties.getString("title:html"));
                 if (properties.has("reftext"))
-                    attributes.put("anchor:" + properties.getString("id"), properties.get("reftext"));
+                    anchors.put(properties.getString("id"), properties.getString("reftext"));
             }
         }
         currentProperties = properties;
@@ -115,10 +138,129 @@ public abstract class AsciidocBase {
         }
     }
 
+    /**
+     * Set resource guard for this parser and all sub-parsers and formatters it creates.
+     *
+     * @param guard resource guard
+     */
+    public void setResourceGuard(ResourceGuard guard) {
+        this.guard = guard;
+    }
+
+    /**
+     * Set resolver of include directives. Only top level parser resolves includes, sub-parsers get
+     * already preprocessed text.
+     *
+     * @param includeResolver include resolver, or null to leave include directives as is
+     */
+    public void setIncludeResolver(AsciiIncludeResolver includeResolver) {
+        this.includeResolver = includeResolver;
+    }
+
+    /**
+     * Set anchor index to be filled by this parser and all sub-parsers and formatters it creates.
+     *
+     * @param anchors anchor index
+     */
+    public void setAnchors(AnchorIndex anchors) {
+        this.anchors = anchors;
+    }
+
+    /**
+     * Set resolver of local images, used by this parser and all sub-parsers and formatters it creates.
+     *
+     * @param imageResolver image resolver, or null to emit only sizes specified in document and never embed images
+     */
+    public void setImageResolver(AsciiImageResolver imageResolver) {
+        this.imageResolver = imageResolver;
+    }
+
+    /**
+     * Set safelist enforced on raw HTML as it is attached and on rendered elements, used by this parser and
+     * all sub-parsers and formatters it creates.
+     *
+     * @param safelist safelist, or null to allow any HTML
+     */
+    public void setSafelist(Safelist safelist) {
+        this.sanitizer = safelist == null ? null : new HtmlSanitizer(safelist);
+    }
+
+    /**
+     * Share resource guard, anchor index, image resolver and sanitizer with sub-parser or formatter.
+     *
+     * @param child sub-parser or formatter
+     * @param <T>   parser type
+     * @return child
+     */
+    protected <T extends AsciidocBase> T guarded(T child) {
+        child.guard = guard;
+        child.anchors = anchors;
+        child.imageResolver = imageResolver;
+        child.sanitizer = sanitizer;
+        return child;
+    }
+
+    /**
+     * Add intrinsic size of image to image properties, unless document specifies width or height
+     *
+     * @param imageProperties properties of image element
+     * @param target          image target
+     */
+    protected void putImageSize(JSONObject imageProperties, String target) {
+        if (imageResolver == null || imageProperties.has("width") || imageProperties.has("height")
+                || !getArgument(imageProperties, 1).isEmpty() || !getArgument(imageProperties, 2).isEmpty()) {
+            return;
+        }
+        int[] size;
+        try {
+            size = imageResolver.getSize(target);
+        } catch (IOException e) {
+            // Unreadable images are rendered without size, like images that do not exist
+            return;
+        }
+        if (size != null) {
+            imageProperties.put("width", Integer.toString(size[0]));
+            imageProperties.put("height", Integer.toString(size[1]));
+        }
+    }
+
+    /**
+     * Get {@code src} of image: {@code data:} URI if {@code data-uri} attribute is set and image can
+     * be embedded, target otherwise. Size limit of embedded images is set by {@code data-uri-maxsize}.
+     *
+     * @param target image target
+     * @return image source
+     */
+    protected String getImageSource(String target) {
+        if (imageResolver == null || !attributes.has("data-uri")) {
+            return target;
+        }
+        try {
+            String uri = imageResolver.getDataUri(target, attributes.optLong("data-uri-maxsize", DEFAULT_DATA_URI_MAXSIZE));
+            return uri == null ? target : uri;
+        } catch (IOException e) {
+            // Unreadable images are referenced, like images that do not exist
+            return target;
+        }
+    }
+
     protected void appendText(String string) {
+        guard.checkpoint();
         textBuilder.append(string.replace("\0", ""));
     }
 
+    protected void appendText(char[] buffer, int offset, int length) {
+        guard.checkpoint();
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            if (buffer[i] == '\0') {
+                textBuilder.append(buffer, offset, i - offset);
+                offset = i + 1;
+            }
+        }
+        textBuilder.append(buffer, offset, end - offset);
+    }
+
     protected void clearText() {
         textBuilder.setLength(0);
     }
@@ -141,6 +283,7 @@ public abstract class AsciidocBase {
         String text = getText();
         if (stripNewLines) text = skipRight(text, " \t\n\0");
         if (!text.isEmpty()) {
+            guard.countNode();
             currentElement.appendChild(new TextNode(text));
             clearText();
         }
@@ -150,8 +293,23 @@ public abstract class AsciidocBase {
         moveChildNodes(document.body(), currentElement);
     }
 
+    /**
+     * Parse raw HTML and append it to current element. With safelist set, nodes that are not allowed are
+     * dropped before they are attached.
+     *
+     * @param html HTML fragment
+     */
+    protected void appendHtml(String html) {
+        if (sanitizer == null) {
+            currentElement.append(html);
+        } else {
+            sanitizer.append(currentElement, html);
+        }
+    }
+
     protected Element openElement(String tag) {
         appendTextNode();
+        guard.countNode();
         Element newElement = new Element(Tag.valueOf(tag), "");
         currentElement.appendChild(newElement);
         currentElement = newElement;
@@ -161,7 +319,11 @@ public abstract class AsciidocBase {
 
     protected Element openElement(AsciidocRenderer tag) {
         appendTextNode();
-        Element newElement = new AsciidocElement(tag, properties, attributes);
+        guard.countNode();
+        AsciidocElement newElement = new AsciidocElement(tag, properties, attributes, anchors);
+        newElement.setParentBlock(currentElement instanceof AsciidocElement
+                ? (AsciidocElement) currentElement : getParent(currentElement));
+        newElement.setSanitizer(sanitizer);
         currentElement.appendChild(newElement);
         currentElement = newElement;
         propagateProperties(newElement);
@@ -277,7 +439,9 @@ public abstract class AsciidocBase {
 
     protected Element closeElement() {
         appendTextNode();
-        currentElement = currentElement.parent();
+        if (currentElement != root) {
+            currentElement = currentElement.parent();
+        }
         return currentElement;
     }
 
@@ -312,12 +476,13 @@ public abstract class AsciidocBase {
     }
 
     protected boolean isTerminal(Element x) {
-        boolean isTerminal = true;
         while (x != null) {
-            isTerminal = isTerminal && (x.nextElementSibling() == null);
+            if (nextElementSibling(x) != null) {
+                return false;
+            }
             x = x.parent();
         }
-        return isTerminal;
+        return true;
     }
 
     protected Element closeBlockElement() {
@@ -330,7 +495,7 @@ public abstract class AsciidocBase {
         if (isInside(AsciidocRenderer.SECTION)) {
             closeToElement(AsciidocRenderer.SECTION);
         } else {
-            currentElement = document.body();
+            currentElement = root;
         }
 
         return currentElement;
@@ -343,10 +508,9 @@ public abstract class AsciidocBase {
         return appendedElement;
     }
 
-    private static List<Element> getParents(Element element) {
+    private List<Element> getParents(Element element) {
         List<Element> parents = new ArrayList<>();
-        Element body = element.ownerDocument().body();
-        while (element != null && element != body) {
+        while (element != null && element != root) {
             parents.add(element);
             element = element.parent();
         }
@@ -355,7 +519,7 @@ public abstract class AsciidocBase {
 
     private List<Element> getParentsReversed(Element element) {
         List<Element> parents = new ArrayList<>();
-        while (element != null && element != element.ownerDocument().body()) {
+        while (element != null && element != root) {
             parents.add(0, element);
             element = element.parent();
         }
@@ -364,7 +528,7 @@ public abstract class AsciidocBase {
 
 
     protected void attachEscaped(String html) {
-        appendDocument(unescapeIntermediate(html, attributes));
+        appendDocument(unescapeIntermediate(html, attributes, anchors));
     }
 
 
@@ -374,7 +538,12 @@ public abstract class AsciidocBase {
                 .replace("&gt;", ">")
                 .replace("&amp;", "&");
 
-        return unescapeIntermediate(html, attributes);
+        Document result = unescapeIntermediate(html, attributes, anchors);
+        if (sanitizer != null) {
+            // Intermediate elements are checked once rendered
+            sanitizer.sanitize(result.body(), node -> node instanceof AsciidocElement);
+        }
+        return result;
     }
 
     /* The working horse */
@@ -382,38 +551,82 @@ public abstract class AsciidocBase {
         // Autoplacement of TOC
         Element toc = document.select(AsciidocRenderer.TOC.tag()).first();
         if (toc == null) {
-            toc = new AsciidocElement(AsciidocRenderer.TOC, new JSONObject(), attributes);
+            toc = new AsciidocElement(AsciidocRenderer.TOC, new JSONObject(), attributes, anchors);
         }
 
-        Elements allElements = document.getAllElements();
+        Element body = document.body();
+        processElements(body);
+        postprocessPreamble(body, !body.select("h2,h3,h4,h5,h6").isEmpty());
+
+        boolean emptyToc = !buildToc(toc, body.select(getTocSelector()));
+        if (toc.parent() == null && attributes.has("toc")) {
+            placeToc(body, toc);
+        } else {
+            // Add "title" class to toc title
+            toc.select("div#toctitle").addClass("title");
+        }
+        if (toc.tagName().equals(AsciidocRenderer.TOC.tag())) {
+            ((AsciidocElement) toc).process();
+        }
+        if (emptyToc && toc.parent() != null) {
+            toc.remove();
+        }
+
+        Element footnotes = createFootnotes();
+        if (footnotes != null) {
+            body.appendChild(footnotes);
+        }
+
+        removeDuplicateIds(body, new HashSet<>());
+        if (sanitizer != null) {
+            sanitizer.sanitize(body);
+        }
+    }
+
+    /**
+     * Render all intermediate elements of subtree
+     *
+     * @param root root of subtree
+     */
+    protected void processElements(Element root) {
+        Elements allElements = root.getAllElements();
         for (Element x : allElements) {
             if (x instanceof AsciidocElement) {
+                guard.checkpoint();
                 AsciidocElement xx = (AsciidocElement) x;
                 xx.process();
                 xx.attr("processed", true);
             }
         }
         // second pass for unescaped things added during first pass
-        allElements = document.getAllElements();
+        allElements = root.getAllElements();
         for (Element x : allElements) {
             if (x instanceof AsciidocElement) {
                 if (x.hasAttr("processed")) {
                     x.removeAttr("processed");
                 } else {
+                    guard.checkpoint();
                     AsciidocElement xx = (AsciidocElement) x;
                     xx.process();
                 }
             }
         }
-        document.select("[properties]").removeAttr("properties");
-        document.select("[tagName]").removeAttr("tagName");
-        document.select("mark[class], mark[id]").tagName("span");
-
-        // Preamble postprocessing
-        for (Element preamble : document.select("div#preamble")) {
+        root.select("[properties]").removeAttr("properties");
+        root.select("[tagName]").removeAttr("tagName");
+        root.select("mark[class], mark[id]").tagName("span");
+    }
+
+    /**
+     * Keep preamble only if document has both title and sections
+     *
+     * @param root        rendered document body
+     * @param hasSections whether document has section headers
+     */
+    private static void postprocessPreamble(Element root, boolean hasSections) {
+        for (Element preamble : root.select("div#preamble")) {
             if (preamble.text().isEmpty()) {
                 preamble.remove();
-            } else if ((document.select("h2,h3,h4,h5,h6").isEmpty() || !preamble.hasAttr("is-document-title"))) {
+            } else if (!hasSections || !preamble.hasAttr("is-document-title")) {
                 Element section = preamble.select("div.sectionbody").first();
                 if (section != null) {
                     List<Node> nodes = new ArrayList<>(section.childNodes());
@@ -425,18 +638,27 @@ public abstract class AsciidocBase {
             }
             preamble.removeAttr("is-document-title");
         }
+    }
 
-        // TOC postprocessing
-        String selector = IntStream.rangeClosed(2, attributes.optInt("toclevels", 3))
+    private String getTocSelector() {
+        return IntStream.rangeClosed(2, attributes.optInt("toclevels", 3))
                 .mapToObj(i -> String.format("%s%d[id]", "h", i))
                 .collect(Collectors.joining(","));
+    }
 
+    /**
+     * Fill TOC with links to section headers
+     *
+     * @param toc     TOC element
+     * @param headers rendered section headers in document order
+     * @return {@code true} if TOC is not empty
+     */
+    private boolean buildToc(Element toc, List<Element> headers) {
         int currentLevel = 1;
-        boolean emptyToc = true;
         Element currentList = toc;
-        for (Element header : document.select(selector)) {
+        for (Element header : headers) {
+            guard.checkpoint();
             int level = Integer.parseInt(header.tagName().substring(1));
-            emptyToc = false;
             if (currentLevel < level) {
                 Element newList = new Element("ul").addClass(String.format("sectlevel%d", level - 1));
                 currentList.appendChild(newList);
@@ -456,125 +678,171 @@ public abstract class AsciidocBase {
             currentList.appendChild(li);
             currentList = li;
         }
+        return !headers.isEmpty();
+    }
 
-        if (toc.parent() == null && attributes.has("toc")) {
-            Element firstHeader = document.select("h1").first();
-            Element preamble = document.select("div#preamble").first();
-            if (preamble != null && attributes.getString("toc").equals("preamble")) {
-                preamble.appendChild(toc);
-            } else if (firstHeader != null) {
-                firstHeader.after(toc);
-            } else {
-                document.body().prependChild(toc);
-            }
+    private void placeToc(Element root, Element toc) {
+        Element firstHeader = root.select("h1").first();
+        Element preamble = root.select("div#preamble").first();
+        if (preamble != null && attributes.getString("toc").equals("preamble")) {
+            preamble.appendChild(toc);
+        } else if (firstHeader != null) {
+            firstHeader.after(toc);
         } else {
-            // Add "title" class to toc title
-            toc.select("div#toctitle").addClass("title");
+            root.prependChild(toc);
         }
-        if (toc.tagName().equals(AsciidocRenderer.TOC.tag())) {
-            ((AsciidocElement) toc).process();
+    }
+
+    private Element createFootnotes() {
+        int footnoteCount = attributes.optInt("footnote:counter", 0);
+        if (footnoteCount == 0) {
+            return null;
         }
-        if (emptyToc && toc.parent() != null) {
-            toc.remove();
+        Element footnotes = new Element("div").attr("id", "footnotes");
+        footnotes.appendChild(new Element("hr"));
+        for (int i = 1; i < footnoteCount; i++) {
+            guard.checkpoint();
+            Element div = new Element("div").addClass("footnote").attr("id", String.format("_footnotedef_%d", i));
+            Element a = new Element("a").attr("href", String.format("#_footnoteref_%d", i)).text(Integer.toString(i));
+            div.appendChild(a);
+            div.appendText(". ");
+            div.append(attributes.getString(String.format("footnote:%d", i)));
+            footnotes.appendChild(div);
         }
+        return footnotes;
+    }
 
-        // Add footnotes
-        int footnoteCount = attributes.optInt("footnote:counter", 0);
-        if (footnoteCount > 0) {
-            Element footnotes = new Element("div").attr("id", "footnotes");
-            footnotes.appendChild(new Element("hr"));
-            for (int i = 1; i < footnoteCount; i++) {
-                Element div = new Element("div").addClass("footnote").attr("id", String.format("_footnotedef_%d", i));
-                Element a = new Element("a").attr("href", String.format("#_footnoteref_%d", i)).text(Integer.toString(i));
-                div.appendChild(a);
-                div.appendText(". ");
-                div.append(attributes.getString(String.format("footnote:%d", i)));
-                footnotes.appendChild(div);
+    private static void removeDuplicateIds(Element root, Set<String> ids) {
+        for (Element element : root.select("[id]")) {
+            if (!ids.add(element.attr("id"))) {
+                element.removeAttr("id");
             }
-            document.body().appendChild(footnotes);
         }
+    }
 
-        // Clean duplicate ids
-        Set<String> ids = document.select("[id]").stream().map(e -> e.attr("id")).collect(Collectors.toSet());
+    /**
+     * Start section-level flushing: completed top level sections are rendered and written to spool by
+     * {@link #flushSections(boolean)} as soon as parser moves past them, and detached from intermediate
+     * document. Only data needed for TOC, footnotes and references is kept until
+     * {@link #finishSections(Writer)}.
+     *
+     * @param spool spool for rendered sections
+     */
+    protected void startSections(SectionSpool spool) {
+        this.spool = spool;
+        anchors.setPartial(true);
+    }
+
+    /**
+     * Render top level elements parsed so far and write them to spool
+     *
+     * @param hasSections whether document is known to have section headers
+     * @throws IOException if spool cannot be written
+     */
+    protected void flushSections(boolean hasSections) throws IOException {
+        Document chunk = Document.createShell("");
+        chunk.outputSettings().prettyPrint(false);
+        Element body = chunk.body();
+        moveChildNodes(document.body(), body);
+        if (lastBlockParent != null && lastBlockParent.ownerDocument() != document) {
+            lastBlockParent = null;
+        }
 
-        for (String id : ids) {
-            Elements sameId = document.getElementsByAttributeValue("id", id);
-            if (sameId.size() > 1) {
-                for (int i = 1; i < sameId.size(); i++) {
-                    sameId.get(i).removeAttr("id");
-                }
-            }
+        Element toc = streamedToc == null ? body.select(AsciidocRenderer.TOC.tag()).first() : null;
+        processElements(body);
+        postprocessPreamble(body, hasSections || !body.select("h2,h3,h4,h5,h6").isEmpty());
+        if (tocHeaders == null) {
+            Document headers = Document.createShell("");
+            headers.outputSettings().prettyPrint(false);
+            tocHeaders = headers.body();
+        }
+        for (Element header : body.select(getTocSelector())) {
+            tocHeaders.appendChild(header.clone());
         }
-    }
 
-    private static boolean isDelimited(String line, char marker) {
-        return line.equals(StringUtils.repeat(marker, line.length()));
-    }
-
-    public static String processLegacy(String source) {
-        List<String> lines = new ArrayList<>(Arrays.asList(source.split("\r\n|\n")));
-        int i = 0;
-        String currentLine = "";
-        String nextLine = "";
-        char delimitation = 0;
-        while (i < lines.size() - 1) {
-            currentLine = trimRight(lines.get(i));
-            nextLine = trimRight(lines.get(i + 1));
-            // Check if it's a delimited block and skip whatever we have there
-            if (currentLine.length() > 0) {
-                if (delimitation == 0
-                        || (currentLine.length() >= 4 && isDelimited(currentLine, delimitation))
-                        || (currentLine.length() >= 4 && currentLine.startsWith("|") && isDelimited(stripHead(currentLine, 1), delimitation))) {
-                    if (delimitation == '/') {
-                        lines.remove(i);
-                        delimitation = 0;
-                        continue;
-                    }
-                    char newDelimitation = currentLine.startsWith("|") && currentLine.length() > 1 ? currentLine.charAt(1) : currentLine.charAt(0);
-                    if (delimitation == 0 && ((currentLine.length() >= 4 && isDelimited(currentLine, newDelimitation) && "=_-./".indexOf(newDelimitation) >= 0)
-                            || (currentLine.startsWith("```"))
-                            || (currentLine.length() >= 4 && currentLine.startsWith("|") && isDelimited(stripHead(currentLine, 1), newDelimitation) && "=".indexOf(newDelimitation) >= 0))) {
-                        delimitation = newDelimitation;
-                    } else {
-                        delimitation = 0;
-                        if (nextLine.length() > 0
-                                && StringUtils.isAlphanumeric(currentLine.substring(0, 1))) {
-                            char marker = nextLine.charAt(0);
-                            if ("=-~^+".indexOf(marker) >= 0
-                                    && nextLine.equals(StringUtils.repeat(marker, nextLine.length()))
-                                    && Math.abs(nextLine.length() - currentLine.length()) <= 1) {
-                                int level = 0;
-                                switch (marker) {
-                                    case '=':
-                                        level = 1;
-                                        break;
-                                    case '-':
-                                        level = 2;
-                                        break;
-                                    case '~':
-                                        level = 3;
-                                        break;
-                                    case '^':
-                                        level = 4;
-                                        break;
-                                    case '+':
-                                        level = 5;
-                                        break;
-                                }
-                                lines.remove(i + 1);
-                                lines.remove(i);
-                                lines.add(i, StringUtils.repeat('=', level) + " " + currentLine);
-                            }
-                        }
-                    }
-                }
-            }
-            if (delimitation == '/') {
-                lines.remove(i);
+        // TOC is rendered at the end, when all headers are known
+        if (streamedToc == null && toc == null && attributes.has("toc")
+                && !attributes.getString("toc").equals("macro")) {
+            toc = new AsciidocElement(AsciidocRenderer.TOC, new JSONObject(), attributes, anchors);
+            placeToc(body, toc);
+        }
+        if (streamedToc == null && toc != null) {
+            Node marker = spool.createMarker();
+            toc.replaceWith(marker);
+            streamedToc = toc;
+            tocMarker = spool.getMarker(marker);
+        }
+
+        // References to anchors of sections not parsed yet are rendered again at the end
+        for (Element link : body.select("a[deferred]")) {
+            link.removeAttr("deferred");
+            Node marker = spool.createMarker();
+            link.replaceWith(marker);
+            deferredLinks.put(spool.getMarker(marker), link);
+        }
+
+        removeDuplicateIds(body, flushedIds);
+        if (sanitizer != null) {
+            sanitizer.sanitize(body, spool::isMarker);
+        }
+        spool.write(body.html());
+    }
+
+    /**
+     * Complete section-level flushing: render TOC, deferred references and footnotes, and copy spooled
+     * sections to output
+     *
+     * @param out output
+     * @throws IOException if spool cannot be read or output cannot be written
+     */
+    protected void finishSections(Writer out) throws IOException {
+        anchors.setPartial(false);
+        Document scratch = Document.createShell("");
+        scratch.outputSettings().prettyPrint(false);
+        Element body = scratch.body();
+
+        if (streamedToc != null) {
+            boolean emptyToc = !buildToc(streamedToc, tocHeaders.children());
+            if (streamedToc.tagName().equals(AsciidocRenderer.TOC.tag())) {
+                ((AsciidocElement) streamedToc).process();
             } else {
-                i++;
+                streamedToc.select("div#toctitle").addClass("title");
             }
+            if (!emptyToc) {
+                body.appendChild(streamedToc);
+                spool.patch(tocMarker, getOuterHtml(streamedToc));
+            }
+        }
+
+        for (Element link : deferredLinks.values()) {
+            link.empty();
+            link.tagName(AsciidocRenderer.LINK.tag());
+            body.appendChild(link);
+        }
+        processElements(body);
+        for (Map.Entry<Integer, Element> link : deferredLinks.entrySet()) {
+            spool.patch(link.getKey(), getOuterHtml(link.getValue()));
+        }
+
+        Element footnotes = createFootnotes();
+        if (footnotes != null) {
+            body.appendChild(footnotes);
+            removeDuplicateIds(footnotes, flushedIds);
+        }
+
+        spool.transferTo(out);
+        if (footnotes != null) {
+            out.write(getOuterHtml(footnotes));
         }
-        return String.join("\n", lines);
+    }
+
+    /**
+     * Get HTML of rendered element, with safelist enforced if set
+     *
+     * @param element rendered element
+     * @return HTML
+     */
+    private String getOuterHtml(Element element) {
+        return sanitizer == null ? element.outerHtml() : sanitizer.getOuterHtml(element);
     }
 }
@@ -9,13 +9,17 @@ import org.jsoup.nodes.Element;
 public class AsciidocElement extends Element {
     private final JSONObject properties;
     private final JSONObject variables;
+    private final AnchorIndex anchors;
     private final AsciidocRenderer renderer;
+    private AsciidocElement parentBlock;
+    private HtmlSanitizer sanitizer;
 
-    public AsciidocElement(AsciidocRenderer renderer, JSONObject properties, JSONObject variables) {
+    public AsciidocElement(AsciidocRenderer renderer, JSONObject properties, JSONObject variables, AnchorIndex anchors) {
         super(renderer.tag());
         this.renderer = renderer;
         this.properties = properties;
         this.variables = variables;
+        this.anchors = anchors;
     }
 
     public JSONObject getProperties() {
@@ -26,6 +30,41 @@ public class AsciidocElement extends Element {
         return variables;
     }
 
+    public AnchorIndex getAnchors() {
+        return anchors;
+    }
+
+    public AsciidocRenderer getRenderer() {
+        return renderer;
+    }
+
+    /**
+     * Get nearest intermediate element this element was opened in by parser. Renderers may move elements
+     * around, but never out of their parent block.
+     *
+     * @return parent block or {@code null} if element was created outside of parser
+     */
+    public AsciidocElement getParentBlock() {
+        return parentBlock;
+    }
+
+    public void setParentBlock(AsciidocElement parentBlock) {
+        this.parentBlock = parentBlock;
+    }
+
+    /**
+     * Get sanitizer for raw HTML attached by renderer.
+     *
+     * @return sanitizer or {@code null} if any HTML is allowed
+     */
+    public HtmlSanitizer getSanitizer() {
+        return sanitizer;
+    }
+
+    public void setSanitizer(HtmlSanitizer sanitizer) {
+        this.sanitizer = sanitizer;
+    }
+
     public void process() {
         renderer.process(this);
     }
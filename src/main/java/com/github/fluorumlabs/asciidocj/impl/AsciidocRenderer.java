@@ -49,7 +49,11 @@ public enum AsciidocRenderer {
         x.removeAttr("icon").removeAttr("raw");
     }),
     PASSTHROUGH_BLOCK(x -> {
-        x.after(x.text());
+        if (x.getSanitizer() == null) {
+            x.after(x.text());
+        } else {
+            x.getSanitizer().after(x, x.text());
+        }
         x.remove();
     }),
     QUOTE_BLOCK(x -> {
@@ -72,10 +76,10 @@ public enum AsciidocRenderer {
         if (!x.getProperties().optString("quote:attribution").isEmpty()) {
             Element div = new Element("div").addClass("attribution");
             div.appendText("\u2014 ");
-            html(div, x.getProperties().optString("quote:attribution"), x.getVariables());
+            html(div, x.getProperties().optString("quote:attribution"), x);
             if (!x.getProperties().optString("quote:cite").isEmpty()) {
                 div.appendChild(new Element("br"));
-                div.appendChild(html(new Element("cite"), x.getProperties().optString("quote:cite"), x.getVariables()));
+                div.appendChild(html(new Element("cite"), x.getProperties().optString("quote:cite"), x));
             }
             x.appendChild(div);
         }
@@ -110,10 +114,10 @@ public enum AsciidocRenderer {
         tbody.appendChild(tr);
         tr.appendChild(td1).appendChild(td2);
         if (!x.getVariables().optString("icons").equals("font")) {
-            Element div1 = html(new Element("div").addClass("title"), x.attr("text"), x.getVariables());
+            Element div1 = html(new Element("div").addClass("title"), x.attr("text"), x);
             td1.appendChild(div1);
         } else {
-            AsciidocElement icon = new AsciidocElement(AsciidocRenderer.ICON, new JSONObject(), x.getVariables());
+            AsciidocElement icon = new AsciidocElement(AsciidocRenderer.ICON, new JSONObject(), x.getVariables(), x.getAnchors());
             icon.attr("icon", "icon-" + subType).attr("raw", true);
             icon.attr("title", x.attr("text"));
             td1.appendChild(icon);
@@ -176,10 +180,9 @@ public enum AsciidocRenderer {
         Element last = x.children().last();
         Node beforeLast = last == null ? null : last.previousSibling();
         boolean rewriteId = beforeLast != null && beforeLast instanceof TextNode && ((TextNode) beforeLast).text().endsWith(" ");
-        //TODO Fix forward reference to AsciidocRenderer.LINK.tag()
-        if (last != null && last.tagName().equals("LINK__") && last.hasAttr("id") && rewriteId) {
+        if (last != null && last.tagName().equals(Tags.LINK) && last.hasAttr("id") && rewriteId) {
             if (x.hasAttr("id")) {
-                x.getVariables().put("anchor:" + last.attr("id"), x.getVariables().optString("anchor:" + x.attr("id")));
+                x.getAnchors().put(last.attr("id"), x.getAnchors().getReftext(x.attr("id")));
             }
             x.attr("id", last.attr("id"));
             last.remove();
@@ -307,7 +310,7 @@ public enum AsciidocRenderer {
             Element tbody = new Element("tbody");
             Element trow = null;
             for (Element child : x.children()) {
-                if (child.tagName().equals("DT__")) {
+                if (child.tagName().equals(Tags.DT)) {
                     if (trow != null) {
                         tbody.appendChild(trow);
                     }
@@ -327,7 +330,7 @@ public enum AsciidocRenderer {
         } else {
             x.tagName("div").addClass("dlist").removeAttr("level");
             if (x.hasClass("glossary")) {
-                x.select("DT__").addClass("glossary");
+                x.select(Tags.DT).addClass("glossary");
             }
             Element dl = new Element("dl");
             moveChildNodes(x, dl);
@@ -344,8 +347,7 @@ public enum AsciidocRenderer {
             p.appendChild(em);
 
             li.appendChild(p);
-            x.before(li);
-            x.remove();
+            x.replaceWith(li);
         } else if (x.hasClass("glossary")) {
             x.tagName("dt").removeClass("glossary").removeAttr("level");
         } else if (x.hasClass("horizontal")) {
@@ -359,7 +361,7 @@ public enum AsciidocRenderer {
         x.removeAttr("level");
         if (getArgument(getParent(x), 0).equals("qanda")) {
             // bring answer inside <DT__>
-            Element dt = x.previousElementSibling();
+            Element dt = previousElementSibling(x);
             moveChildNodes(x, dt);
             x.remove();
         } else if (x.hasClass("horizontal")) {
@@ -391,56 +393,54 @@ public enum AsciidocRenderer {
     LINK(x -> {
         x.tagName("a");
         // Extract inner links - they make no sense
-        for (Element sublink : x.select("LINK__")) {
+        for (Element sublink : x.select(Tags.LINK)) {
             moveChildNodesToParent(sublink);
             sublink.remove();
         }
         if (x.getProperties().has("to-id")) {
             String id = x.getProperties().getString("to-id");
+            AnchorIndex anchors = x.getAnchors();
+            String anchorId;
             if (id.contains("#")) {
                 if (id.endsWith("#")) id = stripTail(id, 1);
                 x.attr("href", id);
+                // Reference to another document of linked document set
+                anchors = anchors.getDocument(x.getProperties().optString("to-document"));
+                anchorId = extractAfter(id, "#");
                 if (x.getProperties().has("to-id-contents")) {
-                    html(x, x.getProperties().getString("to-id-contents"), x.getVariables());
-                } else {
+                    html(x, x.getProperties().getString("to-id-contents"), x);
+                } else if (anchors == null || !appendReftext(x, anchors, anchorId)) {
                     x.text("[" + id + "]");
                 }
             } else {
                 // Transform free text to id
-                if (!x.getVariables().has("anchor:" + id)) {
-                    // Unknown id
-                    for (String key : x.getVariables().keySet()) {
-                        if (key.startsWith("anchor:") && id.equals(x.getVariables().optString(key))) {
-                            id = key.substring(7);
-                            break;
-                        }
-                    }
+                if (!anchors.contains(id) && anchors.findId(id) != null) {
+                    id = anchors.findId(id);
                 }
+                anchorId = id;
                 x.attr("href", "#" + id);
                 if (x.getProperties().has("to-id-contents")) {
-                    html(x, x.getProperties().getString("to-id-contents"), x.getVariables());
-                } else {
-                    String idText = x.getVariables().optString("anchor:" + id, "");
-
-                    if (idText.isEmpty()) {
-                        Element target = x.ownerDocument().getElementById(id);
-                        if (target != null) {
-                            idText = target.text();
-                        }
-                    }
+                    html(x, x.getProperties().getString("to-id-contents"), x);
+                } else if (!appendReftext(x, anchors, id)) {
+                    Element target = anchors.getElementById(x.ownerDocument(), id);
+                    String idText = target == null ? "" : target.text();
 
                     if (idText.isEmpty()) {
                         idText = "[" + id + "]";
+                        if (anchors.isPartial()) {
+                            x.attr("deferred", true);
+                        }
                     }
 
-                    html(x, idText, x.getVariables());
+                    html(x, idText, x);
                 }
             }
-            if (x.getVariables().optString("xrefstyle").equals("full") && x.getVariables().has("sectnum:" + id)) {
-                x.prependText(x.getVariables().getString("sectnum:" + id) + ", \u201c");
+            String sectionLabel = anchors == null ? null : anchors.getSectionLabel(anchorId);
+            if (x.getVariables().optString("xrefstyle").equals("full") && sectionLabel != null) {
+                x.prependText(sectionLabel + ", \u201c");
                 x.appendText("\u201d");
-            } else if (x.getVariables().optString("xrefstyle").equals("short") && x.getVariables().has("sectnum:" + id)) {
-                x.text(x.getVariables().getString("sectnum:" + id));
+            } else if (x.getVariables().optString("xrefstyle").equals("short") && sectionLabel != null) {
+                x.text(sectionLabel);
             }
         } else {
             if (x.getProperties().has("window")) {
@@ -546,7 +546,8 @@ public enum AsciidocRenderer {
     }),
     IMAGE(x -> {
         String src = x.attr("src");
-        if (x.getProperties().has("options") && x.getProperties().getJSONObject("options").has("interactive") && src.endsWith(".svg")) {
+        if (x.getProperties().has("options") && x.getProperties().getJSONObject("options").has("interactive")
+                && (src.endsWith(".svg") || src.startsWith("data:image/svg+xml;"))) {
             x.tagName("object").removeAttr("src").attr("data", src).attr("type", "image/svg+xml");
             if (x.hasAttr("alt")) {
                 Element span = new Element("span").addClass("alt");
@@ -605,14 +606,20 @@ public enum AsciidocRenderer {
             }
 
             Element code = new Element("code");
-            if (!language.isEmpty()) {
-                code.addClass("language-" + language)
-                        .attr("data-lang", language);
-            }
             div.appendChild(pre);
             pre.appendChild(code);
 
-            moveChildNodes(x, code);
+            if (x.getVariables().optString("source-highlighter").equals("asciidocj")
+                    && SourceHighlighter.shared().highlight(x, code, language)) {
+                pre.addClass("asciidocj");
+                code.attr("data-lang", language);
+            } else {
+                if (!language.isEmpty()) {
+                    code.addClass("language-" + language)
+                            .attr("data-lang", language);
+                }
+                moveChildNodes(x, code);
+            }
             x.appendChild(div);
             x.removeClass("source");
         } else {
@@ -710,7 +717,12 @@ public enum AsciidocRenderer {
             x.tagName("span");
         }
     }),
-    TABLE_CELL(Node::remove), // Cell contents is handled by TABLE_BLOCK
+    TABLE_CELL(x -> {
+        // Cell contents is handled by TABLE_BLOCK, which also removes its own cells
+        if (x.parent() != null) {
+            x.remove();
+        }
+    }),
     TABLE_BLOCK(x -> {
         DecimalFormat widthFormatter = new DecimalFormat("#.####");
 
@@ -780,7 +792,8 @@ public enum AsciidocRenderer {
 
         List<boolean[]> occupiedCells = new ArrayList<>();
 
-        for (Element cell : x.select(TABLE_CELL.tag())) {
+        Elements cells = x.select(TABLE_CELL.tag());
+        for (Element cell : cells) {
             // overlay local styles
             JSONObject columnFormat = columns.getJSONObject(columnCounter);
             JSONObject cellFormat = ((AsciidocElement) cell).getProperties().getJSONObject("format");
@@ -916,6 +929,13 @@ public enum AsciidocRenderer {
             }
         }
 
+        // Remove cells starting from the last one: jsoup reindexes all following siblings on every removal
+        for (int i = cells.size() - 1; i >= 0; i--) {
+            if (cells.get(i).parent() == x) {
+                cells.get(i).remove();
+            }
+        }
+
         x.appendChild(colGroup);
         if (thead != null) x.appendChild(thead);
         x.appendChild(tbody);
@@ -933,13 +953,39 @@ public enum AsciidocRenderer {
     private static final Slugify slugify = new Slugify().withCustomReplacement("ж", "zh");
 
     private final Consumer<AsciidocElement> processor;
+    private final String tag;
 
     AsciidocRenderer(Consumer<AsciidocElement> processor) {
         this.processor = processor;
+        this.tag = name().concat("__");
     }
 
     public String tag() {
-        return name().concat("__");
+        return tag;
+    }
+
+    /**
+     * Append reference text of anchor to link, copying text parsed by anchor index instead of parsing it
+     * for every reference
+     *
+     * @return {@code false} if anchor has no reference text
+     */
+    private static boolean appendReftext(AsciidocElement link, AnchorIndex anchors, String id) {
+        Element reftext = anchors.getParsedReftext(id);
+        if (reftext == null) {
+            return false;
+        }
+        inflateIntermediate(reftext, link.getVariables(), link.getAnchors());
+        moveChildNodes(reftext, link);
+        return true;
+    }
+
+    /**
+     * Tags of intermediate elements, for use in processors, which cannot refer to constants directly
+     */
+    private static final class Tags {
+        static final String LINK = AsciidocRenderer.LINK.tag();
+        static final String DT = AsciidocRenderer.DT.tag();
     }
 
     public void process(AsciidocElement x) {
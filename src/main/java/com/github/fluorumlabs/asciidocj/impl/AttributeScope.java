@@ -0,0 +1,96 @@
+package com.github.fluorumlabs.asciidocj.impl;
+
+import org.json.JSONObject;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Copy-on-write overlay of attributes. Lookups fall through to parent scope, while all modifications,
+ * including removal of inherited attributes, stay in the overlay. Parent is never modified, so a baseline
+ * like engine or site-wide attributes can be shared by documents converted in parallel, as long as it
+ * is not modified itself.
+ * <p>
+ * Scope is a {@link JSONObject}, so it can be used everywhere attributes are expected. Creating a scope
+ * costs the same regardless of number of inherited attributes; listing keys, like {@link #keySet()} or
+ * {@link #toMap()}, merges all layers.
+ */
+public class AttributeScope extends JSONObject {
+    private final JSONObject parent;
+    private final Set<String> removed = new HashSet<>();
+
+    public AttributeScope(JSONObject parent) {
+        this.parent = parent;
+    }
+
+    @Override
+    public Object opt(String key) {
+        if (super.has(key)) {
+            return super.opt(key);
+        }
+        return key == null || removed.contains(key) ? null : parent.opt(key);
+    }
+
+    @Override
+    public boolean has(String key) {
+        return super.has(key) || (!removed.contains(key) && parent.has(key));
+    }
+
+    @Override
+    public JSONObject put(String key, Object value) {
+        if (value != null) {
+            removed.remove(key);
+        }
+        return super.put(key, value);
+    }
+
+    @Override
+    public Object remove(String key) {
+        Object previous = opt(key);
+        super.remove(key);
+        if (parent.has(key)) {
+            removed.add(key);
+        }
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        removed.addAll(parent.keySet());
+    }
+
+    @Override
+    public Set<String> keySet() {
+        Set<String> keys = new LinkedHashSet<>();
+        for (String key : parent.keySet()) {
+            if (!removed.contains(key)) {
+                keys.add(key);
+            }
+        }
+        keys.addAll(super.keySet());
+        return keys;
+    }
+
+    @Override
+    protected Set<Map.Entry<String, Object>> entrySet() {
+        Map<String, Object> entries = new LinkedHashMap<>();
+        for (String key : keySet()) {
+            entries.put(key, opt(key));
+        }
+        return entries.entrySet();
+    }
+
+    @Override
+    public int length() {
+        return keySet().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return keySet().isEmpty();
+    }
+}
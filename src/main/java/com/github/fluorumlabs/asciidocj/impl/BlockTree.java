@@ -0,0 +1,307 @@
+package com.github.fluorumlabs.asciidocj.impl;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rendered document body split into blocks, for computing patches between renders of the same document.
+ * <p>
+ * Section wrappers ({@code sectN}, {@code sectionbody} and {@code preamble}) are containers, and their child
+ * nodes are blocks of their own; any other node is a leaf block kept as its HTML. Every block has a key, which
+ * is unique among its siblings: {@code #id} for elements with id (sections use id of their heading), or kind
+ * of block followed by ordinal of that kind otherwise, like {@code div.paragraph@3}. Every block has a 64-bit
+ * hash of its HTML, so that unchanged blocks are skipped without comparing their content.
+ * <p>
+ * Diff skips blocks with the same hash at the start and at the end of every container, matches remaining
+ * blocks by key, or by position if their keys are gone, and descends only into changed containers, so it
+ * takes time proportional to the number of changed blocks rather than to the size of the document.
+ */
+public class BlockTree {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final int[] ROOT_PATH = new int[0];
+
+    private BlockTree() {
+    }
+
+    /**
+     * Receives operations that turn previous render into the next one. Operations refer to the state of
+     * previous render with all preceding operations applied.
+     */
+    public interface Listener {
+        /**
+         * Insert block before child node at index, or append it if index is the number of child nodes
+         *
+         * @param path  child node indexes of container, starting from body
+         * @param index child node index in container
+         * @param key   key of inserted block
+         * @param html  HTML of inserted block
+         */
+        void insert(int[] path, int index, String key, String html);
+
+        /**
+         * Replace child node at index with block
+         *
+         * @param path  child node indexes of container, starting from body
+         * @param index child node index in container
+         * @param key   key of new block
+         * @param html  HTML of new block
+         */
+        void replace(int[] path, int index, String key, String html);
+
+        /**
+         * Remove child node at index
+         *
+         * @param path  child node indexes of container, starting from body
+         * @param index child node index in container
+         * @param key   key of removed block
+         */
+        void remove(int[] path, int index, String key);
+    }
+
+    /**
+     * Block of rendered document. Instances are immutable.
+     */
+    public static class Block {
+        private final String key;
+        private final long hash;
+        // Leaf blocks
+        private final String html;
+        // Containers
+        private final String open;
+        private final String close;
+        private final Block[] children;
+
+        private Block(String key, String html) {
+            this.key = key;
+            this.hash = hash(FNV_OFFSET, html);
+            this.html = html;
+            this.open = null;
+            this.close = null;
+            this.children = null;
+        }
+
+        private Block(String key, String open, String close, Block[] children) {
+            long hash = hash(FNV_OFFSET, open);
+            for (Block child : children) {
+                hash = (hash ^ child.hash) * FNV_PRIME;
+            }
+            this.key = key;
+            this.hash = hash(hash, close);
+            this.html = null;
+            this.open = open;
+            this.close = close;
+            this.children = children;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Get HTML of block. HTML of containers is assembled from their blocks on every call.
+         *
+         * @return HTML
+         */
+        public String getHtml() {
+            if (children == null) {
+                return html;
+            }
+            StringBuilder result = new StringBuilder();
+            appendHtml(result);
+            return result.toString();
+        }
+
+        /**
+         * Get HTML of child blocks, which for root block is the same as {@code body().html()}
+         *
+         * @return HTML
+         */
+        public String getInnerHtml() {
+            StringBuilder result = new StringBuilder();
+            for (Block child : children) {
+                child.appendHtml(result);
+            }
+            return result.toString();
+        }
+
+        private void appendHtml(StringBuilder result) {
+            if (children == null) {
+                result.append(html);
+            } else {
+                result.append(open);
+                for (Block child : children) {
+                    child.appendHtml(result);
+                }
+                result.append(close);
+            }
+        }
+    }
+
+    /**
+     * Split rendered document body into blocks
+     *
+     * @param body body element of rendered document
+     * @return root block, which is a container without tags of its own
+     */
+    public static Block build(Element body) {
+        return new Block("", "", "", buildChildren(body));
+    }
+
+    /**
+     * Compute operations that turn previous render into the next one
+     *
+     * @param previous root block of previous render
+     * @param next     root block of next render
+     * @param listener receiver of operations
+     */
+    public static void diff(Block previous, Block next, Listener listener) {
+        if (previous.hash != next.hash) {
+            diffChildren(previous.children, next.children, ROOT_PATH, listener);
+        }
+    }
+
+    private static Block[] buildChildren(Element container) {
+        Block[] blocks = new Block[container.childNodeSize()];
+        Set<String> keys = new HashSet<>();
+        Map<String, Integer> ordinals = new HashMap<>();
+        for (int i = 0; i < blocks.length; i++) {
+            Node node = container.childNode(i);
+            String key = getIdKey(node);
+            if (key == null || !keys.add(key)) {
+                String kind = getKind(node);
+                int ordinal = ordinals.merge(kind, 1, Integer::sum);
+                key = kind + "@" + ordinal;
+                keys.add(key);
+            }
+            if (isContainer(node)) {
+                Element element = (Element) node;
+                String open = "<" + element.tagName() + element.attributes().html() + ">";
+                blocks[i] = new Block(key, open, "</" + element.tagName() + ">", buildChildren(element));
+            } else {
+                blocks[i] = new Block(key, node.outerHtml());
+            }
+        }
+        return blocks;
+    }
+
+    private static void diffChildren(Block[] previous, Block[] next, int[] path, Listener listener) {
+        int start = 0;
+        int previousEnd = previous.length;
+        int nextEnd = next.length;
+        while (start < previousEnd && start < nextEnd && previous[start].hash == next[start].hash) {
+            start++;
+        }
+        while (previousEnd > start && nextEnd > start && previous[previousEnd - 1].hash == next[nextEnd - 1].hash) {
+            previousEnd--;
+            nextEnd--;
+        }
+
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = start; i < previousEnd; i++) {
+            positions.put(previous[i].key, i);
+        }
+        Set<String> nextKeys = new HashSet<>();
+        for (int i = start; i < nextEnd; i++) {
+            nextKeys.add(next[i].key);
+        }
+        // Position of next unmatched block of previous render, and index of next block in patched container
+        int cursor = start;
+        int index = start;
+        for (int i = start; i < nextEnd; i++) {
+            Block block = next[i];
+            Integer position = positions.get(block.key);
+            if (position != null && position >= cursor) {
+                for (; cursor < position; cursor++) {
+                    listener.remove(path, index, previous[cursor].key);
+                }
+                update(previous[cursor++], block, path, index, listener);
+            } else if (cursor < previousEnd && position == null && !nextKeys.contains(previous[cursor].key)) {
+                // Block with a new key in place of block that is gone, like section with renamed heading
+                update(previous[cursor++], block, path, index, listener);
+            } else {
+                listener.insert(path, index, block.key, block.getHtml());
+            }
+            index++;
+        }
+        for (; cursor < previousEnd; cursor++) {
+            listener.remove(path, index, previous[cursor].key);
+        }
+    }
+
+    private static void update(Block previous, Block next, int[] path, int index, Listener listener) {
+        if (previous.hash == next.hash) {
+            return;
+        }
+        if (previous.children != null && next.children != null && previous.open.equals(next.open)) {
+            int[] childPath = Arrays.copyOf(path, path.length + 1);
+            childPath[path.length] = index;
+            diffChildren(previous.children, next.children, childPath, listener);
+        } else {
+            listener.replace(path, index, next.key, next.getHtml());
+        }
+    }
+
+    private static boolean isContainer(Node node) {
+        if (!(node instanceof Element) || !((Element) node).tagName().equals("div")) {
+            return false;
+        }
+        Element element = (Element) node;
+        if (element.id().equals("preamble") || element.hasClass("sectionbody")) {
+            return true;
+        }
+        for (String className : element.classNames()) {
+            if (className.length() == 5 && className.startsWith("sect") && Character.isDigit(className.charAt(4))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Key of element with id, or of section with id on its heading
+     */
+    private static String getIdKey(Node node) {
+        if (!(node instanceof Element)) {
+            return null;
+        }
+        Element element = (Element) node;
+        if (element.hasAttr("id")) {
+            return "#" + element.id();
+        }
+        if (!isContainer(element)) {
+            return null;
+        }
+        Element heading = element.children().first();
+        return heading != null && heading.hasAttr("id") && heading.tagName().matches("h[1-6]") ? "#" + heading.id() : null;
+    }
+
+    /**
+     * Kind of block for positional keys: tag and first class of elements, or node type otherwise
+     */
+    private static String getKind(Node node) {
+        if (node instanceof Element) {
+            Element element = (Element) node;
+            String className = element.className();
+            int space = className.indexOf(' ');
+            return className.isEmpty() ? element.tagName()
+                    : element.tagName() + "." + (space < 0 ? className : className.substring(0, space));
+        }
+        return node instanceof TextNode ? "text" : node.nodeName().replace("#", "");
+    }
+
+    private static long hash(long hash, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.fluorumlabs.asciidocj.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Output stream collecting serialized HTML together with its SHA-256 digest and compressed variants, so that
+ * all of them are produced in a single pass over the output.
+ */
+public class ContentEncoder extends OutputStream {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+    private final MessageDigest digest;
+    private final ByteArrayOutputStream gzipBytes;
+    private final OutputStream gzip;
+    private final ByteArrayOutputStream deflateBytes;
+    private final OutputStream deflate;
+
+    /**
+     * Create encoder
+     *
+     * @param gzip    whether to produce gzip variant
+     * @param deflate whether to produce deflate (zlib) variant
+     * @throws IOException never, as compressed variants are collected in memory
+     */
+    public ContentEncoder(boolean gzip, boolean deflate) throws IOException {
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+        this.gzipBytes = gzip ? new ByteArrayOutputStream(4096) : null;
+        this.gzip = gzip ? new GZIPOutputStream(gzipBytes, 8192) : null;
+        this.deflateBytes = deflate ? new ByteArrayOutputStream(4096) : null;
+        this.deflate = deflate ? new DeflaterOutputStream(deflateBytes) : null;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        bytes.write(b, off, len);
+        digest.update(b, off, len);
+        if (gzip != null) {
+            gzip.write(b, off, len);
+        }
+        if (deflate != null) {
+            deflate.write(b, off, len);
+        }
+    }
+
+    /**
+     * Complete compressed variants
+     *
+     * @throws IOException never, as compressed variants are collected in memory
+     */
+    @Override
+    public void close() throws IOException {
+        if (gzip != null) {
+            gzip.close();
+        }
+        if (deflate != null) {
+            deflate.close();
+        }
+    }
+
+    public byte[] getBytes() {
+        return bytes.toByteArray();
+    }
+
+    public byte[] getDigest() {
+        return digest.digest();
+    }
+
+    public byte[] getGzip() {
+        return gzipBytes == null ? null : gzipBytes.toByteArray();
+    }
+
+    public byte[] getDeflate() {
+        return deflateBytes == null ? null : deflateBytes.toByteArray();
+    }
+}
@@ -0,0 +1,164 @@
+package com.github.fluorumlabs.asciidocj.impl;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded LRU cache of images encoded as {@code data:} URIs. Entries are validated against file
+ * modification time and size on every lookup. Thread-safe.
+ */
+public class DataUriCache {
+    // In bytes of encoded URIs
+    private static final long DEFAULT_MAX_SIZE = 64L * 1024 * 1024;
+
+    // Multiple of 3, so that chunks are encoded without padding
+    private static final int CHUNK_SIZE = 48 * 1024;
+
+    private static final DataUriCache SHARED = new DataUriCache(DEFAULT_MAX_SIZE);
+
+    private static final Map<String, String> MIME_TYPES = new HashMap<>();
+
+    static {
+        MIME_TYPES.put("png", "image/png");
+        MIME_TYPES.put("jpg", "image/jpeg");
+        MIME_TYPES.put("jpeg", "image/jpeg");
+        MIME_TYPES.put("gif", "image/gif");
+        MIME_TYPES.put("webp", "image/webp");
+        MIME_TYPES.put("svg", "image/svg+xml");
+        MIME_TYPES.put("bmp", "image/bmp");
+        MIME_TYPES.put("ico", "image/x-icon");
+    }
+
+    private final long maxSize;
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+
+    public DataUriCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public static DataUriCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Get image encoded as {@code data:} URI, encoding it if it is not cached or was modified since.
+     *
+     * @param path        real path of the image
+     * @param maxFileSize maximum size of image file to encode
+     * @return {@code data:} URI, or {@code null} if image is larger than {@code maxFileSize} or its
+     * type is not known
+     * @throws IOException if image cannot be read
+     */
+    public String get(Path path, long maxFileSize) throws IOException {
+        String mimeType = getMimeType(path);
+        if (mimeType == null) {
+            return null;
+        }
+        BasicFileAttributes fileAttributes = Files.readAttributes(path, BasicFileAttributes.class);
+        if (fileAttributes.size() > maxFileSize) {
+            return null;
+        }
+        synchronized (this) {
+            Entry entry = entries.get(path);
+            if (entry != null && entry.isValid(fileAttributes)) {
+                return entry.uri;
+            }
+        }
+
+        // Encode outside of lock, concurrent reads of the same file are harmless
+        String uri = encode(path, mimeType);
+        if (uri.length() <= maxSize) {
+            synchronized (this) {
+                Entry previous = entries.put(path, new Entry(fileAttributes, uri));
+                if (previous != null) {
+                    size -= previous.uri.length();
+                }
+                size += uri.length();
+                Iterator<Map.Entry<Path, Entry>> iterator = entries.entrySet().iterator();
+                while (size > maxSize) {
+                    size -= iterator.next().getValue().uri.length();
+                    iterator.remove();
+                }
+            }
+        }
+        return uri;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    private static String getMimeType(Path path) {
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? null : MIME_TYPES.get(name.substring(dot + 1).toLowerCase());
+    }
+
+    /**
+     * Encode mapped file chunk by chunk straight into the bytes of resulting URI, so that the file is not
+     * read into memory as a whole. Base64 form is copied once, into the resulting string, since every
+     * {@link String} constructor copies its input; the string is then cached and handed out as is.
+     */
+    private static String encode(Path path, String mimeType) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+
+            byte[] prefix = ("data:" + mimeType + ";base64,").getBytes(StandardCharsets.US_ASCII);
+            long encodedLength = prefix.length + 4 * ((length + 2) / 3);
+            if (encodedLength > Integer.MAX_VALUE - 8) {
+                throw new IOException("Image is too large to be embedded: " + path);
+            }
+            byte[] uri = new byte[(int) encodedLength];
+            System.arraycopy(prefix, 0, uri, 0, prefix.length);
+
+            Base64.Encoder encoder = Base64.getEncoder();
+            byte[] chunk = new byte[(int) Math.min(CHUNK_SIZE, length)];
+            byte[] encoded = new byte[4 * ((chunk.length + 2) / 3)];
+            int position = prefix.length;
+            while (buffer.hasRemaining()) {
+                int count = Math.min(chunk.length, buffer.remaining());
+                buffer.get(chunk, 0, count);
+                int encodedCount = encoder.encode(count == chunk.length ? chunk : Arrays.copyOf(chunk, count), encoded);
+                System.arraycopy(encoded, 0, uri, position, encodedCount);
+                position += encodedCount;
+            }
+            return new String(uri, StandardCharsets.US_ASCII);
+        }
+    }
+
+    private static class Entry {
+        private final FileTime lastModified;
+        private final long fileSize;
+        private final String uri;
+
+        private Entry(BasicFileAttributes fileAttributes, String uri) {
+            this.lastModified = fileAttributes.lastModifiedTime();
+            this.fileSize = fileAttributes.size();
+            this.uri = uri;
+        }
+
+        private boolean isValid(BasicFileAttributes fileAttributes) {
+            return lastModified.equals(fileAttributes.lastModifiedTime()) && fileSize == fileAttributes.size();
+        }
+    }
+}
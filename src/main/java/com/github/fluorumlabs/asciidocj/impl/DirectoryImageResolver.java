@@ -0,0 +1,54 @@
+package com.github.fluorumlabs.asciidocj.impl;
+
+import com.github.fluorumlabs.asciidocj.AsciiImageResolver;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+
+/**
+ * Resolves image files relative to base directory, confined to it.
+ */
+public class DirectoryImageResolver implements AsciiImageResolver {
+    private final Path baseDir;
+    private final ImageSizeCache sizeCache;
+    private final DataUriCache dataUriCache;
+
+    public DirectoryImageResolver(Path baseDir, ImageSizeCache sizeCache, DataUriCache dataUriCache) throws IOException {
+        this.baseDir = baseDir.toRealPath();
+        this.sizeCache = sizeCache;
+        this.dataUriCache = dataUriCache;
+    }
+
+    @Override
+    public int[] getSize(String target) throws IOException {
+        Path path = resolve(target);
+        return path == null ? null : sizeCache.get(path);
+    }
+
+    @Override
+    public String getDataUri(String target, long maxFileSize) throws IOException {
+        Path path = resolve(target);
+        return path == null ? null : dataUriCache.get(path, maxFileSize);
+    }
+
+    private Path resolve(String target) throws IOException {
+        // URIs are not resolved
+        if (target.contains("://") || target.startsWith("data:")) {
+            return null;
+        }
+        Path path;
+        try {
+            path = baseDir.resolve(target).normalize();
+        } catch (InvalidPathException e) {
+            return null;
+        }
+        if (!path.startsWith(baseDir) || !Files.isRegularFile(path)) {
+            return null;
+        }
+        // Symbolic links must not lead outside of base directory either
+        path = path.toRealPath();
+        return path.startsWith(baseDir) ? path : null;
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.fluorumlabs.asciidocj.impl;
+
+import com.github.fluorumlabs.asciidocj.AsciiInclude;
+import com.github.fluorumlabs.asciidocj.AsciiIncludeResolver;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Resolves includes as files relative to including file, confined to base directory.
+ */
+public class DirectoryIncludeResolver implements AsciiIncludeResolver {
+    private final Path baseDir;
+    private final IncludeCache cache;
+
+    public DirectoryIncludeResolver(Path baseDir, IncludeCache cache) throws IOException {
+        this.baseDir = baseDir.toRealPath();
+        this.cache = cache;
+    }
+
+    @Override
+    public AsciiInclude resolve(String target, String parentLocation) throws IOException {
+        // URIs are not resolved
+        if (target.contains("://")) {
+            return null;
+        }
+        Path path;
+        try {
+            Path dir = parentLocation == null ? baseDir : Paths.get(parentLocation).getParent();
+            path = dir.resolve(target).normalize();
+        } catch (InvalidPathException e) {
+            return null;
+        }
+        if (!path.startsWith(baseDir) || !Files.isRegularFile(path)) {
+            return null;
+        }
+        // Symbolic links must not lead outside of base directory either
+        path = path.toRealPath();
+        if (!path.startsWith(baseDir)) {
+            return null;
+        }
+        return cache.get(path);
+    }
+}
@@ -0,0 +1,246 @@
+package com.github.fluorumlabs.asciidocj.impl;
+
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.Attributes;
+import org.jsoup.nodes.CDataNode;
+import org.jsoup.nodes.DataNode;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.safety.Cleaner;
+import org.jsoup.safety.Safelist;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Enforces {@link Safelist} on nodes in place, with the same result as {@link Cleaner}: elements that are not
+ * allowed are replaced with their child nodes, attributes that are not allowed are removed, enforced
+ * attributes are added, and comments as well as data of elements that are not allowed are dropped.
+ * <p>
+ * Unlike {@link Cleaner}, nodes are not copied to a new tree, so sanitizing takes time proportional to
+ * the number of nodes and allocates next to nothing. Safelist is copied when sanitizer is created. Not
+ * thread-safe, every conversion uses its own sanitizer.
+ */
+public class HtmlSanitizer {
+    private final Rules rules;
+    private final Map<String, Boolean> safeTags = new HashMap<>();
+    private final Map<String, Attributes> enforcedAttributes = new HashMap<>();
+
+    /**
+     * Exposes checks of safelist, which are only available to subclasses
+     */
+    private static class Rules extends Safelist {
+        private Rules(Safelist safelist) {
+            super(safelist);
+        }
+
+        private boolean isSafe(String tag) {
+            return isSafeTag(tag);
+        }
+
+        private boolean isSafe(String tag, Element element, Attribute attribute) {
+            return isSafeAttribute(tag, element, attribute);
+        }
+    }
+
+    /**
+     * Element being sanitized, with its original child nodes and the nodes that replace them
+     */
+    private class Frame {
+        private final Element element;
+        private final boolean safe;
+        private final boolean preserved;
+        private final Node[] children;
+        private final List<Node> result;
+        private int next;
+
+        private Frame(Element element, boolean preserved) {
+            this.element = element;
+            this.safe = isSafeTag(element.normalName());
+            this.preserved = preserved;
+            this.children = detachChildNodes(element);
+            this.result = new ArrayList<>(children.length);
+        }
+    }
+
+    public HtmlSanitizer(Safelist safelist) {
+        this.rules = new Rules(safelist);
+    }
+
+    /**
+     * Sanitize child nodes of element. Element itself is kept as is.
+     *
+     * @param root element to sanitize
+     */
+    public void sanitize(Element root) {
+        sanitize(root, node -> false);
+    }
+
+    /**
+     * Sanitize child nodes of element, keeping some of the nodes. Preserved elements keep their tag and
+     * attributes, but their child nodes are sanitized.
+     *
+     * @param root      element to sanitize
+     * @param preserved nodes to keep, like intermediate elements that are rendered later
+     */
+    public void sanitize(Element root, Predicate<Node> preserved) {
+        if (root.childNodeSize() == 0) {
+            return;
+        }
+        Deque<Frame> stack = new ArrayDeque<>();
+        stack.push(new Frame(root, true));
+        while (true) {
+            Frame frame = stack.peek();
+            if (frame.next < frame.children.length) {
+                Node child = frame.children[frame.next++];
+                if (child instanceof Element) {
+                    stack.push(new Frame((Element) child, preserved.test(child)));
+                } else if (preserved.test(child)) {
+                    frame.result.add(child);
+                } else if (child instanceof CDataNode) {
+                    // Same as Cleaner, which copies CDATA as text
+                    frame.result.add(new TextNode(((CDataNode) child).getWholeText()));
+                } else if (child instanceof TextNode) {
+                    frame.result.add(child);
+                } else if (child instanceof DataNode && frame.safe) {
+                    frame.result.add(child);
+                }
+                // Comments, document types and data of elements that are not allowed are dropped
+            } else {
+                stack.pop();
+                if (stack.isEmpty()) {
+                    appendChildNodes(frame.element, frame.result);
+                    return;
+                }
+                Frame parent = stack.peek();
+                if (frame.preserved || frame.safe) {
+                    appendChildNodes(frame.element, frame.result);
+                    if (!frame.preserved) {
+                        sanitizeAttributes(frame.element);
+                    }
+                    parent.result.add(frame.element);
+                } else {
+                    parent.result.addAll(frame.result);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parse HTML and append allowed nodes to element, same as {@link Element#append(String)} followed by
+     * sanitizing.
+     *
+     * @param target element to append to
+     * @param html   HTML fragment
+     */
+    public void append(Element target, String html) {
+        Element holder = parse(target, html);
+        Utils.moveChildNodes(holder, target);
+    }
+
+    /**
+     * Parse HTML and insert allowed nodes after node, same as {@link Node#after(String)} followed by
+     * sanitizing.
+     *
+     * @param node node to insert after
+     * @param html HTML fragment
+     */
+    public void after(Node node, String html) {
+        Element parent = (Element) node.parentNode();
+        Element holder = parse(parent, html);
+        if (holder.childNodeSize() > 0) {
+            parent.insertChildren(node.siblingIndex() + 1, holder.childNodes());
+        }
+    }
+
+    /**
+     * Sanitize element together with its descendants and get its HTML.
+     *
+     * @param element element, which is moved out of its parent
+     * @return HTML of allowed nodes
+     */
+    public String getOuterHtml(Element element) {
+        Document shell = Document.createShell("");
+        shell.outputSettings().prettyPrint(false);
+        shell.body().appendChild(element);
+        sanitize(shell.body());
+        return shell.body().html();
+    }
+
+    /**
+     * Parse HTML in context of element and sanitize it
+     */
+    private Element parse(Element context, String html) {
+        // Parsing depends on context element, which also decides whether data nodes are allowed
+        Element holder = new Element(context.tagName());
+        holder.append(html);
+        sanitize(holder);
+        return holder;
+    }
+
+    private void sanitizeAttributes(Element element) {
+        String tag = element.tagName();
+        if (element.attributesSize() > 0) {
+            Attributes attributes = element.attributes();
+            List<String> unsafe = null;
+            for (Attribute attribute : attributes) {
+                if (!rules.isSafe(tag, element, attribute)) {
+                    if (unsafe == null) {
+                        unsafe = new ArrayList<>();
+                    }
+                    unsafe.add(attribute.getKey());
+                }
+            }
+            if (unsafe != null) {
+                unsafe.forEach(attributes::remove);
+            }
+        }
+        Attributes enforced = getEnforcedAttributes(tag);
+        if (enforced.size() > 0) {
+            element.attributes().addAll(enforced);
+        }
+    }
+
+    private boolean isSafeTag(String tag) {
+        return safeTags.computeIfAbsent(tag, rules::isSafe);
+    }
+
+    /**
+     * Enforced attributes are not exposed by safelist, so they are taken from result of cleaning an empty
+     * element
+     */
+    private Attributes getEnforcedAttributes(String tag) {
+        return enforcedAttributes.computeIfAbsent(tag, key -> {
+            Document probe = Document.createShell("");
+            probe.body().appendChild(new Element(key));
+            Element cleaned = new Cleaner(rules).clean(probe).body().children().first();
+            return cleaned == null ? new Attributes() : cleaned.attributes();
+        });
+    }
+
+    /**
+     * Detach all child nodes of element. Nodes are removed from the end, which does not re-index remaining
+     * siblings.
+     */
+    private static Node[] detachChildNodes(Element element) {
+        Node[] nodes = new Node[element.childNodeSize()];
+        for (int i = nodes.length - 1; i >= 0; i--) {
+            nodes[i] = element.childNode(i);
+            nodes[i].remove();
+        }
+        return nodes;
+    }
+
+    private static void appendChildNodes(Element element, List<Node> nodes) {
+        if (!nodes.isEmpty()) {
+            element.appendChildren(nodes);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.github.fluorumlabs.asciidocj.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cache of intrinsic image sizes, read from PNG, JPEG, GIF, WebP and SVG headers. Entries are validated
+ * against file modification time and size on every lookup. Thread-safe.
+ */
+public class ImageSizeCache {
+    private static final int DEFAULT_MAX_ENTRIES = 64 * 1024;
+
+    // Only the opening tag of SVG root element is needed
+    private static final int SVG_HEADER_SIZE = 4096;
+
+    private static final Pattern SVG_TAG_PATTERN = Pattern.compile("<svg\\b[^>]*>");
+    private static final Pattern SVG_WIDTH_PATTERN = Pattern.compile("\\swidth\\s*=\\s*[\"']\\s*([0-9.]+)\\s*(px)?\\s*[\"']");
+    private static final Pattern SVG_HEIGHT_PATTERN = Pattern.compile("\\sheight\\s*=\\s*[\"']\\s*([0-9.]+)\\s*(px)?\\s*[\"']");
+    private static final Pattern SVG_VIEWBOX_PATTERN = Pattern.compile("\\sviewBox\\s*=\\s*[\"']\\s*[-0-9.]+[\\s,]+[-0-9.]+[\\s,]+([0-9.]+)[\\s,]+([0-9.]+)\\s*[\"']");
+
+    private static final ImageSizeCache SHARED = new ImageSizeCache(DEFAULT_MAX_ENTRIES);
+
+    private final int maxEntries;
+    private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+
+    public ImageSizeCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public static ImageSizeCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Get intrinsic size of image, reading its header if it is not cached or was modified since.
+     *
+     * @param path real path of the image
+     * @return width and height, or {@code null} if format is not supported
+     * @throws IOException if image cannot be read
+     */
+    public int[] get(Path path) throws IOException {
+        BasicFileAttributes fileAttributes = Files.readAttributes(path, BasicFileAttributes.class);
+        Entry entry = entries.get(path);
+        if (entry == null || !entry.isValid(fileAttributes)) {
+            // Concurrent reads of the same file are harmless
+            entry = new Entry(fileAttributes, probe(path));
+            if (entries.size() >= maxEntries) {
+                entries.clear();
+            }
+            entries.put(path, entry);
+        }
+        return entry.size == null ? null : entry.size.clone();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Read intrinsic size of image from its header
+     *
+     * @param path image file
+     * @return width and height, or {@code null} if format is not supported
+     * @throws IOException if image cannot be read
+     */
+    static int[] probe(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = read(channel, 0, 32);
+            if (header.remaining() >= 24 && header.getLong(0) == 0x89504E470D0A1A0AL) {
+                // PNG: IHDR is the first chunk
+                return size(header.getInt(16), header.getInt(20));
+            }
+            if (header.remaining() >= 10 && startsWith(header, "GIF8")) {
+                header.order(ByteOrder.LITTLE_ENDIAN);
+                return size(header.getShort(6) & 0xFFFF, header.getShort(8) & 0xFFFF);
+            }
+            if (header.remaining() >= 31 && startsWith(header, "RIFF") && header.getInt(8) == 0x57454250) {
+                return probeWebP(header.order(ByteOrder.LITTLE_ENDIAN));
+            }
+            if (header.remaining() >= 4 && (header.getShort(0) & 0xFFFF) == 0xFFD8) {
+                return probeJpeg(channel);
+            }
+            String text = StandardCharsets.UTF_8.decode(read(channel, 0, SVG_HEADER_SIZE)).toString();
+            return probeSvg(text);
+        }
+    }
+
+    private static int[] probeWebP(ByteBuffer header) {
+        int chunk = header.order(ByteOrder.BIG_ENDIAN).getInt(12);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        switch (chunk) {
+            case 0x56503820: // "VP8 ", lossy
+                return size(header.getShort(26) & 0x3FFF, header.getShort(28) & 0x3FFF);
+            case 0x5650384C: { // "VP8L", lossless
+                int bits = header.getInt(21);
+                return size((bits & 0x3FFF) + 1, ((bits >> 14) & 0x3FFF) + 1);
+            }
+            case 0x56503858: // "VP8X", extended
+                return size((header.getInt(24) & 0xFFFFFF) + 1, (header.getInt(27) & 0xFFFFFF) + 1);
+            default:
+                return null;
+        }
+    }
+
+    private static int[] probeJpeg(FileChannel channel) throws IOException {
+        long position = 2;
+        while (true) {
+            ByteBuffer segment = read(channel, position, 9);
+            if (segment.remaining() < 4 || (segment.get(0) & 0xFF) != 0xFF) {
+                return null;
+            }
+            int marker = segment.get(1) & 0xFF;
+            if (marker == 0xFF) {
+                // Fill byte
+                position++;
+                continue;
+            }
+            // Start of frame markers, except DHT, JPG and DAC
+            if (marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC) {
+                return segment.remaining() < 9 ? null : size(segment.getShort(7) & 0xFFFF, segment.getShort(5) & 0xFFFF);
+            }
+            if (marker == 0xD9 || marker == 0xDA) {
+                // End of image or start of scan before frame header
+                return null;
+            }
+            position += 2 + (segment.getShort(2) & 0xFFFF);
+        }
+    }
+
+    static int[] probeSvg(String text) {
+        Matcher tag = SVG_TAG_PATTERN.matcher(text);
+        if (!tag.find()) {
+            return null;
+        }
+        String svg = tag.group();
+        Matcher width = SVG_WIDTH_PATTERN.matcher(svg);
+        Matcher height = SVG_HEIGHT_PATTERN.matcher(svg);
+        if (width.find() && height.find()) {
+            return size(Math.round(Float.parseFloat(width.group(1))), Math.round(Float.parseFloat(height.group(1))));
+        }
+        Matcher viewBox = SVG_VIEWBOX_PATTERN.matcher(svg);
+        if (viewBox.find()) {
+            return size(Math.round(Float.parseFloat(viewBox.group(1))), Math.round(Float.parseFloat(viewBox.group(2))));
+        }
+        return null;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > 0) {
+            // Keep reading until buffer is full or end of file
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, String signature) {
+        for (int i = 0; i < signature.length(); i++) {
+            if (buffer.get(i) != signature.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[] size(int width, int height) {
+        return width > 0 && height > 0 ? new int[]{width, height} : null;
+    }
+
+    private static class Entry {
+        private final FileTime lastModifiedTime;
+        private final long fileSize;
+        private final int[] size;
+
+        private Entry(BasicFileAttributes fileAttributes, int[] size) {
+            this.lastModifiedTime = fileAttributes.lastModifiedTime();
+            this.fileSize = fileAttributes.size();
+            this.size = size;
+        }
+
+        private boolean isValid(BasicFileAttributes fileAttributes) {
+            return lastModifiedTime.equals(fileAttributes.lastModifiedTime()) && fileSize == fileAttributes.size();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.github.fluorumlabs.asciidocj.impl;
+
+import com.github.fluorumlabs.asciidocj.AsciiInclude;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded LRU cache of decoded include files. Entries are validated against file modification
+ * time and size on every lookup. Thread-safe.
+ */
+public class IncludeCache {
+    // In characters of decoded files
+    private static final long DEFAULT_MAX_SIZE = 64L * 1024 * 1024;
+
+    private static final IncludeCache SHARED = new IncludeCache(DEFAULT_MAX_SIZE);
+
+    private final long maxSize;
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+
+    public IncludeCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public static IncludeCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Get decoded file, reading it if it is not cached or was modified since.
+     *
+     * @param path real path of the file
+     * @return decoded file
+     * @throws IOException if file cannot be read
+     */
+    public AsciiInclude get(Path path) throws IOException {
+        BasicFileAttributes fileAttributes = Files.readAttributes(path, BasicFileAttributes.class);
+        synchronized (this) {
+            Entry entry = entries.get(path);
+            if (entry != null && entry.isValid(fileAttributes)) {
+                return entry.include;
+            }
+        }
+
+        // Read outside of lock, concurrent reads of the same file are harmless
+        String content = read(path);
+        AsciiInclude include = AsciiInclude.of(path.toString(), content);
+        if (content.length() <= maxSize) {
+            synchronized (this) {
+                Entry previous = entries.put(path, new Entry(fileAttributes, content.length(), include));
+                if (previous != null) {
+                    size -= previous.size;
+                }
+                size += content.length();
+                Iterator<Map.Entry<Path, Entry>> iterator = entries.entrySet().iterator();
+                while (size > maxSize) {
+                    size -= iterator.next().getValue().size;
+                    iterator.remove();
+                }
+            }
+        }
+        return include;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    private static String read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CharBuffer chars = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .decode(buffer);
+            // Skip byte order mark
+            if (chars.length() > 0 && chars.charAt(0) == '\uFEFF') {
+                chars.position(1);
+            }
+            return chars.toString();
+        }
+    }
+
+    private static class Entry {
+        private final FileTime lastModified;
+        private final long fileSize;
+        private final long size;
+        private final AsciiInclude include;
+
+        private Entry(BasicFileAttributes fileAttributes, long size, AsciiInclude include) {
+            this.lastModified = fileAttributes.lastModifiedTime();
+            this.fileSize = fileAttributes.size();
+            this.size = size;
+            this.include = include;
+        }
+
+        private boolean isValid(BasicFileAttributes fileAttributes) {
+            return lastModified.equals(fileAttributes.lastModifiedTime()) && fileSize == fileAttributes.size();
+        }
+    }
+}
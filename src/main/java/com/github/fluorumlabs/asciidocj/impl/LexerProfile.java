@@ -0,0 +1,204 @@
+package com.github.fluorumlabs.asciidocj.impl;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-rule statistics of lexers, recorded by code generated into every lexer from the skeleton: hits,
+ * matched characters, pushbacks and time spent in rule actions, as well as lexical states rules were matched in. Recording is enabled for the current
+ * thread with {@link #activate(LexerProfile)}; lexers pick it up when they are created or reset.
+ * <p>
+ * Time of a rule action is measured both in total and without actions of nested lexers, like sub-parsers
+ * and formatters invoked from it. Not thread-safe, every conversion records into its own profile.
+ */
+public class LexerProfile {
+    private static final ThreadLocal<LexerProfile> CURRENT = new ThreadLocal<>();
+
+    private static final int SAMPLE_LENGTH = 40;
+
+    private final Map<String, Rules> lexers = new LinkedHashMap<>();
+    private Class<?> lastLexer;
+    private Rules lastRules;
+
+    // Rule actions in progress, innermost last
+    private Rules[] frameRules = new Rules[16];
+    private int[] frameActions = new int[16];
+    private long[] frameStarts = new long[16];
+    private long[] frameNested = new long[16];
+    private int depth;
+
+    /**
+     * Statistics of all rules of one lexer, indexed by action number
+     */
+    public static class Rules {
+        private long[] hits = new long[0];
+        private long[] matchedChars = new long[0];
+        private long[] pushbacks = new long[0];
+        private long[] pushedBackChars = new long[0];
+        private long[] selfNanos = new long[0];
+        private long[] totalNanos = new long[0];
+        private String[] samples = new String[0];
+        private final BitSet states = new BitSet();
+
+        private void ensureCapacity(int action) {
+            if (action >= hits.length) {
+                int length = Math.max(action + 1, hits.length * 2);
+                hits = Arrays.copyOf(hits, length);
+                matchedChars = Arrays.copyOf(matchedChars, length);
+                pushbacks = Arrays.copyOf(pushbacks, length);
+                pushedBackChars = Arrays.copyOf(pushedBackChars, length);
+                selfNanos = Arrays.copyOf(selfNanos, length);
+                totalNanos = Arrays.copyOf(totalNanos, length);
+                samples = Arrays.copyOf(samples, length);
+            }
+        }
+
+        public int size() {
+            return hits.length;
+        }
+
+        public long getHits(int action) {
+            return hits[action];
+        }
+
+        public long getMatchedChars(int action) {
+            return matchedChars[action];
+        }
+
+        public long getPushbacks(int action) {
+            return pushbacks[action];
+        }
+
+        public long getPushedBackChars(int action) {
+            return pushedBackChars[action];
+        }
+
+        public long getSelfNanos(int action) {
+            return selfNanos[action];
+        }
+
+        public long getTotalNanos(int action) {
+            return totalNanos[action];
+        }
+
+        /**
+         * Lexical states rules were matched in, as values passed to {@code yybegin}
+         *
+         * @return copy of states
+         */
+        public BitSet getStates() {
+            return (BitSet) states.clone();
+        }
+
+        /**
+         * Text matched by the first hit of rule, truncated
+         *
+         * @param action action number
+         * @return sample text
+         */
+        public String getSample(int action) {
+            return samples[action];
+        }
+    }
+
+    /**
+     * Get profile lexers of the current thread record into.
+     *
+     * @return profile, or {@code null} if profiling is not enabled
+     */
+    public static LexerProfile current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Make lexers of the current thread record into profile.
+     *
+     * @param profile profile, or {@code null} to disable profiling
+     * @return previous profile, to be restored when done
+     */
+    public static LexerProfile activate(LexerProfile profile) {
+        LexerProfile previous = CURRENT.get();
+        if (profile == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(profile);
+        }
+        return previous;
+    }
+
+    /**
+     * Statistics by lexer name
+     *
+     * @return lexers
+     */
+    public Map<String, Rules> getLexers() {
+        return lexers;
+    }
+
+    /**
+     * Record start of rule action
+     *
+     * @param lexer  lexer class
+     * @param state  lexical state rule was matched in
+     * @param action action number
+     * @param buffer lexer buffer
+     * @param start  start of matched text
+     * @param end    end of matched text
+     */
+    public void enter(Class<?> lexer, int state, int action, char[] buffer, int start, int end) {
+        if (lexer != lastLexer) {
+            lastLexer = lexer;
+            lastRules = lexers.computeIfAbsent(lexer.getSimpleName(), name -> new Rules());
+        }
+        Rules rules = lastRules;
+        // Negative action means no match, which is an error
+        action = Math.max(action, 0);
+        rules.ensureCapacity(action);
+        rules.states.set(state);
+        rules.hits[action]++;
+        rules.matchedChars[action] += end - start;
+        if (rules.samples[action] == null) {
+            rules.samples[action] = new String(buffer, start, Math.min(end - start, SAMPLE_LENGTH));
+        }
+
+        if (depth == frameRules.length) {
+            frameRules = Arrays.copyOf(frameRules, depth * 2);
+            frameActions = Arrays.copyOf(frameActions, depth * 2);
+            frameStarts = Arrays.copyOf(frameStarts, depth * 2);
+            frameNested = Arrays.copyOf(frameNested, depth * 2);
+        }
+        frameRules[depth] = rules;
+        frameActions[depth] = action;
+        frameNested[depth] = 0;
+        frameStarts[depth++] = System.nanoTime();
+    }
+
+    /**
+     * Record end of rule action, started by the last {@link #enter} call that did not end yet
+     */
+    public void exit() {
+        long elapsed = System.nanoTime() - frameStarts[--depth];
+        Rules rules = frameRules[depth];
+        int action = frameActions[depth];
+        rules.totalNanos[action] += elapsed;
+        rules.selfNanos[action] += elapsed - frameNested[depth];
+        frameRules[depth] = null;
+        if (depth > 0) {
+            frameNested[depth - 1] += elapsed;
+        }
+    }
+
+    /**
+     * Record pushback by rule action in progress
+     *
+     * @param number number of characters pushed back
+     */
+    public void pushback(int number) {
+        if (depth > 0) {
+            frameRules[depth - 1].pushbacks[frameActions[depth - 1]]++;
+            frameRules[depth - 1].pushedBackChars[frameActions[depth - 1]] += number;
+        }
+    }
+}
@@ -0,0 +1,687 @@
+package com.github.fluorumlabs.asciidocj.impl;
+
+import com.github.fluorumlabs.asciidocj.AsciiInclude;
+import com.github.fluorumlabs.asciidocj.AsciiIncludeResolver;
+import com.github.fluorumlabs.asciidocj.impl.jflex.PropertiesParser;
+import org.apache.commons.lang3.StringUtils;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Line-based preprocessor, streams Asciidoc into lexer line by line.
+ * <p>
+ * Preprocessing directives are evaluated only when enabled with {@link #withDirectives(AsciiIncludeResolver)}:
+ * - {@code ifdef::a[]}, {@code ifdef::a,b[]} (any), {@code ifdef::a+b[]} (all), {@code ifndef} likewise,
+ * {@code ifeval::[lhs op rhs]} and {@code endif::[]}, with nesting. Single-line {@code ifdef::a[content]}
+ * and {@code ifndef::a[content]} are supported too. Excluded regions are skipped without lexing.
+ * - {@code include::} with {@code lines=1..5;10;20..-1}, {@code tags=a;b;!c}, {@code tags=*},
+ * {@code tags=**;!c}, {@code tag=a}, {@code leveloffset=+1}, {@code leveloffset=2} and {@code opts=optional},
+ * when include resolver is set.
+ * <p>
+ * Legacy syntax is always converted: setext (two-line) section titles are replaced with {@code =} titles and
+ * comment blocks are removed. Trailing empty lines are removed and output is terminated with {@code \0}.
+ */
+public class Preprocessor extends Reader {
+    private static final int MAX_INCLUDE_DEPTH = 64;
+
+    private static final Pattern INCLUDE = Pattern.compile("(\\\\?)include::([^\\[\\s][^\\[]*)\\[([^\\]]*)\\]");
+    private static final Pattern CONDITIONAL = Pattern.compile("(\\\\?)(ifdef|ifndef|ifeval|endif)::([^\\[\\s]*)\\[(.*)\\]\\s*");
+    private static final Pattern EXPRESSION = Pattern.compile("(.*?)\\s*(==|!=|<=|>=|<|>)\\s*(.*)");
+    private static final Pattern ATTRIBUTE_ENTRY = Pattern.compile(":(!?)([\\w][\\w-]*)(!?):(\\s.*)?");
+    private static final Pattern ATTRIBUTE_REFERENCE = Pattern.compile("\\{([\\w][\\w-]*)\\}");
+    private static final Pattern TAG_DIRECTIVE = Pattern.compile("\\b(tag|end)::(\\S+?)\\[\\]");
+    private static final Pattern HEADING = Pattern.compile("(=+)(\\s+\\S.*)");
+    private static final Pattern INTEGER = Pattern.compile("-?\\d+");
+    private static final Pattern DECIMAL = Pattern.compile("-?\\d*\\.\\d+");
+
+    private final JSONObject attributes;
+    private final ResourceGuard guard;
+    private boolean directives;
+    private AsciiIncludeResolver includeResolver;
+
+    // Line sources, innermost include on top
+    private final Deque<Source> sources = new ArrayDeque<>();
+    private final Deque<Conditional> conditionals = new ArrayDeque<>();
+    // Attributes defined in the document so far, null value for unset attributes
+    private final Map<String, String> definedAttributes = new HashMap<>();
+
+    // Lookahead for legacy syntax conversion
+    private final Deque<String> lookahead = new ArrayDeque<>();
+    private char delimitation;
+
+    // Output
+    private String line = "";
+    private int linePosition;
+    private boolean newLinePending;
+    private boolean firstLine = true;
+    private boolean terminated;
+    private long length;
+
+    public Preprocessor(String text, JSONObject attributes, ResourceGuard guard) {
+        this.attributes = attributes;
+        this.guard = guard;
+        sources.push(new TextSource(text, null, 0, 0));
+    }
+
+    /**
+     * Evaluate conditional directives and expand includes.
+     *
+     * @param includeResolver include resolver, or null to leave include directives as is
+     * @return this
+     */
+    public Preprocessor withDirectives(AsciiIncludeResolver includeResolver) {
+        this.directives = true;
+        this.includeResolver = includeResolver;
+        return this;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int count) {
+        int read = 0;
+        while (read < count) {
+            if (newLinePending) {
+                buffer[offset + read++] = '\n';
+                newLinePending = false;
+            } else if (linePosition < line.length()) {
+                int chunk = Math.min(count - read, line.length() - linePosition);
+                line.getChars(linePosition, linePosition + chunk, buffer, offset + read);
+                linePosition += chunk;
+                read += chunk;
+            } else if (!nextOutputLine()) {
+                break;
+            }
+        }
+        return read == 0 && count > 0 ? -1 : read;
+    }
+
+    @Override
+    public void close() {
+        sources.clear();
+    }
+
+    private boolean nextOutputLine() {
+        if (terminated) {
+            return false;
+        }
+        String next = nextLegacyLine();
+        if (next == null) {
+            line = "\0";
+            terminated = true;
+        } else {
+            newLinePending = !firstLine;
+            firstLine = false;
+            line = next;
+            length += next.length() + 1;
+            guard.checkInputLength((int) Math.min(length, Integer.MAX_VALUE));
+        }
+        linePosition = 0;
+        return true;
+    }
+
+    /**
+     * Peek the line after current one. Trailing empty lines are not visible.
+     *
+     * @return next line, or null at the end of input
+     */
+    private String peekLine() {
+        if (lookahead.isEmpty()) {
+            String next = nextDirectiveLine();
+            while (next != null && next.isEmpty()) {
+                lookahead.add(next);
+                next = nextDirectiveLine();
+            }
+            if (next == null) {
+                lookahead.clear();
+                return null;
+            }
+            lookahead.add(next);
+        }
+        return lookahead.peek();
+    }
+
+    private String takeLine() {
+        return peekLine() == null ? null : lookahead.poll();
+    }
+
+    private String nextLegacyLine() {
+        String current = takeLine();
+        while (current != null) {
+            String next = peekLine();
+            if (next == null) {
+                // Last line is taken as is
+                return current;
+            }
+            String currentLine = Utils.trimRight(current);
+            String nextLine = Utils.trimRight(next);
+            // Check if it's a delimited block and skip whatever we have there
+            if (currentLine.length() > 0) {
+                if (delimitation == 0
+                        || (currentLine.length() >= 4 && isDelimited(currentLine, delimitation))
+                        || (currentLine.length() >= 4 && currentLine.startsWith("|") && isDelimited(Utils.stripHead(currentLine, 1), delimitation))) {
+                    if (delimitation == '/') {
+                        delimitation = 0;
+                        current = takeLine();
+                        continue;
+                    }
+                    char newDelimitation = currentLine.startsWith("|") && currentLine.length() > 1 ? currentLine.charAt(1) : currentLine.charAt(0);
+                    if (delimitation == 0 && ((currentLine.length() >= 4 && isDelimited(currentLine, newDelimitation) && "=_-./".indexOf(newDelimitation) >= 0)
+                            || (currentLine.startsWith("```"))
+                            || (currentLine.length() >= 4 && currentLine.startsWith("|") && isDelimited(Utils.stripHead(currentLine, 1), newDelimitation) && "=".indexOf(newDelimitation) >= 0))) {
+                        delimitation = newDelimitation;
+                    } else {
+                        delimitation = 0;
+                        if (nextLine.length() > 0
+                                && StringUtils.isAlphanumeric(currentLine.substring(0, 1))) {
+                            int level = "=-~^+".indexOf(nextLine.charAt(0)) + 1;
+                            if (level > 0
+                                    && isDelimited(nextLine, nextLine.charAt(0))
+                                    && Math.abs(nextLine.length() - currentLine.length()) <= 1) {
+                                takeLine();
+                                return StringUtils.repeat('=', level) + " " + currentLine;
+                            }
+                        }
+                    }
+                }
+            }
+            if (delimitation != '/') {
+                return current;
+            }
+            current = takeLine();
+        }
+        return null;
+    }
+
+    private String nextDirectiveLine() {
+        while (!sources.isEmpty()) {
+            Source source = sources.peek();
+            if (isSkipping()) {
+                source.skipToConditional();
+            }
+            String line = source.nextLine();
+            if (line == null) {
+                sources.pop();
+                continue;
+            }
+            guard.checkpoint();
+            if (!directives) {
+                return line;
+            }
+
+            if (line.startsWith("if") || line.startsWith("endif") || line.startsWith("\\if") || line.startsWith("\\endif")) {
+                Matcher conditional = CONDITIONAL.matcher(line);
+                if (conditional.matches() && isValidConditional(conditional)) {
+                    if (isSkipping()) {
+                        skipConditional(conditional);
+                        continue;
+                    } else if (!conditional.group(1).isEmpty()) {
+                        // Escaped directive
+                        return line.substring(1);
+                    }
+                    line = evaluateConditional(conditional);
+                    if (line == null) {
+                        continue;
+                    }
+                }
+            }
+            if (isSkipping()) {
+                continue;
+            }
+
+            if (line.startsWith(":")) {
+                Matcher entry = ATTRIBUTE_ENTRY.matcher(line);
+                if (entry.matches()) {
+                    boolean unset = !entry.group(1).isEmpty() || !entry.group(3).isEmpty();
+                    definedAttributes.put(entry.group(2), unset ? null : Utils.trim(StringUtils.defaultString(entry.group(4))));
+                }
+            }
+            if (includeResolver != null && line.contains("include::")) {
+                Matcher include = INCLUDE.matcher(line);
+                if (include.matches()) {
+                    if (!include.group(1).isEmpty()) {
+                        // Escaped directive
+                        return line.substring(1);
+                    }
+                    String unresolved = include(include, source);
+                    if (unresolved == null) {
+                        continue;
+                    }
+                    return unresolved;
+                }
+            }
+            if (source.levelOffset != 0) {
+                // Headings inside verbatim blocks are just text
+                if (source.verbatimDelimiter == null && isVerbatimDelimiter(line)) {
+                    source.verbatimDelimiter = line;
+                } else if (line.equals(source.verbatimDelimiter)) {
+                    source.verbatimDelimiter = null;
+                } else if (source.verbatimDelimiter == null && line.startsWith("=")) {
+                    line = offsetHeading(line, source.levelOffset);
+                }
+            }
+            return line;
+        }
+        return null;
+    }
+
+    private boolean isSkipping() {
+        return !conditionals.isEmpty() && conditionals.peek().skip;
+    }
+
+    private static boolean isValidConditional(Matcher conditional) {
+        String name = conditional.group(2);
+        String target = conditional.group(3);
+        String text = conditional.group(4);
+        switch (name) {
+            case "endif":
+                return text.isEmpty();
+            case "ifeval":
+                return target.isEmpty() && !text.trim().isEmpty();
+            default:
+                return !target.isEmpty();
+        }
+    }
+
+    private void skipConditional(Matcher conditional) {
+        if (!conditional.group(1).isEmpty()) {
+            return;
+        }
+        if (conditional.group(2).equals("endif")) {
+            endConditional(conditional.group(3));
+        } else if (conditional.group(2).equals("ifeval") || conditional.group(4).isEmpty()) {
+            // Nested region is skipped as a whole
+            conditionals.push(new Conditional(conditional.group(3), true));
+        }
+    }
+
+    /**
+     * Evaluate conditional directive.
+     *
+     * @param conditional matched directive
+     * @return content of single-line conditional if it is included, null otherwise
+     */
+    private String evaluateConditional(Matcher conditional) {
+        String name = conditional.group(2);
+        String target = conditional.group(3);
+        String text = conditional.group(4);
+        boolean included;
+        switch (name) {
+            case "endif":
+                endConditional(target);
+                return null;
+            case "ifeval":
+                included = evaluateExpression(text);
+                break;
+            case "ifdef":
+                if (target.contains(",")) {
+                    included = false;
+                    for (String attribute : target.split(",")) included |= isDefined(attribute);
+                } else {
+                    included = true;
+                    for (String attribute : target.split("\\+")) included &= isDefined(attribute);
+                }
+                break;
+            default:
+                if (target.contains(",")) {
+                    included = true;
+                    for (String attribute : target.split(",")) included &= !isDefined(attribute);
+                } else {
+                    included = false;
+                    for (String attribute : target.split("\\+")) included |= !isDefined(attribute);
+                }
+                break;
+        }
+        if (name.equals("ifeval") || text.isEmpty()) {
+            conditionals.push(new Conditional(target, !included));
+            return null;
+        }
+        return included ? text : null;
+    }
+
+    private void endConditional(String target) {
+        // Unmatched endif is ignored
+        if (!conditionals.isEmpty() && (target.isEmpty() || target.equals(conditionals.peek().target))) {
+            conditionals.pop();
+        }
+    }
+
+    private boolean isDefined(String attribute) {
+        if (definedAttributes.containsKey(attribute)) {
+            return definedAttributes.get(attribute) != null;
+        }
+        // Attribute unset with "name!" is not defined even if it has value
+        return attributes.has(attribute) && !attributes.has(attribute + "!");
+    }
+
+    private String getAttribute(String attribute) {
+        if (definedAttributes.containsKey(attribute)) {
+            return definedAttributes.get(attribute);
+        }
+        return attributes.has(attribute) ? attributes.optString(attribute) : null;
+    }
+
+    private String substituteAttributes(String text, boolean dropMissing) {
+        if (text.indexOf('{') < 0) {
+            return text;
+        }
+        return Utils.replaceFunctional(ATTRIBUTE_REFERENCE, text, groups -> {
+            String value = getAttribute(groups[1]);
+            return value != null ? value : dropMissing ? "" : groups[0];
+        });
+    }
+
+    private boolean evaluateExpression(String expression) {
+        Matcher matcher = EXPRESSION.matcher(expression.trim());
+        if (!matcher.matches()) {
+            return false;
+        }
+        Object left = parseValue(substituteAttributes(matcher.group(1), true));
+        Object right = parseValue(substituteAttributes(matcher.group(3), true));
+        String operator = matcher.group(2);
+        int comparison;
+        if (left instanceof Number && right instanceof Number) {
+            comparison = Double.compare(((Number) left).doubleValue(), ((Number) right).doubleValue());
+        } else if (left instanceof String && right instanceof String) {
+            comparison = ((String) left).compareTo((String) right);
+        } else if (operator.equals("==")) {
+            return Objects.equals(left, right);
+        } else {
+            // Values of different types are not ordered
+            return operator.equals("!=") && !Objects.equals(left, right);
+        }
+        switch (operator) {
+            case "==":
+                return comparison == 0;
+            case "!=":
+                return comparison != 0;
+            case "<":
+                return comparison < 0;
+            case "<=":
+                return comparison <= 0;
+            case ">":
+                return comparison > 0;
+            default:
+                return comparison >= 0;
+        }
+    }
+
+    private static Object parseValue(String value) {
+        value = value.trim();
+        if (value.length() >= 2 && (value.startsWith("\"") && value.endsWith("\"") || value.startsWith("'") && value.endsWith("'"))) {
+            return value.substring(1, value.length() - 1);
+        } else if (value.isEmpty() || value.equals("nil")) {
+            return null;
+        } else if (value.equals("true") || value.equals("false")) {
+            return Boolean.valueOf(value);
+        } else if (INTEGER.matcher(value).matches()) {
+            return Long.valueOf(value);
+        } else if (DECIMAL.matcher(value).matches()) {
+            return Double.valueOf(value);
+        }
+        return value;
+    }
+
+    /**
+     * Resolve include and push it as a new line source.
+     *
+     * @param directive matched directive
+     * @param source    including source
+     * @return replacement line for unresolved include, or null
+     */
+    private String include(Matcher directive, Source source) {
+        String target = substituteAttributes(directive.group(2).trim(), false);
+        JSONObject options = PropertiesParser.parse(directive.group(3), new JSONObject(), false);
+
+        AsciiInclude include = null;
+        if (source.depth < MAX_INCLUDE_DEPTH) {
+            try {
+                include = includeResolver.resolve(target, source.location);
+            } catch (IOException ignore) {
+                // Reported as unresolved directive
+            }
+        }
+        if (include == null) {
+            if (options.has("options") && options.getJSONObject("options").has("optional")) {
+                return null;
+            }
+            return "Unresolved directive in " + (source.location == null ? "<stdin>" : source.location)
+                    + " - include::" + target + "[" + directive.group(3) + "]";
+        }
+
+        List<String> lines = include.getLines();
+        if (options.has("lines")) {
+            lines = selectLines(lines, options.optString("lines"));
+        } else if (options.has("tags") || options.has("tag")) {
+            lines = selectTags(lines, options.has("tags") ? options.optString("tags") : options.optString("tag"));
+        }
+
+        int levelOffset = source.levelOffset;
+        String offset = options.optString("leveloffset");
+        if (offset.startsWith("+") || offset.startsWith("-")) {
+            levelOffset += parseInt(offset.startsWith("+") ? offset.substring(1) : offset, 0);
+        } else if (!offset.isEmpty()) {
+            levelOffset = parseInt(offset, levelOffset);
+        }
+
+        sources.push(new LinesSource(lines, include.getLocation(), source.depth + 1, levelOffset));
+        return null;
+    }
+
+    private static List<String> selectLines(List<String> lines, String ranges) {
+        boolean[] selected = new boolean[lines.size()];
+        for (String range : ranges.split("[;,]")) {
+            String from = range.trim();
+            if (from.isEmpty()) {
+                continue;
+            }
+            String to = from;
+            if (from.contains("..")) {
+                to = Utils.extractAfter(from, "..").trim();
+                from = Utils.extractBeforeStrict(from, "..").trim();
+            }
+            int start = parseInt(from, 1);
+            int end = to.isEmpty() ? -1 : parseInt(to, start);
+            if (end < 0) {
+                end = lines.size();
+            }
+            for (int i = Math.max(start, 1); i <= Math.min(end, lines.size()); i++) {
+                selected[i - 1] = true;
+            }
+        }
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < selected.length; i++) {
+            if (selected[i]) {
+                result.add(lines.get(i));
+            }
+        }
+        return result;
+    }
+
+    private static List<String> selectTags(List<String> lines, String tags) {
+        Map<String, Boolean> selection = new HashMap<>();
+        // Selection of tagged regions not listed explicitly, null means same as enclosing region
+        Boolean wildcard = null;
+        // Selection of untagged lines
+        boolean untagged = false;
+        boolean hasInclusions = false;
+        for (String tag : tags.split("[;,]")) {
+            tag = tag.trim();
+            boolean negated = tag.startsWith("!");
+            String name = negated ? tag.substring(1) : tag;
+            if (name.equals("**")) {
+                untagged = !negated;
+                wildcard = !negated;
+            } else if (name.equals("*")) {
+                wildcard = !negated;
+            } else if (!name.isEmpty()) {
+                selection.put(name, !negated);
+            }
+            hasInclusions |= !negated;
+        }
+        if (!hasInclusions) {
+            // Only exclusions: everything else is included
+            untagged = true;
+        }
+
+        List<String> result = new ArrayList<>();
+        Deque<String> regions = new ArrayDeque<>();
+        Deque<Boolean> regionSelection = new ArrayDeque<>();
+        for (String line : lines) {
+            if (line.contains("::")) {
+                Matcher directive = TAG_DIRECTIVE.matcher(line);
+                if (directive.find()) {
+                    String name = directive.group(2);
+                    if (directive.group(1).equals("tag")) {
+                        boolean enclosing = regionSelection.isEmpty() ? untagged : regionSelection.peek();
+                        Boolean selected = selection.get(name);
+                        regions.push(name);
+                        regionSelection.push(selected != null ? selected : wildcard != null ? wildcard : enclosing);
+                    } else if (name.equals(regions.peek())) {
+                        regions.pop();
+                        regionSelection.pop();
+                    }
+                    continue;
+                }
+            }
+            if (regionSelection.isEmpty() ? untagged : regionSelection.peek()) {
+                result.add(line);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isDelimited(String line, char marker) {
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) != marker) return false;
+        }
+        return true;
+    }
+
+    private static boolean isVerbatimDelimiter(String line) {
+        if (line.startsWith("```")) {
+            return true;
+        }
+        return line.length() >= 4 && "-./+".indexOf(line.charAt(0)) >= 0 && isDelimited(line, line.charAt(0));
+    }
+
+    private static String offsetHeading(String line, int levelOffset) {
+        Matcher heading = HEADING.matcher(line);
+        if (!heading.matches()) {
+            return line;
+        }
+        int level = Math.min(Math.max(heading.group(1).length() + levelOffset, 1), 6);
+        return StringUtils.repeat('=', level) + heading.group(2);
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static class Conditional {
+        private final String target;
+        private final boolean skip;
+
+        private Conditional(String target, boolean skip) {
+            this.target = target;
+            this.skip = skip;
+        }
+    }
+
+    private abstract static class Source {
+        private final String location;
+        private final int depth;
+        private final int levelOffset;
+        private String verbatimDelimiter;
+
+        private Source(String location, int depth, int levelOffset) {
+            this.location = location;
+            this.depth = depth;
+            this.levelOffset = levelOffset;
+        }
+
+        abstract String nextLine();
+
+        /**
+         * Advance to the next line that might be a conditional directive.
+         */
+        void skipToConditional() {
+        }
+    }
+
+    private static class TextSource extends Source {
+        private final String text;
+        // Start of the next line, past the end of text when exhausted
+        private int position;
+        private int nextIf = -1;
+        private int nextEndif = -1;
+
+        private TextSource(String text, String location, int depth, int levelOffset) {
+            super(location, depth, levelOffset);
+            this.text = text;
+        }
+
+        @Override
+        String nextLine() {
+            if (position > text.length()) {
+                return null;
+            }
+            int end = text.indexOf('\n', position);
+            if (end < 0) {
+                end = text.length();
+            }
+            String line = text.substring(position, end);
+            position = end + 1;
+            return line;
+        }
+
+        @Override
+        void skipToConditional() {
+            if (position > text.length() || text.startsWith("if", position) || text.startsWith("endif", position)) {
+                return;
+            }
+            // Search results are kept, so that nested regions do not rescan the rest of text
+            if (nextIf < position) {
+                nextIf = indexOf("\nif", position);
+            }
+            if (nextEndif < position) {
+                nextEndif = indexOf("\nendif", position);
+            }
+            int next = Math.min(nextIf, nextEndif);
+            position = next == Integer.MAX_VALUE ? text.length() + 1 : next + 1;
+        }
+
+        private int indexOf(String string, int from) {
+            int index = text.indexOf(string, from);
+            return index < 0 ? Integer.MAX_VALUE : index;
+        }
+    }
+
+    private static class LinesSource extends Source {
+        private final List<String> lines;
+        private int index;
+
+        private LinesSource(List<String> lines, String location, int depth, int levelOffset) {
+            super(location, depth, levelOffset);
+            this.lines = lines;
+        }
+
+        @Override
+        String nextLine() {
+            return index < lines.size() ? lines.get(index++) : null;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.github.fluorumlabs.asciidocj.impl;
+
+import com.github.fluorumlabs.asciidocj.AsciiLimitException;
+import com.github.fluorumlabs.asciidocj.AsciiLimitException.Limit;
+import com.github.fluorumlabs.asciidocj.AsciiLimits;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Resource accounting for single conversion. Shared between parser and all its sub-parsers and formatters.
+ * <p>
+ * Timeout covers time of conversion stages, between {@link #start()} and closing of returned stage, so that
+ * time between parsing and deferred rendering of a document is not counted.
+ */
+public class ResourceGuard {
+    // Deadline and cancellation are polled every CHECK_INTERVAL checkpoints
+    private static final int CHECK_INTERVAL = 64;
+
+    private final AsciiLimits limits;
+    private final BooleanSupplier cancellation;
+    // Time left for conversion, and deadline of stage in progress
+    private long remaining;
+    private long deadline = Long.MAX_VALUE;
+
+    private int depth;
+    private int nodes;
+    private int formatterInvocations;
+    private int ticks;
+
+    public ResourceGuard() {
+        this(AsciiLimits.unlimited());
+    }
+
+    public ResourceGuard(AsciiLimits limits) {
+        this.limits = limits;
+        this.cancellation = limits.getCancellation();
+        this.remaining = limits.getTimeout() == null ? Long.MAX_VALUE : limits.getTimeout().toNanos();
+    }
+
+    /**
+     * Conversion stage, counted against timeout until closed
+     */
+    public interface Stage extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Start conversion stage, like parsing or rendering.
+     *
+     * @return stage, to be closed when it completes
+     */
+    public Stage start() {
+        if (remaining == Long.MAX_VALUE) {
+            return () -> {
+            };
+        }
+        deadline = System.nanoTime() + remaining;
+        return () -> {
+            remaining = deadline - System.nanoTime();
+            deadline = Long.MAX_VALUE;
+        };
+    }
+
+    public void checkInputLength(int length) {
+        if (length > limits.getMaxInputLength()) {
+            throw new AsciiLimitException(Limit.INPUT_LENGTH,
+                    "Input length " + length + " exceeds limit of " + limits.getMaxInputLength());
+        }
+    }
+
+    public void enterBlock() {
+        if (++depth > limits.getMaxNestingDepth()) {
+            throw new AsciiLimitException(Limit.NESTING_DEPTH,
+                    "Block nesting exceeds limit of " + limits.getMaxNestingDepth());
+        }
+        checkpoint();
+    }
+
+    public void exitBlock() {
+        depth--;
+    }
+
+    public void countNode() {
+        if (++nodes > limits.getMaxNodes()) {
+            throw new AsciiLimitException(Limit.NODES,
+                    "Node count exceeds limit of " + limits.getMaxNodes());
+        }
+        checkpoint();
+    }
+
+    public void countFormatterInvocation() {
+        if (++formatterInvocations > limits.getMaxFormatterInvocations()) {
+            throw new AsciiLimitException(Limit.FORMATTER_INVOCATIONS,
+                    "Formatter invocations exceed limit of " + limits.getMaxFormatterInvocations());
+        }
+        checkpoint();
+    }
+
+    /**
+     * Check deadline and cancellation. Cheap enough to be called from every lexer action.
+     */
+    public void checkpoint() {
+        if (ticks++ % CHECK_INTERVAL != 0) {
+            return;
+        }
+        if (cancellation != null && cancellation.getAsBoolean()) {
+            throw new AsciiLimitException(Limit.CANCELLED, "Conversion cancelled");
+        }
+        if (deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0) {
+            throw new AsciiLimitException(Limit.TIMEOUT,
+                    "Conversion exceeds timeout of " + limits.getTimeout().toMillis() + "ms");
+        }
+    }
+}
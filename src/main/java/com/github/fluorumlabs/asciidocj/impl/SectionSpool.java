@@ -0,0 +1,139 @@
+package com.github.fluorumlabs.asciidocj.impl;
+
+import org.jsoup.nodes.Comment;
+import org.jsoup.nodes.Node;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Temporary file holding HTML of flushed sections until the whole document is rendered.
+ * <p>
+ * Parts of output that depend on the rest of document, like TOC or forward references, are written as
+ * marker nodes. Markers are cut out of the spooled HTML and their positions are kept in memory, so that
+ * content patched in at the end is inserted without rescanning the output, and passthrough content cannot
+ * forge a marker.
+ */
+public class SectionSpool implements Closeable {
+    private final String prefix = "asciidocj:" + UUID.randomUUID() + ":";
+    private final Path file;
+    private final Writer writer;
+    private long position;
+    private int markerCount;
+
+    private final List<long[]> markers = new ArrayList<>();
+    private final Map<Integer, String> patches = new HashMap<>();
+
+    public SectionSpool() throws IOException {
+        file = Files.createTempFile("asciidocj", ".html");
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Create marker node for content to be patched in later
+     *
+     * @return marker node
+     */
+    public Node createMarker() {
+        return new Comment(prefix + markerCount++);
+    }
+
+    /**
+     * Check whether node is a marker created with {@link #createMarker()}
+     *
+     * @param node node
+     * @return true if node is a marker
+     */
+    public boolean isMarker(Node node) {
+        return node instanceof Comment && ((Comment) node).getData().startsWith(prefix);
+    }
+
+    /**
+     * Get number of marker node created with {@link #createMarker()}
+     *
+     * @param marker marker node
+     * @return marker number
+     */
+    public int getMarker(Node marker) {
+        return Integer.parseInt(((Comment) marker).getData().substring(prefix.length()));
+    }
+
+    /**
+     * Set content of marker
+     *
+     * @param marker marker number
+     * @param html   HTML to insert in place of marker
+     */
+    public void patch(int marker, String html) {
+        patches.put(marker, html);
+    }
+
+    /**
+     * Append HTML of flushed sections
+     *
+     * @param html HTML
+     * @throws IOException if temporary file cannot be written
+     */
+    public void write(String html) throws IOException {
+        String start = "<!--" + prefix;
+        int from = 0;
+        int index;
+        while ((index = html.indexOf(start, from)) >= 0) {
+            int end = html.indexOf("-->", index);
+            writer.write(html, from, index - from);
+            position += index - from;
+            markers.add(new long[]{position, Integer.parseInt(html.substring(index + start.length(), end))});
+            from = end + 3;
+        }
+        writer.write(html, from, html.length() - from);
+        position += html.length() - from;
+    }
+
+    /**
+     * Copy spooled HTML to output, inserting patched content in place of markers
+     *
+     * @param out output
+     * @throws IOException if temporary file cannot be read or output cannot be written
+     */
+    public void transferTo(Writer out) throws IOException {
+        writer.close();
+        char[] buffer = new char[8192];
+        long copied = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            for (long[] marker : markers) {
+                copied += copy(reader, out, buffer, marker[0] - copied);
+                out.write(patches.getOrDefault((int) marker[1], ""));
+            }
+            copy(reader, out, buffer, Long.MAX_VALUE);
+        }
+    }
+
+    private static long copy(BufferedReader reader, Writer out, char[] buffer, long length) throws IOException {
+        long copied = 0;
+        while (copied < length) {
+            int read = reader.read(buffer, 0, (int) Math.min(buffer.length, length - copied));
+            if (read < 0) {
+                break;
+            }
+            out.write(buffer, 0, read);
+            copied += read;
+        }
+        return copied;
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+        Files.deleteIfExists(file);
+    }
+}
@@ -0,0 +1,501 @@
+package com.github.fluorumlabs.asciidocj.impl;
+
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.CDataNode;
+import org.jsoup.nodes.Comment;
+import org.jsoup.nodes.DataNode;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.parser.Tag;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary form of rendered document body.
+ * <p>
+ * Snapshot starts with a table of tag names, attribute names and class values, referenced by index from
+ * the tree that follows. Tree is written depth-first: every node is a type byte followed by tag index,
+ * attributes and child count for elements, or by content for other nodes. Integers are written as
+ * varints, strings as char count followed by chars encoded like UTF-8, with surrogates encoded one by
+ * one so that any string survives the round trip.
+ * <p>
+ * Snapshot can be restored to jsoup document, or written straight to HTML, which is the same as
+ * {@code body().html()} of the original document.
+ */
+public class SnapshotCodec {
+    private static final byte[] MAGIC = {'A', 'D', 'S', 1};
+
+    private static final int ELEMENT = 1;
+    private static final int TEXT = 2;
+    private static final int DATA = 3;
+    private static final int COMMENT = 4;
+    private static final int CDATA = 5;
+    // Any other node, kept as its HTML
+    private static final int RAW = 6;
+
+    private static final int VALUE_NULL = 0;
+    private static final int VALUE_INTERNED = 1;
+    private static final int VALUE_INLINE = 2;
+
+    private SnapshotCodec() {
+    }
+
+    /**
+     * Encode document body
+     *
+     * @param body body element of rendered document
+     * @return snapshot
+     */
+    public static byte[] encode(Element body) {
+        Output tree = new Output(1024);
+        Map<String, Integer> indexes = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        encodeElement(body, tree, indexes, strings);
+
+        Output output = new Output(tree.length + 16 * strings.size() + 16);
+        output.writeBytes(MAGIC, MAGIC.length);
+        output.writeVarint(strings.size());
+        for (String string : strings) {
+            output.writeString(string);
+        }
+        output.writeBytes(tree.bytes, tree.length);
+        return output.toByteArray();
+    }
+
+    /**
+     * Restore document
+     *
+     * @param snapshot snapshot
+     * @return document with body of original document
+     */
+    public static Document decode(byte[] snapshot) {
+        Input input = new Input(snapshot);
+        String[] strings = input.readStrings();
+
+        Document document = Document.createShell("");
+        document.outputSettings().prettyPrint(false);
+        input.readByte();
+        input.readVarint();
+        decodeElement(document.body(), input, strings);
+        return document;
+    }
+
+    /**
+     * Write HTML of document body without restoring the document
+     *
+     * @param snapshot snapshot
+     * @param out      output
+     * @throws IOException if output cannot be written
+     */
+    public static void writeHtml(byte[] snapshot, Writer out) throws IOException {
+        Input input = new Input(snapshot);
+        String[] strings = input.readStrings();
+        Tag[] tags = new Tag[strings.length];
+
+        input.readByte();
+        input.readVarint();
+        skipAttributes(input);
+        int count = input.readVarint();
+        for (int i = 0; i < count; i++) {
+            writeNode(input, strings, tags, out);
+        }
+    }
+
+    /**
+     * Check that bytes look like a snapshot
+     *
+     * @param snapshot bytes
+     * @return {@code true} if bytes start with snapshot header
+     */
+    public static boolean isSnapshot(byte[] snapshot) {
+        return snapshot.length > MAGIC.length && Arrays.equals(Arrays.copyOf(snapshot, MAGIC.length), MAGIC);
+    }
+
+    private static int intern(String string, Map<String, Integer> indexes, List<String> strings) {
+        Integer index = indexes.get(string);
+        if (index == null) {
+            index = strings.size();
+            indexes.put(string, index);
+            strings.add(string);
+        }
+        return index;
+    }
+
+    private static void encodeElement(Element element, Output output, Map<String, Integer> indexes, List<String> strings) {
+        output.writeByte(ELEMENT);
+        output.writeVarint(intern(element.tagName(), indexes, strings));
+
+        List<String> keys = new ArrayList<>();
+        List<Attribute> attributes = new ArrayList<>();
+        for (Attribute attribute : element.attributes()) {
+            // Invalid keys are skipped when writing HTML, and so they are here
+            String key = Attribute.getValidKey(attribute.getKey(), Document.OutputSettings.Syntax.html);
+            if (key != null) {
+                keys.add(key);
+                attributes.add(attribute);
+            }
+        }
+        output.writeVarint(attributes.size());
+        for (int i = 0; i < attributes.size(); i++) {
+            Attribute attribute = attributes.get(i);
+            String key = keys.get(i);
+            output.writeVarint(intern(key, indexes, strings));
+            // Attribute value is null only for attributes set with attr(key, true)
+            String value = attribute.hasDeclaredValue() ? attribute.getValue() : null;
+            if (value == null) {
+                output.writeByte(VALUE_NULL);
+            } else if (key.equals("class")) {
+                output.writeByte(VALUE_INTERNED);
+                output.writeVarint(intern(value, indexes, strings));
+            } else {
+                output.writeByte(VALUE_INLINE);
+                output.writeString(value);
+            }
+        }
+
+        output.writeVarint(element.childNodeSize());
+        for (Node node : element.childNodes()) {
+            if (node instanceof Element) {
+                encodeElement((Element) node, output, indexes, strings);
+            } else if (node.getClass() == TextNode.class) {
+                output.writeByte(TEXT);
+                output.writeString(((TextNode) node).getWholeText());
+            } else if (node instanceof CDataNode) {
+                output.writeByte(CDATA);
+                output.writeString(((CDataNode) node).text());
+            } else if (node instanceof DataNode) {
+                output.writeByte(DATA);
+                output.writeString(((DataNode) node).getWholeData());
+            } else if (node instanceof Comment) {
+                output.writeByte(COMMENT);
+                output.writeString(((Comment) node).getData());
+            } else {
+                output.writeByte(RAW);
+                output.writeString(node.outerHtml());
+            }
+        }
+    }
+
+    private static void decodeElement(Element element, Input input, String[] strings) {
+        int attributeCount = input.readVarint();
+        for (int i = 0; i < attributeCount; i++) {
+            String key = strings[input.readVarint()];
+            int valueType = input.readByte();
+            if (valueType == VALUE_NULL) {
+                element.attr(key, true);
+            } else if (valueType == VALUE_INTERNED) {
+                element.attr(key, strings[input.readVarint()]);
+            } else {
+                element.attr(key, input.readString());
+            }
+        }
+
+        int count = input.readVarint();
+        List<Node> children = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int type = input.readByte();
+            switch (type) {
+                case ELEMENT:
+                    Element child = new Element(strings[input.readVarint()]);
+                    decodeElement(child, input, strings);
+                    children.add(child);
+                    break;
+                case TEXT:
+                    children.add(new TextNode(input.readString()));
+                    break;
+                case CDATA:
+                    children.add(new CDataNode(input.readString()));
+                    break;
+                case DATA:
+                case RAW:
+                    children.add(new DataNode(input.readString()));
+                    break;
+                case COMMENT:
+                    children.add(new Comment(input.readString()));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Malformed snapshot");
+            }
+        }
+        // Appending all children at once does not reindex siblings for every node
+        element.appendChildren(children);
+    }
+
+    private static void skipAttributes(Input input) {
+        int attributeCount = input.readVarint();
+        for (int i = 0; i < attributeCount; i++) {
+            input.readVarint();
+            int valueType = input.readByte();
+            if (valueType == VALUE_INTERNED) {
+                input.readVarint();
+            } else if (valueType == VALUE_INLINE) {
+                input.readChars();
+            }
+        }
+    }
+
+    private static void writeNode(Input input, String[] strings, Tag[] tags, Writer out) throws IOException {
+        int type = input.readByte();
+        // Strings are read into reusable buffer of input, which may be reallocated by every read
+        int length;
+        switch (type) {
+            case ELEMENT:
+                int tagIndex = input.readVarint();
+                String tagName = strings[tagIndex];
+                if (tags[tagIndex] == null) {
+                    tags[tagIndex] = Tag.valueOf(tagName);
+                }
+                Tag tag = tags[tagIndex];
+
+                out.write('<');
+                out.write(tagName);
+                int attributeCount = input.readVarint();
+                for (int i = 0; i < attributeCount; i++) {
+                    String key = strings[input.readVarint()];
+                    int valueType = input.readByte();
+                    out.write(' ');
+                    out.write(key);
+                    if (valueType == VALUE_NULL) {
+                        continue;
+                    }
+                    if (valueType == VALUE_INTERNED) {
+                        String value = strings[input.readVarint()];
+                        if (!isCollapsed(key, value)) {
+                            out.write("=\"");
+                            escape(value.toCharArray(), value.length(), true, out);
+                            out.write('"');
+                        }
+                    } else {
+                        length = input.readChars();
+                        if (!isCollapsed(key, input.chars, length)) {
+                            out.write("=\"");
+                            escape(input.chars, length, true, out);
+                            out.write('"');
+                        }
+                    }
+                }
+
+                int count = input.readVarint();
+                if (count == 0 && tag.isSelfClosing()) {
+                    out.write(tag.isEmpty() ? ">" : " />");
+                    break;
+                }
+                out.write('>');
+                for (int i = 0; i < count; i++) {
+                    writeNode(input, strings, tags, out);
+                }
+                out.write("</");
+                out.write(tagName);
+                out.write('>');
+                break;
+            case TEXT:
+                length = input.readChars();
+                escape(input.chars, length, false, out);
+                break;
+            case CDATA:
+                length = input.readChars();
+                out.write("<![CDATA[");
+                out.write(input.chars, 0, length);
+                out.write("]]>");
+                break;
+            case DATA:
+            case RAW:
+                length = input.readChars();
+                out.write(input.chars, 0, length);
+                break;
+            case COMMENT:
+                length = input.readChars();
+                out.write("<!--");
+                out.write(input.chars, 0, length);
+                out.write("-->");
+                break;
+            default:
+                throw new IllegalArgumentException("Malformed snapshot");
+        }
+    }
+
+    private static boolean isCollapsed(String key, String value) {
+        return (value.isEmpty() || value.equalsIgnoreCase(key)) && Attribute.isBooleanAttribute(key);
+    }
+
+    private static boolean isCollapsed(String key, char[] chars, int length) {
+        return (length == 0 || length == key.length() && new String(chars, 0, length).equalsIgnoreCase(key))
+                && Attribute.isBooleanAttribute(key);
+    }
+
+    /**
+     * Escape text like jsoup does with base escape mode, UTF-8 charset and no pretty printing
+     */
+    private static void escape(char[] chars, int length, boolean inAttribute, Writer out) throws IOException {
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = chars[i];
+            String replacement;
+            if (c == '&') {
+                replacement = "&amp;";
+            } else if (c == '<' && !inAttribute) {
+                replacement = "&lt;";
+            } else if (c == '>' && !inAttribute) {
+                replacement = "&gt;";
+            } else if (c == '"' && inAttribute) {
+                replacement = "&quot;";
+            } else if (c == '\u00A0') {
+                replacement = "&nbsp;";
+            } else if (c < ' ' && c != '\t' && c != '\n' && c != '\r') {
+                replacement = "&#x" + Integer.toHexString(c) + ";";
+            } else {
+                continue;
+            }
+            out.write(chars, start, i - start);
+            out.write(replacement);
+            start = i + 1;
+        }
+        out.write(chars, start, length - start);
+    }
+
+    private static class Output {
+        private byte[] bytes;
+        private int length;
+
+        private Output(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+
+        private void writeByte(int value) {
+            ensureCapacity(1);
+            bytes[length++] = (byte) value;
+        }
+
+        private void writeBytes(byte[] source, int count) {
+            ensureCapacity(count);
+            System.arraycopy(source, 0, bytes, length, count);
+            length += count;
+        }
+
+        private void writeVarint(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7F) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        private void writeString(String string) {
+            int count = string.length();
+            writeVarint(count);
+            ensureCapacity(3 * count);
+            for (int i = 0; i < count; i++) {
+                char c = string.charAt(i);
+                if (c < 0x80) {
+                    bytes[length++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[length++] = (byte) (0xC0 | c >> 6);
+                    bytes[length++] = (byte) (0x80 | c & 0x3F);
+                } else {
+                    bytes[length++] = (byte) (0xE0 | c >> 12);
+                    bytes[length++] = (byte) (0x80 | c >> 6 & 0x3F);
+                    bytes[length++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+
+    private static class Input {
+        private final byte[] bytes;
+        private int position;
+        // Reusable buffer for strings that are written out right away
+        private char[] chars = new char[256];
+
+        private Input(byte[] bytes) {
+            if (!isSnapshot(bytes)) {
+                throw new IllegalArgumentException("Not a document snapshot");
+            }
+            this.bytes = bytes;
+            this.position = MAGIC.length;
+        }
+
+        private int readByte() {
+            checkAvailable(1);
+            return bytes[position++];
+        }
+
+        private int readVarint() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed snapshot");
+        }
+
+        private String[] readStrings() {
+            String[] strings = new String[readVarint()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = readString();
+            }
+            return strings;
+        }
+
+        private String readString() {
+            int count = readChars();
+            return new String(chars, 0, count);
+        }
+
+        /**
+         * Read string into buffer
+         *
+         * @return number of chars read
+         */
+        private int readChars() {
+            int count = readVarint();
+            if (count < 0) {
+                throw new IllegalArgumentException("Malformed snapshot");
+            }
+            if (chars.length < count) {
+                chars = new char[Math.max(count, chars.length * 2)];
+            }
+            for (int i = 0; i < count; i++) {
+                checkAvailable(1);
+                int b = bytes[position++] & 0xFF;
+                if (b < 0x80) {
+                    chars[i] = (char) b;
+                } else if (b < 0xE0) {
+                    checkAvailable(1);
+                    chars[i] = (char) ((b & 0x1F) << 6 | bytes[position++] & 0x3F);
+                } else {
+                    checkAvailable(2);
+                    chars[i] = (char) ((b & 0x0F) << 12 | (bytes[position++] & 0x3F) << 6 | bytes[position++] & 0x3F);
+                }
+            }
+            return count;
+        }
+
+        private void checkAvailable(int count) {
+            if (position + count > bytes.length) {
+                throw new IllegalArgumentException("Malformed snapshot");
+            }
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.github.fluorumlabs.asciidocj.impl;
+
+import com.github.fluorumlabs.asciidocj.impl.jflex.JavaHighlighter;
+import com.github.fluorumlabs.asciidocj.impl.jflex.JsonHighlighter;
+import com.github.fluorumlabs.asciidocj.impl.jflex.ShellHighlighter;
+import com.github.fluorumlabs.asciidocj.impl.jflex.SqlHighlighter;
+import com.github.fluorumlabs.asciidocj.impl.jflex.XmlHighlighter;
+import com.github.fluorumlabs.asciidocj.impl.jflex.YamlHighlighter;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Server-side highlighter of source blocks, enabled with {@code :source-highlighter: asciidocj}.
+ * <p>
+ * Tokens are wrapped in {@code <span>} elements with the short class names of Pygments and Rouge
+ * ({@code k} for keywords, {@code s} for strings, {@code c} for comments etc), so that existing
+ * stylesheets apply. Elements inside of block, like callouts, are kept in place. Tokens are cached by
+ * hash of language and source text, as the same snippets recur across documents. Thread-safe.
+ */
+public class SourceHighlighter {
+    // In characters of highlighted sources
+    private static final long DEFAULT_MAX_SIZE = 16L * 1024 * 1024;
+
+    private static final SourceHighlighter SHARED = new SourceHighlighter(DEFAULT_MAX_SIZE);
+
+    private static final Map<String, Function<char[], Lexer>> LEXERS = new HashMap<>();
+
+    static {
+        LEXERS.put("java", JavaHighlighter::of);
+        LEXERS.put("json", JsonHighlighter::of);
+        LEXERS.put("xml", XmlHighlighter::of);
+        LEXERS.put("html", XmlHighlighter::of);
+        LEXERS.put("svg", XmlHighlighter::of);
+        LEXERS.put("yaml", YamlHighlighter::of);
+        LEXERS.put("yml", YamlHighlighter::of);
+        LEXERS.put("sh", ShellHighlighter::of);
+        LEXERS.put("bash", ShellHighlighter::of);
+        LEXERS.put("shell", ShellHighlighter::of);
+        LEXERS.put("console", ShellHighlighter::of);
+        LEXERS.put("sql", SqlHighlighter::of);
+    }
+
+    /**
+     * Lexer of a single language. Returns token class for every match, empty string for text that is
+     * not highlighted, and {@code null} at the end of input.
+     */
+    public interface Lexer {
+        String nextToken() throws IOException;
+
+        int getPosition();
+
+        int yylength();
+    }
+
+    private final long maxSize;
+    private final LinkedHashMap<String, Tokens> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+
+    public SourceHighlighter(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public static SourceHighlighter shared() {
+        return SHARED;
+    }
+
+    public static boolean isSupported(String language) {
+        return LEXERS.containsKey(language.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Move child nodes to another element, highlighting text.
+     *
+     * @param from     element with source text
+     * @param to       target element
+     * @param language source language
+     * @return {@code false} if language is not supported and nothing was moved
+     */
+    public boolean highlight(Element from, Element to, String language) {
+        Function<char[], Lexer> lexer = LEXERS.get(language.toLowerCase(Locale.ROOT));
+        if (lexer == null) {
+            return false;
+        }
+
+        // Elements, like callouts, are cut out of text and inserted back at the same offset
+        StringBuilder text = new StringBuilder();
+        List<Node> inserts = new ArrayList<>();
+        List<Integer> offsets = new ArrayList<>();
+        for (Node node : from.childNodes()) {
+            if (node instanceof TextNode) {
+                text.append(((TextNode) node).getWholeText());
+            } else {
+                inserts.add(node);
+                offsets.add(text.length());
+            }
+        }
+        inserts.forEach(Node::remove);
+        from.empty();
+
+        String source = text.toString();
+        Tokens tokens = getTokens(language.toLowerCase(Locale.ROOT), source, lexer);
+
+        Emitter emitter = new Emitter(to, source, inserts, offsets);
+        for (int i = 0; i < tokens.types.length; i++) {
+            emitter.emit(tokens.bounds[2 * i], null);
+            emitter.emit(tokens.bounds[2 * i + 1], tokens.types[i]);
+        }
+        emitter.emit(source.length(), null);
+        emitter.finish();
+        return true;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    private Tokens getTokens(String language, String source, Function<char[], Lexer> lexer) {
+        String key = hash(language, source);
+        synchronized (this) {
+            Tokens tokens = entries.get(key);
+            if (tokens != null) {
+                return tokens;
+            }
+        }
+
+        Tokens tokens = tokenize(lexer.apply(source.toCharArray()));
+        if (source.length() <= maxSize) {
+            synchronized (this) {
+                tokens.size = source.length();
+                Tokens previous = entries.put(key, tokens);
+                if (previous == null) {
+                    size += tokens.size;
+                }
+                Iterator<Map.Entry<String, Tokens>> iterator = entries.entrySet().iterator();
+                while (size > maxSize) {
+                    size -= iterator.next().getValue().size;
+                    iterator.remove();
+                }
+            }
+        }
+        return tokens;
+    }
+
+    private static Tokens tokenize(Lexer lexer) {
+        int[] bounds = new int[64];
+        String[] types = new String[32];
+        int count = 0;
+        try {
+            String type;
+            while ((type = lexer.nextToken()) != null) {
+                if (type.isEmpty()) {
+                    continue;
+                }
+                int start = lexer.getPosition();
+                int end = start + lexer.yylength();
+                if (count > 0 && types[count - 1].equals(type) && bounds[2 * count - 1] == start) {
+                    // Merge with previous token of the same type
+                    bounds[2 * count - 1] = end;
+                    continue;
+                }
+                if (count == types.length) {
+                    types = Arrays.copyOf(types, count * 2);
+                    bounds = Arrays.copyOf(bounds, count * 4);
+                }
+                types[count] = type;
+                bounds[2 * count] = start;
+                bounds[2 * count + 1] = end;
+                count++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Tokens(Arrays.copyOf(bounds, count * 2), Arrays.copyOf(types, count));
+    }
+
+    private static String hash(String language, String source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(language.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(source.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Tokens {
+        private final int[] bounds;
+        private final String[] types;
+        private long size;
+
+        private Tokens(int[] bounds, String[] types) {
+            this.bounds = bounds;
+            this.types = types;
+        }
+    }
+
+    /**
+     * Appends runs of source text to target element, with cut out elements in between
+     */
+    private static class Emitter {
+        private final Element to;
+        private final String source;
+        private final List<Node> inserts;
+        private final List<Integer> offsets;
+        private int position;
+        private int insert;
+
+        private Emitter(Element to, String source, List<Node> inserts, List<Integer> offsets) {
+            this.to = to;
+            this.source = source;
+            this.inserts = inserts;
+            this.offsets = offsets;
+        }
+
+        private void emit(int end, String type) {
+            while (insert < inserts.size() && offsets.get(insert) < end) {
+                append(offsets.get(insert), type);
+                to.appendChild(inserts.get(insert++));
+            }
+            append(end, type);
+        }
+
+        private void append(int end, String type) {
+            if (end <= position) {
+                return;
+            }
+            TextNode text = new TextNode(source.substring(position, end));
+            if (type == null) {
+                to.appendChild(text);
+            } else {
+                to.appendChild(new Element("span").addClass(type).appendChild(text));
+            }
+            position = end;
+        }
+
+        private void finish() {
+            while (insert < inserts.size()) {
+                to.appendChild(inserts.get(insert++));
+            }
+        }
+    }
+}
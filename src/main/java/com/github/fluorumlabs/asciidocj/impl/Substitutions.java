@@ -0,0 +1,70 @@
+package com.github.fluorumlabs.asciidocj.impl;
+
+/**
+ * Substitutions requested for the next formatted block: listing or literal content, {@code subs} block
+ * property and passthrough mode. Passed to formatter along with attributes, instead of being stored in
+ * attributes for the duration of a block. Immutable.
+ */
+public final class Substitutions {
+    public static final Substitutions NORMAL = new Substitutions(false, false, "", null);
+
+    private final boolean listing;
+    private final boolean literal;
+    private final String subs;
+    private final String pass;
+
+    private Substitutions(boolean listing, boolean literal, String subs, String pass) {
+        this.listing = listing;
+        this.literal = literal;
+        this.subs = subs;
+        this.pass = pass;
+    }
+
+    public Substitutions withListing() {
+        return new Substitutions(true, literal, subs, pass);
+    }
+
+    public Substitutions withLiteral() {
+        return new Substitutions(listing, true, subs, pass);
+    }
+
+    /**
+     * Set substitutions of {@code subs} block property
+     *
+     * @param subs comma-separated list of substitutions, like {@code +quotes,-callouts}
+     * @return new substitutions
+     */
+    public Substitutions withSubs(String subs) {
+        return new Substitutions(listing, literal, subs, pass);
+    }
+
+    /**
+     * Set passthrough mode
+     *
+     * @param pass first letters of substitutions to apply, like {@code qa} for quotes and attributes
+     * @return new substitutions
+     */
+    public Substitutions withPass(String pass) {
+        return new Substitutions(listing, literal, subs, pass);
+    }
+
+    public boolean isListing() {
+        return listing;
+    }
+
+    public boolean isLiteral() {
+        return literal;
+    }
+
+    public String getSubs() {
+        return subs;
+    }
+
+    public boolean isPass() {
+        return pass != null;
+    }
+
+    public String getPass() {
+        return pass == null ? "" : pass;
+    }
+}
@@ -11,8 +11,6 @@ import java.io.Reader;
 import java.io.StringReader;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
@@ -170,23 +168,27 @@ public class Utils {
         return new StringReader(zeroTrail ? text + "\0" : text);
     }
 
+    /**
+     * Move all child nodes to the end of another element. Nodes are transferred as a whole list, which takes
+     * time proportional to their number, unlike moving them one by one that re-indexes siblings every time.
+     *
+     * @param from element to take child nodes from
+     * @param to   element to append them to
+     */
     public static void moveChildNodes(Element from, Element to) {
-        List<Node> nodes = new ArrayList<>(from.childNodes());
-        for (Node node : nodes) {
-            to.appendChild(node);
+        if (from.childNodeSize() > 0) {
+            to.appendChildren(from.childNodes());
         }
     }
 
+    /**
+     * Move all child nodes in front of the element, leaving it empty.
+     *
+     * @param from element to take child nodes from
+     */
     public static void moveChildNodesToParent(Element from) {
-        List<Node> nodes = new ArrayList<>(from.childNodes());
-        for (Node node : nodes) {
-            from.before(node);
-        }
-    }
-
-    public static void copyChildNodes(Element from, Element to) {
-        for (Node node : from.childNodes()) {
-            to.appendChild(node.clone());
+        if (from.childNodeSize() > 0) {
+            from.parent().insertChildren(from.siblingIndex(), from.childNodes());
         }
     }
 
@@ -196,21 +198,67 @@ public class Utils {
         }
     }
 
+    /**
+     * Move all child nodes except the first one to the end of another element.
+     *
+     * @param from element to take child nodes from, keeps its first child node
+     * @param to   element to append them to
+     */
     public static void moveChildNodesSkipFirst(Element from, Element to) {
-        List<Node> nodes = new ArrayList<>(from.childNodes());
-        if (!nodes.isEmpty()) {
-            nodes.remove(0);
-        }
-        for (Node node : nodes) {
-            to.appendChild(node);
+        if (from.childNodeSize() > 1) {
+            Node first = from.childNode(0);
+            first.remove();
+            moveChildNodes(from, to);
+            from.appendChild(first);
         }
     }
 
+    /**
+     * Find nearest intermediate element enclosing given one. Block parent recorded while parsing is used
+     * if available, instead of walking up the tree.
+     *
+     * @param x element
+     * @return enclosing intermediate element or {@code null}
+     */
     public static AsciidocElement getParent(Element x) {
-        return (AsciidocElement) x.parents().stream()
-                .filter(e -> e != x && e instanceof AsciidocElement)
-                .findFirst()
-                .orElse(null);
+        if (x instanceof AsciidocElement && ((AsciidocElement) x).getParentBlock() != null) {
+            return ((AsciidocElement) x).getParentBlock();
+        }
+        for (Element parent = x.parent(); parent != null; parent = parent.parent()) {
+            if (parent instanceof AsciidocElement) {
+                return (AsciidocElement) parent;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Same as {@link Element#nextElementSibling()}, but without building list of all sibling elements,
+     * which is rebuilt by jsoup every time parent is modified.
+     *
+     * @param x node
+     * @return next sibling element or {@code null}
+     */
+    public static Element nextElementSibling(Node x) {
+        Node sibling = x.nextSibling();
+        while (sibling != null && !(sibling instanceof Element)) {
+            sibling = sibling.nextSibling();
+        }
+        return (Element) sibling;
+    }
+
+    /**
+     * Same as {@link Element#previousElementSibling()}, but without building list of all sibling elements.
+     *
+     * @param x node
+     * @return previous sibling element or {@code null}
+     */
+    public static Element previousElementSibling(Node x) {
+        Node sibling = x.previousSibling();
+        while (sibling != null && !(sibling instanceof Element)) {
+            sibling = sibling.previousSibling();
+        }
+        return (Element) sibling;
     }
 
     public static String getArgument(Element x, int i) {
@@ -280,28 +328,38 @@ public class Utils {
         return document.body().html();
     }
 
-    public static Document unescapeIntermediate(String html, JSONObject attributes) {
+    public static Document unescapeIntermediate(String html, JSONObject attributes, AnchorIndex anchors) {
         Document result = Document.createShell("");
         result.body().append(html);
+        inflateIntermediate(result.body(), attributes, anchors);
+
+        return result;
+    }
 
+    /**
+     * Replace escaped intermediate elements of parsed intermediate HTML with {@link AsciidocElement}s
+     *
+     * @param root       root of parsed HTML
+     * @param attributes document attributes of new elements
+     * @param anchors    anchor index of new elements
+     */
+    public static void inflateIntermediate(Element root, JSONObject attributes, AnchorIndex anchors) {
         // Inception
-        for (Element element : result.body().select("[tagName]")) {
+        for (Element element : root.select("[tagName]")) {
             String tagName = element.attr("tagName");
             JSONObject newProperties = new JSONObject(element.attr("properties"));
-            AsciidocElement newElement = new AsciidocElement(AsciidocRenderer.valueOf(tagName), newProperties, attributes);
+            AsciidocElement newElement = new AsciidocElement(AsciidocRenderer.valueOf(tagName), newProperties, attributes, anchors);
             element.removeAttr("properties");
             element.removeAttr("tagName");
-            copyChildNodes(element, newElement);
+            moveChildNodes(element, newElement);
             copyAttributes(element, newElement);
 
             element.replaceWith(newElement);
         }
-
-        return result;
     }
 
-    public static Element html(Element parent, String html, JSONObject attributes) {
-        Document document = unescapeIntermediate(html, attributes);
+    public static Element html(Element parent, String html, AsciidocElement context) {
+        Document document = unescapeIntermediate(html, context.getVariables(), context.getAnchors());
         moveChildNodes(document.body(), parent);
         return parent;
     }
@@ -0,0 +1,275 @@
+package com.github.fluorumlabs.asciidocj.server;
+
+import com.github.fluorumlabs.asciidocj.AsciiRenderedHtml;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Preview server for a directory of Asciidoc files, built on JDK {@code HttpServer}.
+ * <p>
+ * Requests for {@code page.html} (and {@code /} or {@code dir/} for {@code index}) are answered with HTML of
+ * {@code page.adoc}; other files are served as is. Rendered pages are cached, validated against file
+ * modification time, size and content hash, and served with {@code ETag}, so that {@code If-None-Match}
+ * requests are answered with 304. Pages are rendered on a bounded worker pool, and concurrent requests for
+ * the same page share a single conversion.
+ * <p>
+ * Cache and latency statistics are available as JSON at {@value #STATS_PATH}. Conversion errors are answered
+ * with 500 and the error message, and logged with {@link java.util.logging}.
+ */
+public class AsciiPreviewServer {
+    private static final Logger LOGGER = Logger.getLogger(AsciiPreviewServer.class.getName());
+
+    /**
+     * Path of statistics endpoint
+     */
+    public static final String STATS_PATH = "/_stats";
+
+    private final Path root;
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final ExecutorService renderers;
+    private final RenderCache cache;
+
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder notFound = new LongAdder();
+    private final Latency requestLatency = new Latency();
+
+    private AsciiPreviewServer(Path root, InetSocketAddress address, int renderThreads) throws IOException {
+        this.root = root.toRealPath();
+        this.renderers = Executors.newFixedThreadPool(renderThreads, daemonThreads("asciidocj-render-"));
+        // Handlers mostly wait for renderers or write cached bytes
+        this.handlers = Executors.newFixedThreadPool(renderThreads * 4, daemonThreads("asciidocj-http-"));
+        this.cache = new RenderCache(renderers);
+        this.server = HttpServer.create(address, 0);
+        this.server.setExecutor(handlers);
+        this.server.createContext("/", this::handle);
+    }
+
+    /**
+     * Create server for directory, listening on loopback interface.
+     *
+     * @param root directory with Asciidoc files
+     * @param port port, or 0 for any free port
+     * @return server, not started yet
+     * @throws IOException if directory does not exist or port cannot be bound
+     */
+    public static AsciiPreviewServer create(Path root, int port) throws IOException {
+        return create(root, new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create server for directory.
+     *
+     * @param root          directory with Asciidoc files
+     * @param address       address to listen on
+     * @param renderThreads number of concurrent conversions
+     * @return server, not started yet
+     * @throws IOException if directory does not exist or address cannot be bound
+     */
+    public static AsciiPreviewServer create(Path root, InetSocketAddress address, int renderThreads) throws IOException {
+        if (renderThreads < 1) {
+            throw new IllegalArgumentException("renderThreads must be positive");
+        }
+        return new AsciiPreviewServer(root, address, renderThreads);
+    }
+
+    /**
+     * Start accepting requests.
+     *
+     * @return this
+     */
+    public AsciiPreviewServer start() {
+        server.start();
+        return this;
+    }
+
+    /**
+     * Stop server, waiting for at most a second for requests in progress.
+     */
+    public void stop() {
+        server.stop(1);
+        handlers.shutdownNow();
+        renderers.shutdownNow();
+    }
+
+    /**
+     * Address server is listening on, with actual port if server was created with port 0.
+     *
+     * @return address
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Cache and latency statistics, as served at {@value #STATS_PATH}.
+     *
+     * @return statistics
+     */
+    public JSONObject getStats() {
+        return cache.getStats()
+                .put("notModified", notModified.sum())
+                .put("notFound", notFound.sum())
+                .put("requestLatency", requestLatency.toJSON());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        try {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                sendText(exchange, 405, "Method not allowed");
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals(STATS_PATH)) {
+                send(exchange, 200, "application/json", getStats().toString(2).getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            Path file = resolve(path);
+            if (file == null || !Files.isRegularFile(file)) {
+                if (file != null) {
+                    cache.remove(file);
+                }
+                notFound.increment();
+                sendText(exchange, 404, "Not found");
+            } else if (file.getFileName().toString().endsWith(".adoc")) {
+                servePage(exchange, file);
+            } else {
+                String contentType = Files.probeContentType(file);
+                send(exchange, 200, contentType == null ? "application/octet-stream" : contentType, Files.readAllBytes(file));
+            }
+        } finally {
+            exchange.close();
+            requestLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Map request path to file in root directory
+     *
+     * @param path request path
+     * @return file or {@code null} if path points outside of root directory
+     */
+    private Path resolve(String path) {
+        String relative = path.replaceFirst("^/+", "");
+        if (relative.isEmpty() || relative.endsWith("/")) {
+            relative += "index.adoc";
+        } else if (relative.endsWith(".html")) {
+            relative = relative.substring(0, relative.length() - 5) + ".adoc";
+        }
+        Path file = root.resolve(relative).normalize();
+        return file.startsWith(root) ? file : null;
+    }
+
+    private void servePage(HttpExchange exchange, Path file) throws IOException {
+        AsciiRenderedHtml html;
+        try {
+            html = cache.get(file).get().html;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendText(exchange, 503, "Interrupted");
+            return;
+        } catch (ExecutionException e) {
+            LOGGER.log(Level.WARNING, "Cannot render " + file, e.getCause());
+            String message = e.getCause().getMessage();
+            sendText(exchange, 500, "Cannot render page" + (message == null ? "" : ": " + message));
+            return;
+        }
+
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("ETag", html.getETag());
+        headers.set("Cache-Control", "no-cache");
+        headers.set("Vary", "Accept-Encoding");
+        if (matches(exchange.getRequestHeaders().get("If-None-Match"), html.getETag())) {
+            notModified.increment();
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        byte[] body = html.getBytes();
+        if (accepts(exchange.getRequestHeaders().get("Accept-Encoding"), "gzip")) {
+            headers.set("Content-Encoding", "gzip");
+            body = html.getBytes(AsciiRenderedHtml.Encoding.GZIP);
+        }
+        send(exchange, 200, "text/html; charset=utf-8", body);
+    }
+
+    private static boolean matches(List<String> ifNoneMatch, String etag) {
+        if (ifNoneMatch != null) {
+            for (String header : ifNoneMatch) {
+                for (String tag : header.split(",")) {
+                    String candidate = tag.trim();
+                    if (candidate.startsWith("W/")) {
+                        candidate = candidate.substring(2);
+                    }
+                    if (candidate.equals("*") || candidate.equals(etag)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean accepts(List<String> acceptEncoding, String encoding) {
+        if (acceptEncoding != null) {
+            for (String header : acceptEncoding) {
+                for (String coding : header.split(",")) {
+                    String[] parts = coding.split(";");
+                    if (parts[0].trim().equalsIgnoreCase(encoding)
+                            && (parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?"))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+        send(exchange, status, "text/plain; charset=utf-8", text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            exchange.getResponseHeaders().set("Content-Length", Integer.toString(body.length));
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
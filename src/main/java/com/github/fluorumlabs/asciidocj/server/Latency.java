@@ -0,0 +1,29 @@
+package com.github.fluorumlabs.asciidocj.server;
+
+import org.json.JSONObject;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency statistics: count, mean and maximum
+ */
+class Latency {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+    void record(long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    JSONObject toJSON() {
+        long n = count.sum();
+        return new JSONObject()
+                .put("count", n)
+                .put("meanMillis", n == 0 ? 0.0 : totalNanos.sum() / 1e6 / n)
+                .put("maxMillis", maxNanos.get() / 1e6);
+    }
+}
@@ -0,0 +1,219 @@
+package com.github.fluorumlabs.asciidocj.server;
+
+import com.github.fluorumlabs.asciidocj.AsciiDocument;
+import com.github.fluorumlabs.asciidocj.AsciiInclude;
+import com.github.fluorumlabs.asciidocj.AsciiIncludeResolver;
+import com.github.fluorumlabs.asciidocj.AsciiRenderedHtml;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rendered pages by file. Pages are validated against modification time and size of file and of every file it
+ * includes on every request, and re-rendered only if content hash of file has changed too, or if any of its
+ * includes has changed. Includes that could not be resolved are recorded as absent, so that creating them
+ * invalidates the page as well. Concurrent requests for a page that is being rendered wait for the same
+ * conversion.
+ */
+class RenderCache {
+    /**
+     * Modification time and size of file, or absence of it
+     */
+    private static final class FileState {
+        private static final FileState ABSENT = new FileState(null, -1);
+
+        private final FileTime modified;
+        private final long size;
+
+        private FileState(FileTime modified, long size) {
+            this.modified = modified;
+            this.size = size;
+        }
+
+        private static FileState of(Path file) throws IOException {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                return new FileState(attributes.lastModifiedTime(), attributes.size());
+            } catch (NoSuchFileException e) {
+                return ABSENT;
+            }
+        }
+
+        private boolean isCurrent(Path file) throws IOException {
+            FileState current = of(file);
+            return current == ABSENT ? this == ABSENT
+                    : this != ABSENT && modified.equals(current.modified) && size == current.size;
+        }
+    }
+
+    static final class Page {
+        private final FileTime modified;
+        private final long size;
+        private final byte[] sourceHash;
+        private final Map<Path, FileState> includes;
+        final AsciiRenderedHtml html;
+
+        private Page(BasicFileAttributes attributes, byte[] sourceHash, Map<Path, FileState> includes, AsciiRenderedHtml html) {
+            this.modified = attributes.lastModifiedTime();
+            this.size = attributes.size();
+            this.sourceHash = sourceHash;
+            this.includes = includes;
+            this.html = html;
+        }
+
+        private boolean isCurrent(BasicFileAttributes attributes) throws IOException {
+            return modified.equals(attributes.lastModifiedTime()) && size == attributes.size() && areIncludesCurrent();
+        }
+
+        private boolean areIncludesCurrent() throws IOException {
+            for (Map.Entry<Path, FileState> include : includes.entrySet()) {
+                if (!include.getValue().isCurrent(include.getKey())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private final ConcurrentHashMap<Path, CompletableFuture<Page>> pages = new ConcurrentHashMap<>();
+    private final Executor renderers;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder revalidated = new LongAdder();
+    private final LongAdder renders = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final Latency renderLatency = new Latency();
+
+    RenderCache(Executor renderers) {
+        this.renderers = renderers;
+    }
+
+    /**
+     * Get rendered page, starting conversion if page is not cached or is outdated
+     *
+     * @param file Asciidoc file
+     * @return page
+     * @throws IOException if file attributes cannot be read
+     */
+    CompletableFuture<Page> get(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        CompletableFuture<Page> existing = pages.get(file);
+        // Includes are checked outside of compute, which must not do I/O
+        Page checked = existing != null && existing.isDone() && !existing.isCompletedExceptionally()
+                && existing.join().isCurrent(attributes) ? existing.join() : null;
+        CompletableFuture<Page> created = new CompletableFuture<>();
+        Page[] previous = new Page[1];
+        CompletableFuture<Page> page = pages.compute(file, (key, current) -> {
+            if (current == null || current.isCompletedExceptionally()) {
+                return created;
+            }
+            if (!current.isDone()) {
+                return current;
+            }
+            Page cached = current.join();
+            if (cached == checked) {
+                return current;
+            }
+            previous[0] = cached;
+            return created;
+        });
+        if (page == created) {
+            misses.increment();
+            renderers.execute(() -> render(file, attributes, previous[0], created));
+        } else if (page.isDone()) {
+            hits.increment();
+        } else {
+            coalesced.increment();
+        }
+        return page;
+    }
+
+    void remove(Path file) {
+        pages.remove(file);
+    }
+
+    private void render(Path file, BasicFileAttributes attributes, Page previous, CompletableFuture<Page> page) {
+        long start = System.nanoTime();
+        try {
+            byte[] source = Files.readAllBytes(file);
+            byte[] sourceHash = MessageDigest.getInstance("SHA-256").digest(source);
+            if (previous != null && Arrays.equals(previous.sourceHash, sourceHash) && previous.areIncludesCurrent()) {
+                // File was touched, but not changed
+                revalidated.increment();
+                page.complete(new Page(attributes, sourceHash, previous.includes, previous.html));
+                return;
+            }
+            Map<Path, FileState> includes = new HashMap<>();
+            AsciiRenderedHtml html = AsciiDocument.from(new String(source, StandardCharsets.UTF_8))
+                    .with(recordIncludes(file, includes))
+                    .getRenderedHtml(AsciiRenderedHtml.Encoding.GZIP);
+            renders.increment();
+            renderLatency.record(System.nanoTime() - start);
+            page.complete(new Page(attributes, sourceHash, includes, html));
+        } catch (IOException | NoSuchAlgorithmException | RuntimeException e) {
+            failures.increment();
+            pages.remove(file, page);
+            page.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Resolve includes relative to file, recording state of every included file, and of files that would be
+     * included if they existed
+     *
+     * @param file     Asciidoc file
+     * @param includes states of included files, by path
+     * @return resolver
+     * @throws IOException if directory of file does not exist
+     */
+    private static AsciiIncludeResolver recordIncludes(Path file, Map<Path, FileState> includes) throws IOException {
+        AsciiIncludeResolver directory = AsciiIncludeResolver.fromDirectory(file.getParent());
+        return (target, parentLocation) -> {
+            AsciiInclude include = directory.resolve(target, parentLocation);
+            if (include != null) {
+                Path included = Paths.get(include.getLocation());
+                includes.put(included, FileState.of(included));
+            } else if (!target.contains("://")) {
+                try {
+                    Path dir = parentLocation == null ? file.getParent() : Paths.get(parentLocation).getParent();
+                    Path missing = dir.resolve(target).normalize();
+                    includes.putIfAbsent(missing, FileState.of(missing));
+                } catch (InvalidPathException ignore) {
+                    // Cannot be created either
+                }
+            }
+            return include;
+        };
+    }
+
+    JSONObject getStats() {
+        return new JSONObject()
+                .put("pages", pages.size())
+                .put("hits", hits.sum())
+                .put("misses", misses.sum())
+                .put("coalesced", coalesced.sum())
+                .put("revalidated", revalidated.sum())
+                .put("renders", renders.sum())
+                .put("failures", failures.sum())
+                .put("renderLatency", renderLatency.toJSON());
+    }
+}
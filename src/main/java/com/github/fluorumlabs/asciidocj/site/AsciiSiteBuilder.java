@@ -0,0 +1,326 @@
+package com.github.fluorumlabs.asciidocj.site;
+
+import com.github.fluorumlabs.asciidocj.AsciiDocument;
+import com.github.fluorumlabs.asciidocj.AsciiInclude;
+import com.github.fluorumlabs.asciidocj.AsciiIncludeResolver;
+import com.github.fluorumlabs.asciidocj.AsciiLimits;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Incremental builder converting a directory of Asciidoc files to a directory of HTML files.
+ * <p>
+ * Every {@code .adoc} file is converted to {@code .html} file at the same relative path, other files are
+ * copied as is. Files and directories starting with {@code _} are partials meant to be included, and files
+ * and directories starting with {@code .} are hidden; neither are converted or copied.
+ * <p>
+ * Builds are incremental: hashes of sources and of files they include are kept in a manifest in output
+ * directory, and only documents that changed, or that include a changed file, are rendered again. Changing
+ * attributes invalidates all documents. Documents are rendered in parallel.
+ */
+public class AsciiSiteBuilder {
+    /**
+     * Name of manifest file in output directory
+     */
+    public static final String MANIFEST = ".asciidocj-manifest.json";
+
+    // Editors tend to produce several events per save
+    private static final long DEBOUNCE_MILLIS = 100;
+
+    private final Path source;
+    private final Path output;
+    private final JSONObject attributes = new JSONObject();
+    private AsciiLimits limits = AsciiLimits.unlimited();
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    private AsciiSiteBuilder(Path source, Path output) {
+        this.source = source;
+        this.output = output;
+    }
+
+    /**
+     * Create builder.
+     *
+     * @param source directory with Asciidoc files
+     * @param output directory for HTML files, created if needed
+     * @return builder
+     * @throws IOException if source directory does not exist
+     */
+    public static AsciiSiteBuilder create(Path source, Path output) throws IOException {
+        Path realSource = source.toRealPath();
+        Files.createDirectories(output);
+        return new AsciiSiteBuilder(realSource, output.toRealPath());
+    }
+
+    /**
+     * Set attributes for all documents.
+     *
+     * @param attributes attributes
+     * @return this
+     */
+    public AsciiSiteBuilder with(Map<String, String> attributes) {
+        attributes.forEach(this.attributes::put);
+
+        return this;
+    }
+
+    /**
+     * Set resource limits for conversion of every document.
+     *
+     * @param limits resource limits
+     * @return this
+     */
+    public AsciiSiteBuilder with(AsciiLimits limits) {
+        this.limits = limits;
+
+        return this;
+    }
+
+    /**
+     * Set number of documents converted in parallel, number of processors by default.
+     *
+     * @param threads number of threads
+     * @return this
+     */
+    public AsciiSiteBuilder withThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+        this.threads = threads;
+
+        return this;
+    }
+
+    /**
+     * Bring output directory up to date with source directory.
+     *
+     * @return build report
+     * @throws IOException if directories or manifest cannot be read or written
+     */
+    public AsciiSiteReport build() throws IOException {
+        long start = System.nanoTime();
+        Path manifestFile = output.resolve(MANIFEST);
+        SiteManifest manifest = SiteManifest.load(manifestFile, attributes.toString());
+
+        List<String> documents = new ArrayList<>();
+        List<String> files = new ArrayList<>();
+        collect(documents, files);
+
+        Map<String, String> failures = new ConcurrentHashMap<>();
+        AtomicInteger rendered = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (String document : documents) {
+                tasks.add(executor.submit(() -> {
+                    try {
+                        if (!manifest.isDocumentUnchanged(document, source) || !Files.exists(output.resolve(toHtml(document)))) {
+                            render(document, manifest);
+                            rendered.incrementAndGet();
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        manifest.removeDocument(document);
+                        failures.put(document, String.valueOf(e.getMessage()));
+                    }
+                }));
+            }
+            await(tasks);
+        } finally {
+            executor.shutdown();
+        }
+
+        int copied = 0;
+        for (String file : files) {
+            Path target = output.resolve(file);
+            if (!manifest.isFileUnchanged(file, source) || !Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                Files.copy(source.resolve(file), target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+                manifest.putFile(file, SiteManifest.getFileState(source.resolve(file)));
+                copied++;
+            }
+        }
+
+        // Remove outputs of deleted sources
+        int deleted = 0;
+        Set<String> current = new HashSet<>(documents);
+        for (String document : new ArrayList<>(manifest.getDocuments().keySet())) {
+            if (!current.contains(document)) {
+                manifest.removeDocument(document);
+                if (Files.deleteIfExists(output.resolve(toHtml(document)))) {
+                    deleted++;
+                }
+            }
+        }
+        current = new HashSet<>(files);
+        for (String file : new ArrayList<>(manifest.getFiles().keySet())) {
+            if (!current.contains(file)) {
+                manifest.removeFile(file);
+                if (Files.deleteIfExists(output.resolve(file))) {
+                    deleted++;
+                }
+            }
+        }
+
+        manifest.save(manifestFile);
+        return new AsciiSiteReport(documents.size(), rendered.get(), copied, deleted, new TreeMap<>(failures),
+                Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Build site and keep rebuilding it on every change in source directory, until interrupted.
+     *
+     * @param listener receives report of every build
+     * @throws IOException if directories cannot be read or written
+     */
+    public void watch(Consumer<AsciiSiteReport> listener) throws IOException {
+        try (WatchService watcher = source.getFileSystem().newWatchService()) {
+            register(watcher);
+            listener.accept(build());
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watcher.take();
+                do {
+                    key.pollEvents();
+                    key.reset();
+                } while ((key = watcher.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null);
+                // New directories have to be watched too
+                register(watcher);
+                listener.accept(build());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void register(WatchService watcher) throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (isSkipped(dir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void collect(List<String> documents, List<String> files) throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                return isSkipped(dir) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && !isSkipped(file)) {
+                    String key = toKey(file);
+                    (key.endsWith(".adoc") ? documents : files).add(key);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private boolean isSkipped(Path path) {
+        if (path.equals(source)) {
+            return false;
+        }
+        String name = path.getFileName().toString();
+        return path.equals(output) || name.startsWith(".") || name.startsWith("_");
+    }
+
+    private void render(String document, SiteManifest manifest) throws IOException {
+        Path file = source.resolve(document);
+        JSONObject state = manifest.getState(file);
+        Map<String, JSONObject> includes = new TreeMap<>();
+        AsciiIncludeResolver directory = AsciiIncludeResolver.fromDirectory(source);
+        AsciiIncludeResolver recording = (target, parentLocation) -> {
+            // Includes of document itself are relative to its directory
+            AsciiInclude include = directory.resolve(target, parentLocation == null ? file.toString() : parentLocation);
+            if (include != null) {
+                Path included = source.resolve(include.getLocation());
+                synchronized (includes) {
+                    includes.put(toKey(included), manifest.getState(included));
+                }
+            } else if (!target.contains("://")) {
+                // Missing includes, like optional ones, make document depend on their absence
+                try {
+                    Path dir = (parentLocation == null ? file : Paths.get(parentLocation)).getParent();
+                    Path missing = dir.resolve(target).normalize();
+                    if (missing.startsWith(source)) {
+                        synchronized (includes) {
+                            includes.putIfAbsent(toKey(missing), SiteManifest.getAbsentState());
+                        }
+                    }
+                } catch (InvalidPathException ignore) {
+                    // Cannot be created either
+                }
+            }
+            return include;
+        };
+
+        String html = AsciiDocument.from(new String(Files.readAllBytes(file), StandardCharsets.UTF_8))
+                .with(attributes)
+                .with(limits)
+                .with(recording)
+                .getHtml();
+
+        Path target = output.resolve(toHtml(document));
+        Files.createDirectories(target.getParent());
+        Files.write(target, html.getBytes(StandardCharsets.UTF_8));
+        manifest.putDocument(document, state, includes);
+    }
+
+    private String toKey(Path file) {
+        return source.relativize(file).toString().replace('\\', '/');
+    }
+
+    private static String toHtml(String document) {
+        return document.substring(0, document.length() - ".adoc".length()) + ".html";
+    }
+
+    private static void await(List<Future<?>> tasks) throws InterruptedIOException {
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Build interrupted");
+            } catch (ExecutionException e) {
+                // Tasks record their failures
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+}
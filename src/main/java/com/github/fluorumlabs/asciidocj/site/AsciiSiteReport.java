@@ -0,0 +1,118 @@
+package com.github.fluorumlabs.asciidocj.site;
+
+import org.json.JSONObject;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Result of a site build. Instances are immutable.
+ */
+public class AsciiSiteReport {
+    private final int documents;
+    private final int rendered;
+    private final int copied;
+    private final int deleted;
+    private final Map<String, String> failures;
+    private final Duration duration;
+
+    AsciiSiteReport(int documents, int rendered, int copied, int deleted, Map<String, String> failures, Duration duration) {
+        this.documents = documents;
+        this.rendered = rendered;
+        this.copied = copied;
+        this.deleted = deleted;
+        this.failures = Collections.unmodifiableMap(failures);
+        this.duration = duration;
+    }
+
+    /**
+     * Number of documents in source directory.
+     *
+     * @return document count
+     */
+    public int getDocuments() {
+        return documents;
+    }
+
+    /**
+     * Number of documents rendered, because they or their includes have changed.
+     *
+     * @return rendered document count
+     */
+    public int getRendered() {
+        return rendered;
+    }
+
+    /**
+     * Number of documents that were up to date and were not rendered.
+     *
+     * @return cache hit count
+     */
+    public int getUpToDate() {
+        return documents - rendered - failures.size();
+    }
+
+    /**
+     * Share of documents that were up to date.
+     *
+     * @return cache hit ratio, from 0 to 1
+     */
+    public double getCacheHitRatio() {
+        return documents == 0 ? 1.0 : (double) getUpToDate() / documents;
+    }
+
+    /**
+     * Number of other files copied to output directory.
+     *
+     * @return copied file count
+     */
+    public int getCopied() {
+        return copied;
+    }
+
+    /**
+     * Number of output files deleted, because their sources were deleted.
+     *
+     * @return deleted file count
+     */
+    public int getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * Documents that could not be rendered, they are retried on next build.
+     *
+     * @return error messages by document path
+     */
+    public Map<String, String> getFailures() {
+        return failures;
+    }
+
+    /**
+     * Wall-clock time of build.
+     *
+     * @return duration
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public JSONObject toJSON() {
+        return new JSONObject()
+                .put("documents", documents)
+                .put("rendered", rendered)
+                .put("upToDate", getUpToDate())
+                .put("cacheHitRatio", getCacheHitRatio())
+                .put("copied", copied)
+                .put("deleted", deleted)
+                .put("failures", new JSONObject(failures))
+                .put("durationMillis", duration.toMillis());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d documents: %d rendered, %d up to date (%.1f%%), %d failed; %d files copied, %d deleted in %d ms",
+                documents, rendered, getUpToDate(), getCacheHitRatio() * 100, failures.size(), copied, deleted, duration.toMillis());
+    }
+}
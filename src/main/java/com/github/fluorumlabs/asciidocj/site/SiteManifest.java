@@ -0,0 +1,217 @@
+package com.github.fluorumlabs.asciidocj.site;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * State of previous build: hashes of sources and includes each document depends on. Stored as JSON in output
+ * directory.
+ * <p>
+ * Files are identified by paths relative to source directory, with forward slashes. A file is considered
+ * unchanged if its modification time and size match the manifest, or else if its content hash does, in which
+ * case its new modification time and size are recorded. Includes that could not be resolved are recorded as
+ * absent, and are unchanged as long as they do not exist.
+ */
+class SiteManifest {
+    private static final int VERSION = 1;
+
+    private final String attributes;
+    // Document entries: source state, output and states of includes
+    private final Map<String, JSONObject> documents = new ConcurrentHashMap<>();
+    // Copied files: source state
+    private final Map<String, JSONObject> files = new ConcurrentHashMap<>();
+
+    // Current state of files, computed once per build
+    private final Map<Path, JSONObject> currentStates = new ConcurrentHashMap<>();
+
+    SiteManifest(String attributes) {
+        this.attributes = attributes;
+    }
+
+    /**
+     * Load manifest of previous build. Manifest of build with different attributes is discarded, as every
+     * document depends on them.
+     *
+     * @param file       manifest file
+     * @param attributes attributes of current build, as JSON
+     * @return manifest, empty if there is no previous build
+     * @throws IOException if manifest cannot be read
+     */
+    static SiteManifest load(Path file, String attributes) throws IOException {
+        SiteManifest manifest = new SiteManifest(attributes);
+        JSONObject json;
+        try {
+            json = new JSONObject(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        } catch (NoSuchFileException e) {
+            return manifest;
+        } catch (RuntimeException e) {
+            // Corrupted manifest, rebuild everything
+            return manifest;
+        }
+        if (json.optInt("version") == VERSION && attributes.equals(json.optString("attributes"))) {
+            JSONObject documents = json.getJSONObject("documents");
+            for (String key : documents.keySet()) {
+                manifest.documents.put(key, documents.getJSONObject(key));
+            }
+            JSONObject files = json.getJSONObject("files");
+            for (String key : files.keySet()) {
+                manifest.files.put(key, files.getJSONObject(key));
+            }
+        }
+        return manifest;
+    }
+
+    void save(Path file) throws IOException {
+        JSONObject json = new JSONObject()
+                .put("version", VERSION)
+                .put("attributes", attributes)
+                .put("documents", new JSONObject(documents))
+                .put("files", new JSONObject(files));
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, json.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    Map<String, JSONObject> getDocuments() {
+        return Collections.unmodifiableMap(documents);
+    }
+
+    Map<String, JSONObject> getFiles() {
+        return Collections.unmodifiableMap(files);
+    }
+
+    /**
+     * Check if document and all its includes are unchanged since previous build
+     *
+     * @param key  document key
+     * @param root source directory
+     * @return {@code true} if document does not need to be rendered again
+     * @throws IOException if files cannot be read
+     */
+    boolean isDocumentUnchanged(String key, Path root) throws IOException {
+        JSONObject entry = documents.get(key);
+        if (entry == null || !isUnchanged(root.resolve(key), entry.getJSONObject("source"), true)) {
+            return false;
+        }
+        JSONObject includes = entry.getJSONObject("includes");
+        for (String include : includes.keySet()) {
+            if (!isUnchanged(root.resolve(include), includes.getJSONObject(include), true)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean isFileUnchanged(String key, Path root) throws IOException {
+        JSONObject state = files.get(key);
+        return state != null && isUnchanged(root.resolve(key), state, false);
+    }
+
+    void putDocument(String key, JSONObject source, Map<String, JSONObject> includes) {
+        documents.put(key, new JSONObject().put("source", source).put("includes", new JSONObject(includes)));
+    }
+
+    void putFile(String key, JSONObject state) {
+        files.put(key, state);
+    }
+
+    void removeDocument(String key) {
+        documents.remove(key);
+    }
+
+    void removeFile(String key) {
+        files.remove(key);
+    }
+
+    private boolean isUnchanged(Path file, JSONObject recorded, boolean compareHash) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return recorded.optBoolean("absent");
+        }
+        if (recorded.optBoolean("absent")) {
+            return false;
+        }
+        if (attributes.lastModifiedTime().toMillis() == recorded.getLong("modified") && attributes.size() == recorded.getLong("size")) {
+            return true;
+        }
+        if (compareHash && getState(file).getString("hash").equals(recorded.getString("hash"))) {
+            // Touched, but not changed: record new state so that file is not hashed again by next build
+            recorded.put("modified", attributes.lastModifiedTime().toMillis()).put("size", attributes.size());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get state of include that could not be resolved
+     *
+     * @return state
+     */
+    static JSONObject getAbsentState() {
+        return new JSONObject().put("absent", true);
+    }
+
+    /**
+     * Get current state of file: modification time, size and content hash
+     *
+     * @param file file
+     * @return state
+     * @throws IOException if file cannot be read
+     */
+    JSONObject getState(Path file) throws IOException {
+        JSONObject state = currentStates.get(file);
+        if (state == null) {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            state = new JSONObject()
+                    .put("modified", attributes.lastModifiedTime().toMillis())
+                    .put("size", attributes.size())
+                    .put("hash", hash(file));
+            currentStates.put(file, state);
+        }
+        return state;
+    }
+
+    /**
+     * Get current state of copied file: modification time and size only
+     *
+     * @param file file
+     * @return state
+     * @throws IOException if file attributes cannot be read
+     */
+    static JSONObject getFileState(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return new JSONObject()
+                .put("modified", attributes.lastModifiedTime().toMillis())
+                .put("size", attributes.size());
+    }
+
+    private static String hash(Path file) throws IOException {
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), MessageDigest.getInstance("SHA-256"))) {
+            byte[] buffer = new byte[8192];
+            while (in.read(buffer) >= 0) {
+                // Digest is updated while reading
+            }
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(((DigestInputStream) in).getMessageDigest().digest());
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
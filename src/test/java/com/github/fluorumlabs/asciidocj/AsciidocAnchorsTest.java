@@ -0,0 +1,101 @@
+package com.github.fluorumlabs.asciidocj;
+
+import org.jsoup.select.Elements;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * References between documents of linked document set must resolve to reference text of target anchors
+ */
+public class AsciidocAnchorsTest {
+    private static final String INSTALL = "= Installation\n:sectnums:\n\n== Requirements\n\nText\n\n[[setup,Setup guide]]\n== Setup\n\nText\n";
+
+    private static String link(AsciiDocument document) {
+        return document.getDocumentBody().select("a[href]").first().outerHtml();
+    }
+
+    @Test
+    public void testForwardReference() {
+        AsciiAnchors anchors = AsciiAnchors.create();
+        AsciiDocument index = AsciiDocument.from("See xref:guide/install.adoc#setup[].").with(anchors, "index.adoc");
+        AsciiDocument install = AsciiDocument.from(INSTALL).with(anchors, "guide/install.adoc");
+        AsciidocEngine.convertAll(Arrays.asList(index, install));
+
+        Assert.assertEquals("<a href=\"guide/install.html#setup\">Setup guide</a>", link(index));
+    }
+
+    @Test
+    public void testRelativeReference() {
+        AsciiAnchors anchors = AsciiAnchors.create();
+        AsciiDocument install = AsciiDocument.from(INSTALL).with(anchors, "guide/install.adoc");
+        AsciiDocument faq = AsciiDocument.from("See <<install#_requirements>>.").with(anchors, "guide/faq.adoc");
+        AsciiDocument index = AsciiDocument.from("See <<./guide/../guide/install.adoc#setup>>.").with(anchors, "index.adoc");
+        AsciidocEngine.convertAll(Arrays.asList(faq, index, install));
+
+        Assert.assertEquals("<a href=\"install.html#_requirements\">Requirements</a>", link(faq));
+        Assert.assertEquals("<a href=\"./guide/../guide/install.html#setup\">Setup guide</a>", link(index));
+    }
+
+    @Test
+    public void testExplicitText() {
+        AsciiAnchors anchors = AsciiAnchors.create();
+        AsciiDocument index = AsciiDocument.from("See <<install.adoc#setup,this>>.").with(anchors, "index.adoc");
+        AsciidocEngine.convertAll(Arrays.asList(index, AsciiDocument.from(INSTALL).with(anchors, "install.adoc")));
+
+        Assert.assertEquals("<a href=\"install.html#setup\">this</a>", link(index));
+    }
+
+    @Test
+    public void testXrefStyle() {
+        AsciiAnchors anchors = AsciiAnchors.create();
+        AsciiDocument index = AsciiDocument.from(":xrefstyle: short\n\nSee <<install.adoc#_requirements>>.").with(anchors, "index.adoc");
+        AsciidocEngine.convertAll(Arrays.asList(index, AsciiDocument.from(INSTALL).with(anchors, "install.adoc")));
+
+        Assert.assertEquals("<a href=\"install.html#_requirements\">Section 1</a>", link(index));
+    }
+
+    @Test
+    public void testUnresolved() {
+        AsciiAnchors anchors = AsciiAnchors.create();
+        AsciiDocument index = AsciiDocument.from("See <<install.adoc#missing>> and <<other.adoc#setup>>.").with(anchors, "index.adoc");
+        AsciidocEngine.convertAll(Arrays.asList(index, AsciiDocument.from(INSTALL).with(anchors, "install.adoc")));
+
+        Assert.assertEquals("<p>See <a href=\"install.html#missing\">[install.html#missing]</a> and "
+                        + "<a href=\"other.html#setup\">[other.html#setup]</a>.</p>",
+                index.getDocumentBody().select("p").outerHtml());
+    }
+
+    @Test
+    public void testRepeatedReference() {
+        AsciiDocument document = AsciiDocument.from("== The *bold* `code` section\n\n"
+                + "See <<_the_bold_code_section>> and <<_the_bold_code_section>>.\n");
+        Elements links = document.getDocumentBody().select("a[href]");
+
+        Assert.assertEquals(2, links.size());
+        Assert.assertEquals("<a href=\"#_the_bold_code_section\">The <strong>bold</strong> <code>code</code> section</a>",
+                links.get(0).outerHtml());
+        Assert.assertEquals(links.get(0).outerHtml(), links.get(1).outerHtml());
+        Assert.assertNotSame(links.get(0).child(0), links.get(1).child(0));
+    }
+
+    @Test
+    public void testStandalone() {
+        Assert.assertEquals("<a href=\"install.html#setup\">[install.html#setup]</a>",
+                link(AsciiDocument.from("See <<install.adoc#setup>>.")));
+    }
+
+    @Test
+    public void testAnchors() {
+        AsciiAnchors anchors = AsciiAnchors.create();
+        AsciiDocument.from(INSTALL).with(anchors, "guide\\install.adoc").getHtml();
+
+        Assert.assertEquals(Arrays.asList("guide/install"), Arrays.asList(anchors.getDocuments().toArray()));
+        Assert.assertTrue(anchors.contains("guide/install.adoc", "setup"));
+        Assert.assertTrue(anchors.contains("guide/install", "_requirements"));
+        Assert.assertFalse(anchors.contains("guide/install.adoc", "missing"));
+        Assert.assertEquals(2, anchors.getIds("guide/install.adoc").size());
+        Assert.assertTrue(anchors.getIds("other.adoc").isEmpty());
+    }
+}
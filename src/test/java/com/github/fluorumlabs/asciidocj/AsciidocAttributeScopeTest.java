@@ -0,0 +1,80 @@
+package com.github.fluorumlabs.asciidocj;
+
+import com.github.fluorumlabs.asciidocj.impl.AttributeScope;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Baseline attributes must not be modified by conversion, so they can be shared by documents
+ */
+public class AsciidocAttributeScopeTest {
+    private static final String DOCUMENT = "= Title\n:b: defined\n:a!:\n\nA is {a}, B is {b}, C is {c}.footnote:[Note]\n\n"
+            + "== Section\n\n[subs=-attributes]\nNot {b}\n\nIs {b} and pass:q[*{b}*]\n";
+
+    @Test
+    public void testScope() {
+        JSONObject parent = new JSONObject().put("a", "1").put("b", "2");
+        AttributeScope scope = new AttributeScope(parent);
+        scope.put("c", "3");
+        scope.remove("a");
+        scope.put("b", "overridden");
+
+        Assert.assertFalse(scope.has("a"));
+        Assert.assertNull(scope.opt("a"));
+        Assert.assertEquals("overridden", scope.getString("b"));
+        Assert.assertEquals(3, scope.optInt("c"));
+        Assert.assertEquals(new HashSet<>(Arrays.asList("b", "c")), scope.keySet());
+        Assert.assertEquals(2, scope.length());
+        Assert.assertEquals("overridden", scope.toMap().get("b"));
+        Assert.assertTrue(new JSONObject().put("b", "overridden").put("c", "3").similar(new JSONObject(scope.toString())));
+
+        scope.put("a", "restored");
+        Assert.assertEquals("restored", scope.optString("a"));
+
+        Assert.assertTrue(new JSONObject().put("a", "1").put("b", "2").similar(parent));
+    }
+
+    @Test
+    public void testBaselineNotModified() {
+        JSONObject baseline = new JSONObject().put("a", "from baseline").put("c", "also from baseline");
+        String expected = baseline.toString();
+        AsciiDocument document = AsciiDocument.from(DOCUMENT, baseline).with(new JSONObject().put("d", "set"));
+
+        Assert.assertTrue(document.getHtml().contains("B is defined, C is also from baseline."));
+        Assert.assertEquals(expected, baseline.toString());
+
+        JSONObject attributes = document.getAttributesAsJSON();
+        Assert.assertFalse(attributes.has("a"));
+        Assert.assertEquals("defined", attributes.getString("b"));
+        Assert.assertEquals("set", attributes.getString("d"));
+    }
+
+    @Test
+    public void testSharedBaseline() throws Exception {
+        JSONObject baseline = new JSONObject().put("a", "from baseline").put("c", "also from baseline");
+        String expected = AsciiDocument.from(DOCUMENT, new JSONObject(baseline.toMap())).getHtml();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                results.add(executor.submit(() -> AsciiDocument.from(DOCUMENT, baseline).getHtml()));
+            }
+            for (Future<String> result : results) {
+                Assert.assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(2, baseline.length());
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.fluorumlabs.asciidocj;
+
+import com.github.fluorumlabs.asciidocj.cli.AsciidocCli;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Command-line converter must convert files matched by arguments and report throughput
+ */
+public class AsciidocCliTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path source;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    private void write(String file, String content) throws IOException {
+        Path path = source.resolve(file);
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    private int run(String... args) {
+        return AsciidocCli.run(args, new PrintStream(out, true), new PrintStream(err, true));
+    }
+
+    @Before
+    public void createSource() throws IOException {
+        source = folder.newFolder("docs").toPath();
+        write("index.adoc", "= Index\n\nVersion {version}\n");
+        write("guide/install.adoc", "== Install\n\ninclude::steps.adoc[]\n");
+        write("guide/steps.adoc", "Run *setup*.\n");
+        write("guide/notes.txt", "Not Asciidoc");
+    }
+
+    @Test
+    public void testGlob() throws IOException {
+        Path output = folder.getRoot().toPath().resolve("out");
+        Assert.assertEquals(0, run("-a", "version=1.0", "-j", "2", "-o", output.toString(), source + "/**/*.adoc"));
+
+        Assert.assertEquals(AsciiDocument.from("= Index\n\nVersion 1.0\n").getHtml(), read(output.resolve("index.html")));
+        Assert.assertTrue(read(output.resolve("guide/install.html")).contains("Run <strong>setup</strong>."));
+        Assert.assertTrue(Files.exists(output.resolve("guide/steps.html")));
+        Assert.assertFalse(Files.exists(output.resolve("guide/notes.html")));
+
+        String report = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        Assert.assertTrue(report, report.matches("(?s)Documents: +3 \\(0 failed\\).*docs/sec.*MB/sec.*p50.*p99.*Slowest documents:.*"));
+    }
+
+    @Test
+    public void testDirectoryAndFile() throws IOException {
+        Assert.assertEquals(0, run("-s", "1", source.resolve("guide").toString(), source.resolve("index.adoc").toString()));
+
+        Assert.assertTrue(Files.exists(source.resolve("guide/install.html")));
+        Assert.assertTrue(Files.exists(source.resolve("index.html")));
+        Assert.assertTrue(read(source.resolve("index.html")).contains("Version {version}"));
+    }
+
+    @Test
+    public void testOutputCollision() throws IOException {
+        write("a/x.adoc", "First\n");
+        write("b/x.adoc", "Second\n");
+        Path output = folder.getRoot().toPath().resolve("out");
+
+        Assert.assertEquals(2, run("-o", output.toString(), source.resolve("a/x.adoc").toString(), source.resolve("b/x.adoc").toString()));
+        Assert.assertTrue(new String(err.toByteArray(), StandardCharsets.UTF_8).contains("would be written to"));
+        Assert.assertFalse(Files.exists(output.resolve("x.html")));
+
+        // Same file given twice is converted once
+        Assert.assertEquals(0, run("-o", output.toString(), source.resolve("a/x.adoc").toString(), source.resolve("a/../a/x.adoc").toString()));
+        Assert.assertTrue(read(output.resolve("x.html")).contains("First"));
+        Assert.assertTrue(new String(out.toByteArray(), StandardCharsets.UTF_8).matches("(?s)Documents: +1 \\(.*"));
+
+        // Without output directory outputs are written next to sources
+        Assert.assertEquals(0, run(source.resolve("a/x.adoc").toString(), source.resolve("b/x.adoc").toString()));
+        Assert.assertTrue(read(source.resolve("b/x.html")).contains("Second"));
+    }
+
+    @Test
+    public void testErrors() {
+        Assert.assertEquals(2, run("-j", "0", source.toString()));
+        Assert.assertEquals(2, run("--unknown"));
+        Assert.assertEquals(2, run(source.resolve("missing.adoc").toString()));
+        Assert.assertEquals(0, run("--help"));
+        Assert.assertTrue(new String(out.toByteArray(), StandardCharsets.UTF_8).startsWith("Usage:"));
+    }
+}
@@ -0,0 +1,160 @@
+package com.github.fluorumlabs.asciidocj;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Conversion time of pathological inputs must grow roughly linearly with input size.
+ * <p>
+ * Not a part of default build, run with {@code mvn test -Pcomplexity}. Sizes are controlled with
+ * {@code complexity.minSize} and {@code complexity.maxSize} system properties; each step is 10x larger
+ * than the previous one.
+ */
+@RunWith(Parameterized.class)
+public class AsciidocComplexityTest {
+    private static final int MIN_SIZE = Integer.getInteger("complexity.minSize", 1024);
+    private static final int MAX_SIZE = Integer.getInteger("complexity.maxSize", 1024 * 1024);
+    private static final int STEP = 10;
+
+    // Steps faster than that are dominated by noise and are not compared
+    private static final long MIN_MEASURABLE_NANOS = 20_000_000L;
+
+    // Linear growth gives ratio of STEP, quadratic -- STEP*STEP
+    private static final double MAX_RATIO = STEP * 3.0;
+
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][]{
+                {"unmatched-strong", repeat("Some *text ", "", "")},
+                {"unmatched-emphasis", repeat("Some _text ", "", "")},
+                {"unmatched-monospace", repeat("Some `text ", "", "")},
+                {"unmatched-constrained-mix", repeat("a *b _c `d #e ", "", "")},
+                {"unmatched-xref", repeat("See <<section ", "", "")},
+                {"ifdef-without-endif", repeat("ifdef::attribute[]\nSome text\n\n", "", "")},
+                {"huge-ifdef-region", repeat("Some text\n\n", "ifdef::attribute[]\n", "")},
+                {"long-formatted-paragraph", repeat("Some *strong* _emphasis_ `monospace` text ", "", "")},
+                {"nested-lists", repeat("* One\n** Two\n*** Three\n**** Four\n***** Five\n", "", "")},
+                {"nested-list-continuations", repeat("* Item\n+\n====\n.Title\n****\nText\n****\n====\n", "", "")},
+                {"nested-example-blocks", repeat("====\n****\n____\nText\n____\n****\n====\n\n", "", "")},
+                // Nesting depth grows with input size, up to what the grammar allows
+                {"deep-list-markers", nest(depth -> times('*', depth + 1) + " Item\n", depth -> "", Integer.MAX_VALUE, "")},
+                {"deep-nested-lists", (IntFunction<String>) size -> nest(AsciidocComplexityTest::openNestedList,
+                        AsciidocComplexityTest::closeNestedList, getListDepth(size), "").apply(size)},
+                // Example block ends at the first delimiter of any length, so these nest in input only
+                {"deep-nested-example-blocks", nest(depth -> times('=', depth + 4) + "\n",
+                        depth -> times('=', depth + 4) + "\n", 125, "Text\n")},
+                {"table-spans", repeat("3+|span .2+|row 2.2+|both |a |b\n", "[cols=\"6*\"]\n|===\n", "|===\n")},
+                {"duplicate-section-titles", repeat("== Title\n\nText\n\n", "", "")},
+                {"many-anchors-unresolved-xrefs", repeat("== Title\n\nSee <<missing reference>>.\n\n", "", "")},
+        });
+    }
+
+    private static IntFunction<String> repeat(String pattern, String prefix, String suffix) {
+        return size -> {
+            StringBuilder result = new StringBuilder(size + prefix.length() + suffix.length() + pattern.length());
+            result.append(prefix);
+            while (result.length() < size) {
+                result.append(pattern);
+            }
+            return result.append(suffix).toString();
+        };
+    }
+
+    /**
+     * Nest blocks as deep as input size allows, up to maximum depth, then repeat the whole nest
+     */
+    private static IntFunction<String> nest(IntFunction<String> open, IntFunction<String> close, int maxDepth, String content) {
+        return size -> {
+            StringBuilder opening = new StringBuilder();
+            List<String> closing = new ArrayList<>();
+            for (int depth = 0; depth < maxDepth && opening.length() * 2 < size; depth++) {
+                opening.append(open.apply(depth));
+                closing.add(close.apply(depth));
+            }
+            StringBuilder pattern = opening.append(content);
+            for (int i = closing.size() - 1; i >= 0; i--) {
+                pattern.append(closing.get(i));
+            }
+            return repeat(pattern.append('\n').toString(), "", "").apply(size);
+        };
+    }
+
+    // Lists nest 5 levels of unordered and 5 levels of ordered items, and start over in continued container blocks
+    private static final int LIST_LEVELS = 10;
+    private static final String[] CONTAINERS = {"====", "****", "____", "--"};
+
+    /**
+     * Nesting depth of lists, growing by one container of list levels with every step, up to the deepest nesting
+     */
+    private static int getListDepth(int size) {
+        int steps = (int) Math.round(Math.log((double) size / MIN_SIZE) / Math.log(STEP));
+        return LIST_LEVELS * Math.min(steps + 1, CONTAINERS.length + 1);
+    }
+
+    private static String openNestedList(int depth) {
+        int level = depth % LIST_LEVELS;
+        int container = depth / LIST_LEVELS;
+        String item = (level < 5 ? times('*', level + 1) : times('.', level - 4)) + " Item\n";
+        return level == LIST_LEVELS - 1 && container < CONTAINERS.length ? item + "+\n" + CONTAINERS[container] + "\n" : item;
+    }
+
+    private static String closeNestedList(int depth) {
+        int level = depth % LIST_LEVELS;
+        int container = depth / LIST_LEVELS;
+        return level == LIST_LEVELS - 1 && container < CONTAINERS.length ? CONTAINERS[container] + "\n" : "";
+    }
+
+    private static String times(char c, int count) {
+        char[] result = new char[count];
+        Arrays.fill(result, c);
+        return new String(result);
+    }
+
+    private final IntFunction<String> generator;
+
+    public AsciidocComplexityTest(String id, IntFunction<String> generator) {
+        this.generator = generator;
+    }
+
+    private long measure(int size) {
+        String asciidoc = generator.apply(size);
+        long best = Long.MAX_VALUE;
+        // Best of several runs for small inputs to filter out JIT and GC noise
+        int runs = size < 1024 * 1024 ? 3 : 1;
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            AsciiDocument.from(asciidoc).getHtml();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    @Test
+    public void testLinearGrowth() {
+        // warm up
+        measure(MIN_SIZE * STEP);
+
+        List<String> report = new ArrayList<>();
+        long previous = -1;
+        for (int size = MIN_SIZE; size <= MAX_SIZE; size *= STEP) {
+            long time = measure(size);
+            report.add(String.format("%d: %.1fms", size, time / 1e6));
+            if (previous >= MIN_MEASURABLE_NANOS) {
+                double ratio = (double) time / previous;
+                Assert.assertTrue(String.format("Non-linear growth (x%.1f for x%d input): %s", ratio, STEP, report),
+                        ratio <= MAX_RATIO);
+            }
+            previous = time;
+        }
+        System.out.println(report);
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.fluorumlabs.asciidocj;
+
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Documents with conditionals must be converted the same way as documents with only included regions
+ */
+public class AsciidocConditionalTest {
+    private static void assertConditional(String expected, String asciidoc) {
+        Assert.assertEquals(AsciiDocument.from(expected).getHtml(), AsciiDocument.from(asciidoc).getHtml());
+    }
+
+    @Test
+    public void testIfdef() {
+        assertConditional(":a:\n\nBefore\n\nIncluded\n\nAfter\n",
+                ":a:\n\nBefore\n\nifdef::a[]\nIncluded\nendif::a[]\n\nAfter\n");
+        assertConditional("Before\n\nAfter\n",
+                "Before\n\nifdef::a[]\nExcluded\nendif::a[]\n\nAfter\n");
+    }
+
+    @Test
+    public void testIfndef() {
+        assertConditional("Included\n", "ifndef::a[]\nIncluded\nendif::[]\n");
+        assertConditional(":a:\n", ":a:\nifndef::a[]\nExcluded\nendif::[]\n");
+        assertConditional(":a:\n:a!:\nIncluded\n", ":a:\n:a!:\nifndef::a[]\nIncluded\nendif::[]\n");
+    }
+
+    @Test
+    public void testPassedAttributes() {
+        Assert.assertEquals(AsciiDocument.from("Included\n").getHtml(),
+                AsciiDocument.from("ifdef::a[]\nIncluded\nendif::[]\n", new JSONObject().put("a", "")).getHtml());
+        Assert.assertEquals(AsciiDocument.from("Included\n").getHtml(),
+                AsciiDocument.from("ifndef::a[]\nIncluded\nendif::[]\n", new JSONObject().put("a", "").put("a!", "")).getHtml());
+    }
+
+    @Test
+    public void testAnyAndAll() {
+        assertConditional(":a:\nAny\n", ":a:\nifdef::a,b[]\nAny\nendif::[]\nifdef::a+b[]\nAll\nendif::[]\n");
+        assertConditional(":a:\nAny\n", ":a:\nifndef::a+b[]\nAny\nendif::[]\nifndef::a,b[]\nAll\nendif::[]\n");
+    }
+
+    @Test
+    public void testSingleLine() {
+        assertConditional(":a:\nFirst\nSecond\n", ":a:\nFirst\nifdef::a[Second]\nifndef::a[Third]\n");
+    }
+
+    @Test
+    public void testNesting() {
+        assertConditional(":a:\nOne\nFour\n",
+                ":a:\nOne\nifdef::b[]\nTwo\nifdef::a[]\nThree\nendif::a[]\nendif::b[]\nFour\n");
+        assertConditional(":a:\n:b:\nOne\nTwo\nThree\nFour\n",
+                ":a:\n:b:\nOne\nifdef::b[]\nTwo\nifdef::a[]\nThree\nendif::a[]\nendif::b[]\nFour\n");
+    }
+
+    @Test
+    public void testIfeval() {
+        assertConditional(":level: 2\nIncluded\n", ":level: 2\nifeval::[{level} > 1]\nIncluded\nendif::[]\n");
+        assertConditional(":level: 2\n", ":level: 2\nifeval::[{level} >= 3]\nExcluded\nendif::[]\n");
+        assertConditional(":name: value\nIncluded\n", ":name: value\nifeval::[\"{name}\" == \"value\"]\nIncluded\nendif::[]\n");
+        assertConditional("Included\n", "ifeval::[\"{missing}\" == \"\"]\nIncluded\nendif::[]\n");
+        assertConditional("Included\n", "ifeval::[2.0 == 2]\nIncluded\nendif::[]\n");
+        assertConditional("", "ifeval::[\"2\" == 2]\nExcluded\nendif::[]\n");
+    }
+
+    @Test
+    public void testConditionalInsideBlock() {
+        assertConditional("====\nFirst\nThird\n====\n",
+                "====\nFirst\nifdef::a[]\nSecond\nendif::[]\nThird\n====\n");
+    }
+
+    @Test
+    public void testUnterminated() {
+        assertConditional("Before\n", "Before\nifdef::a[]\nExcluded\n\nExcluded\n");
+    }
+
+    @Test
+    public void testEscaped() {
+        String html = AsciiDocument.from("\\ifdef::a[]\nText\n\\endif::a[]\n").getHtml();
+        Assert.assertTrue(html, html.contains("ifdef::a[]") && html.contains("Text") && html.contains("endif::a[]"));
+    }
+}
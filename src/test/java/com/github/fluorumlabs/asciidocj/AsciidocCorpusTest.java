@@ -0,0 +1,36 @@
+package com.github.fluorumlabs.asciidocj;
+
+import org.jsoup.nodes.Element;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Generated corpus must be deterministic and cover the features performance suite is meant to exercise
+ */
+public class AsciidocCorpusTest {
+    @Test
+    public void testDeterministic() {
+        String asciidoc = CorpusGenerator.generate(100_000);
+        Assert.assertEquals(asciidoc, CorpusGenerator.generate(100_000));
+        Assert.assertNotEquals(asciidoc, new CorpusGenerator(1, 100_000).document(100_000));
+        Assert.assertTrue(asciidoc.length() >= 100_000);
+        Assert.assertTrue(asciidoc.length() < 120_000);
+    }
+
+    @Test
+    public void testFeatures() {
+        Element body = AsciiDocument.from(CorpusGenerator.generate(100_000)).getDocumentBody();
+
+        Assert.assertFalse(body.select("#toc").isEmpty());
+        Assert.assertFalse(body.select(".sect3").isEmpty());
+        Assert.assertFalse(body.select(".ulist .ulist").isEmpty());
+        Assert.assertFalse(body.select(".olist").isEmpty());
+        Assert.assertFalse(body.select(".dlist").isEmpty());
+        Assert.assertFalse(body.select(".tableblock thead").isEmpty());
+        Assert.assertFalse(body.select(".listingblock + .colist").isEmpty());
+        Assert.assertFalse(body.select(".admonitionblock").isEmpty());
+        Assert.assertFalse(body.select(".exampleblock").isEmpty());
+        Assert.assertFalse(body.select("#footnotes .footnote").isEmpty());
+        Assert.assertFalse(body.select("a[href=#sec-1]").isEmpty());
+    }
+}
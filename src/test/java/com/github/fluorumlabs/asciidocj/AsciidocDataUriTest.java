@@ -0,0 +1,110 @@
+package com.github.fluorumlabs.asciidocj;
+
+import com.github.fluorumlabs.asciidocj.impl.DataUriCache;
+import com.github.fluorumlabs.asciidocj.impl.DirectoryImageResolver;
+import com.github.fluorumlabs.asciidocj.impl.ImageSizeCache;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Base64;
+import java.util.Random;
+
+/**
+ * With data-uri attribute local images must be embedded as data: URIs
+ */
+public class AsciidocDataUriTest {
+    private static final String SVG = "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"10\" height=\"20\"/>";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path images;
+    private DataUriCache cache;
+    private AsciiImageResolver resolver;
+
+    @Before
+    public void setUp() throws IOException {
+        images = folder.newFolder("images").toPath();
+        cache = new DataUriCache(1024 * 1024);
+        resolver = new DirectoryImageResolver(folder.getRoot().toPath(), new ImageSizeCache(100), cache);
+        Files.write(images.resolve("logo.svg"), SVG.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String convert(String asciidoc) {
+        return AsciiDocument.from(asciidoc).with(resolver).getHtml();
+    }
+
+    private static String dataUri(String mimeType, byte[] content) {
+        return "data:" + mimeType + ";base64," + Base64.getEncoder().encodeToString(content);
+    }
+
+    @Test
+    public void testMacros() {
+        String uri = dataUri("image/svg+xml", SVG.getBytes(StandardCharsets.UTF_8));
+
+        Assert.assertEquals("<div class=\"imageblock\"><div class=\"content\"><img src=\"" + uri + "\" alt=\"logo\" width=\"10\" height=\"20\"></div></div>",
+                convert(":data-uri:\n\nimage::logo.svg[]"));
+        Assert.assertEquals("<div class=\"paragraph\"><p>Inline <span class=\"image\"><img src=\"" + uri + "\" alt=\"logo\" width=\"10\" height=\"20\"></span></p></div>",
+                convert(":data-uri:\n\nInline image:logo.svg[]"));
+        Assert.assertEquals("<div class=\"imageblock\"><div class=\"content\"><object data=\"" + uri + "\" type=\"image/svg+xml\" width=\"10\" height=\"20\"><span class=\"alt\">logo</span></object></div></div>",
+                convert(":data-uri:\n\nimage::logo.svg[opts=interactive]"));
+        // Without attribute, or for images that cannot be resolved, images are referenced
+        Assert.assertEquals("<div class=\"imageblock\"><div class=\"content\"><img src=\"images/logo.svg\" alt=\"logo\" width=\"10\" height=\"20\"></div></div>",
+                convert("image::logo.svg[]"));
+        Assert.assertEquals(AsciiDocument.from(":data-uri:\n\nimage::missing.png[]").getHtml(), convert(":data-uri:\n\nimage::missing.png[]"));
+        Assert.assertEquals(AsciiDocument.from(":data-uri:\n\nimage::https://example.com/a.png[]").getHtml(),
+                convert(":data-uri:\n\nimage::https://example.com/a.png[]"));
+    }
+
+    @Test
+    public void testEncoding() throws IOException {
+        // Sizes around chunk boundaries and padding variants
+        Random random = new Random(42);
+        for (int length : new int[]{0, 1, 2, 3, 48 * 1024 - 1, 48 * 1024, 48 * 1024 + 1, 200_000}) {
+            byte[] content = new byte[length];
+            random.nextBytes(content);
+            Files.write(images.resolve("random.png"), content);
+            Files.setLastModifiedTime(images.resolve("random.png"), FileTime.fromMillis(length * 1000L));
+
+            Assert.assertEquals(dataUri("image/png", content), resolver.getDataUri("images/random.png", Long.MAX_VALUE));
+        }
+    }
+
+    @Test
+    public void testMaxSize() throws IOException {
+        Files.write(images.resolve("large.jpg"), new byte[2000]);
+
+        Assert.assertTrue(convert(":data-uri:\n\nimage::large.jpg[]").contains("src=\"data:image/jpeg;base64,"));
+        Assert.assertTrue(convert(":data-uri:\n:data-uri-maxsize: 1000\n\nimage::large.jpg[]").contains("src=\"images/large.jpg\""));
+    }
+
+    @Test
+    public void testCache() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            convert(":data-uri:\n\nimage::logo.svg[]\n\nimage:logo.svg[]");
+        }
+        Assert.assertEquals(1, cache.size());
+
+        String modified = SVG.replace("10", "30");
+        Files.write(images.resolve("logo.svg"), modified.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(images.resolve("logo.svg"), FileTime.fromMillis(System.currentTimeMillis() + 10000));
+        Assert.assertEquals(dataUri("image/svg+xml", modified.getBytes(StandardCharsets.UTF_8)),
+                resolver.getDataUri("images/logo.svg", Long.MAX_VALUE));
+
+        // Entries are evicted once size of encoded images exceeds the limit
+        DataUriCache small = new DataUriCache(300);
+        Files.write(images.resolve("a.png"), new byte[150]);
+        Files.write(images.resolve("b.png"), new byte[150]);
+        small.get(images.resolve("a.png").toRealPath(), Long.MAX_VALUE);
+        small.get(images.resolve("b.png").toRealPath(), Long.MAX_VALUE);
+        Assert.assertEquals(1, small.size());
+    }
+}
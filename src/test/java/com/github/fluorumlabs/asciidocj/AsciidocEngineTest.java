@@ -0,0 +1,74 @@
+package com.github.fluorumlabs.asciidocj;
+
+import com.github.fluorumlabs.asciidocj.impl.AsciidocRenderer;
+import com.github.fluorumlabs.asciidocj.impl.LexerProfile;
+import com.github.fluorumlabs.asciidocj.impl.ParserException;
+import com.github.fluorumlabs.asciidocj.impl.jflex.AsciidocDocumentParser;
+import com.github.fluorumlabs.asciidocj.impl.jflex.AsciidocFormatter;
+import org.apache.commons.io.IOUtils;
+import org.json.JSONObject;
+import org.jsoup.nodes.Element;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Warm-up corpus must exercise every renderer and every lexical state of document parser and formatter
+ */
+public class AsciidocEngineTest {
+    @Test
+    public void testCorpusCoversAllRenderers() throws IOException, ParserException {
+        String corpus = IOUtils.toString(AsciidocEngine.class.getResourceAsStream("warmup.adoc"), "UTF-8");
+        Set<String> tags = new HashSet<>();
+        new AsciidocDocumentParser() {
+            @Override
+            protected void enrich() {
+                for (Element element : document.getAllElements()) {
+                    tags.add(element.tagName());
+                }
+                super.enrich();
+            }
+        }.parse(corpus, new JSONObject());
+
+        for (AsciidocRenderer renderer : AsciidocRenderer.values()) {
+            Assert.assertTrue("Not covered: " + renderer, tags.contains(renderer.tag()));
+        }
+    }
+
+    @Test
+    public void testWarmUpCoversAllLexicalStates() throws IllegalAccessException {
+        LexerProfile profile = new LexerProfile();
+        LexerProfile previous = LexerProfile.activate(profile);
+        try {
+            AsciidocEngine.warmUp(1);
+        } finally {
+            LexerProfile.activate(previous);
+        }
+
+        for (Class<?> lexer : Arrays.asList(AsciidocDocumentParser.class, AsciidocFormatter.class)) {
+            BitSet states = profile.getLexers().get(lexer.getSimpleName()).getStates();
+            for (Field field : lexer.getDeclaredFields()) {
+                // Lexical states are the only int constants of generated lexers besides ZZ_ tables and YYEOF
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) && Modifier.isFinal(modifiers) && field.getType() == int.class
+                        && !field.getName().startsWith("ZZ_") && !field.getName().equals("YYEOF")) {
+                    field.setAccessible(true);
+                    Assert.assertTrue("Not covered: " + lexer.getSimpleName() + "." + field.getName(),
+                            states.get(field.getInt(null)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testWarmUp() {
+        AsciidocEngine.warmUp(1);
+    }
+}
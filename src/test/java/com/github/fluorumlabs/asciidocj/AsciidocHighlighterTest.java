@@ -0,0 +1,86 @@
+package com.github.fluorumlabs.asciidocj;
+
+import com.github.fluorumlabs.asciidocj.impl.SourceHighlighter;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.TextNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Server-side highlighting of source blocks must keep the text and callouts intact
+ */
+public class AsciidocHighlighterTest {
+    private static String code(String asciidoc) {
+        return AsciiDocument.from(asciidoc).getDocumentBody().select("code").outerHtml();
+    }
+
+    @Test
+    public void testJava() {
+        Assert.assertEquals("<code data-lang=\"java\"><span class=\"k\">public</span> <span class=\"kt\">int</span> "
+                        + "x = <span class=\"m\">42</span>; <span class=\"c\">// </span><b class=\"conum\">(1)</b>\n"
+                        + "<span class=\"nd\">@Deprecated</span> String s = <span class=\"s\">\"a\\\"b\"</span>;</code>",
+                code(":source-highlighter: asciidocj\n\n[source,java]\n----\npublic int x = 42; // <1>\n"
+                        + "@Deprecated String s = \"a\\\"b\";\n----\n<1> Answer\n"));
+    }
+
+    @Test
+    public void testXml() {
+        Assert.assertEquals("<code data-lang=\"xml\"><span class=\"nt\">&lt;a</span> <span class=\"na\">href</span>="
+                        + "<span class=\"s\">\"#\"</span><span class=\"nt\">&gt;</span>x <span class=\"ni\">&amp;amp;</span> y"
+                        + "<span class=\"nt\">&lt;/a&gt;</span> <span class=\"c\">&lt;!-- c --&gt;</span></code>",
+                code(":source-highlighter: asciidocj\n\n[source,xml]\n----\n<a href=\"#\">x &amp; y</a> <!-- c -->\n----\n"));
+    }
+
+    @Test
+    public void testYaml() {
+        Assert.assertEquals("<code data-lang=\"yaml\"><span class=\"na\">key:</span> <span class=\"s\">'value'</span> "
+                        + "<span class=\"c\"># note</span>\n<span class=\"na\">on:</span> <span class=\"kc\">true</span></code>",
+                code(":source-highlighter: asciidocj\n\n[source,yaml]\n----\nkey: 'value' # note\non: true\n----\n"));
+    }
+
+    @Test
+    public void testShell() {
+        Assert.assertEquals("<code data-lang=\"bash\"><span class=\"c\"># setup</span>\n"
+                        + "<span class=\"k\">export</span> A=<span class=\"nv\">$HOME</span> "
+                        + "<span class=\"c\"># home</span>\necho a#b</code>",
+                code(":source-highlighter: asciidocj\n\n[source,bash]\n----\n# setup\nexport A=$HOME # home\necho a#b\n----\n"));
+    }
+
+    @Test
+    public void testJavaContextualKeywords() {
+        Assert.assertEquals("<code data-lang=\"java\"><span class=\"k\">var</span> record = "
+                        + "<span class=\"k\">new</span> Point();\nrecord.get(var);\n"
+                        + "<span class=\"k\">record</span> Point(<span class=\"kt\">int</span> x) {}\n"
+                        + "yield = <span class=\"m\">1</span>;</code>",
+                code(":source-highlighter: asciidocj\n\n[source,java]\n----\nvar record = new Point();\nrecord.get(var);\n"
+                        + "record Point(int x) {}\nyield = 1;\n----\n"));
+    }
+
+    @Test
+    public void testUnsupportedLanguage() {
+        Assert.assertEquals("<code class=\"language-ruby\" data-lang=\"ruby\">puts 'x'</code>",
+                code(":source-highlighter: asciidocj\n\n[source,ruby]\n----\nputs 'x'\n----\n"));
+    }
+
+    @Test
+    public void testDisabled() {
+        Assert.assertEquals("<code class=\"language-java\" data-lang=\"java\">int x;</code>",
+                code("[source,java]\n----\nint x;\n----\n"));
+    }
+
+    @Test
+    public void testCache() {
+        SourceHighlighter highlighter = new SourceHighlighter(20);
+        Element first = new Element("code");
+        Element second = new Element("code");
+        highlighter.highlight(new Element("div").appendChild(new TextNode("SELECT 1")), first, "sql");
+        highlighter.highlight(new Element("div").appendChild(new TextNode("SELECT 1")), second, "SQL");
+
+        Assert.assertEquals(1, highlighter.size());
+        Assert.assertEquals(first.outerHtml(), second.outerHtml());
+
+        // Entries are evicted once size of cached sources exceeds the limit
+        highlighter.highlight(new Element("div").appendChild(new TextNode("SELECT 2, 3, 4")), first, "sql");
+        Assert.assertEquals(1, highlighter.size());
+    }
+}
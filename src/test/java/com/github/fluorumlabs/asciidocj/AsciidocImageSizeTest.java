@@ -0,0 +1,95 @@
+package com.github.fluorumlabs.asciidocj;
+
+import com.github.fluorumlabs.asciidocj.impl.DataUriCache;
+import com.github.fluorumlabs.asciidocj.impl.DirectoryImageResolver;
+import com.github.fluorumlabs.asciidocj.impl.ImageSizeCache;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * Images without size specified in document must get intrinsic size of image file
+ */
+public class AsciidocImageSizeTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path images;
+    private ImageSizeCache cache;
+    private AsciiImageResolver resolver;
+
+    @Before
+    public void setUp() throws IOException {
+        images = folder.newFolder("images").toPath();
+        cache = new ImageSizeCache(100);
+        resolver = new DirectoryImageResolver(folder.getRoot().toPath(), cache, new DataUriCache(1024));
+    }
+
+    private void writeImage(String name, String format, int width, int height) throws IOException {
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), format, images.resolve(name).toFile());
+    }
+
+    private String convert(String asciidoc) {
+        return AsciiDocument.from(asciidoc).with(resolver).getHtml();
+    }
+
+    @Test
+    public void testFormats() throws IOException {
+        writeImage("a.png", "png", 120, 30);
+        writeImage("b.gif", "gif", 16, 17);
+        writeImage("c.jpg", "jpg", 640, 480);
+        Files.write(images.resolve("d.svg"), "<?xml version=\"1.0\"?>\n<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 24 12.5\"></svg>"
+                .getBytes(StandardCharsets.UTF_8));
+        Files.write(images.resolve("e.svg"), "<svg width=\"100px\" height='50' viewBox=\"0 0 24 24\"/>".getBytes(StandardCharsets.UTF_8));
+        // Lossless WebP header of 300x200 image
+        Files.write(images.resolve("f.webp"), new byte[]{'R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'E', 'B', 'P', 'V', 'P', '8', 'L',
+                0, 0, 0, 0, 0x2F, (byte) 0x2B, (byte) 0xC1, (byte) 0x31, 0, 0, 0, 0, 0, 0, 0, 0});
+
+        Assert.assertArrayEquals(new int[]{120, 30}, resolver.getSize("images/a.png"));
+        Assert.assertArrayEquals(new int[]{16, 17}, resolver.getSize("images/b.gif"));
+        Assert.assertArrayEquals(new int[]{640, 480}, resolver.getSize("images/c.jpg"));
+        Assert.assertArrayEquals(new int[]{24, 13}, resolver.getSize("images/d.svg"));
+        Assert.assertArrayEquals(new int[]{100, 50}, resolver.getSize("images/e.svg"));
+        Assert.assertArrayEquals(new int[]{300, 200}, resolver.getSize("images/f.webp"));
+    }
+
+    @Test
+    public void testMacros() throws IOException {
+        writeImage("a.png", "png", 120, 30);
+
+        Assert.assertEquals("<div class=\"imageblock\"><div class=\"content\"><img src=\"images/a.png\" alt=\"a\" width=\"120\" height=\"30\"></div></div>",
+                convert("image::a.png[]"));
+        Assert.assertEquals("<div class=\"paragraph\"><p>Inline <span class=\"image\"><img src=\"images/a.png\" alt=\"a\" width=\"120\" height=\"30\"></span></p></div>",
+                convert("Inline image:a.png[]"));
+        // Sizes specified in document are kept
+        Assert.assertEquals("<div class=\"imageblock\"><div class=\"content\"><img src=\"images/a.png\" alt=\"Alt\" width=\"60\"></div></div>",
+                convert("image::a.png[Alt,60]"));
+        // Missing images, URIs and files outside of base directory are left without size
+        Assert.assertEquals(AsciiDocument.from("image::missing.png[]").getHtml(), convert("image::missing.png[]"));
+        Assert.assertEquals(AsciiDocument.from("image::https://example.com/a.png[]").getHtml(), convert("image::https://example.com/a.png[]"));
+        Assert.assertEquals(AsciiDocument.from(":imagesdir: ../..\n\nimage::a.png[]").getHtml(), convert(":imagesdir: ../..\n\nimage::a.png[]"));
+    }
+
+    @Test
+    public void testCache() throws IOException {
+        writeImage("a.png", "png", 120, 30);
+        for (int i = 0; i < 10; i++) {
+            convert("image::a.png[]\n\nimage:a.png[]");
+        }
+        Assert.assertEquals(1, cache.size());
+
+        writeImage("a.png", "png", 60, 15);
+        Files.setLastModifiedTime(images.resolve("a.png"), FileTime.fromMillis(System.currentTimeMillis() + 10000));
+        Assert.assertArrayEquals(new int[]{60, 15}, resolver.getSize("images/a.png"));
+    }
+}
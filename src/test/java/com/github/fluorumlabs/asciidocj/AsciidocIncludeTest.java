@@ -0,0 +1,127 @@
+package com.github.fluorumlabs.asciidocj;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * Documents with includes must be converted the same way as documents with included content inlined
+ */
+public class AsciidocIncludeTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private AsciiIncludeResolver resolver;
+
+    @Before
+    public void setUp() throws IOException {
+        write("partial.adoc", "First *line*\nSecond line\nThird line\n");
+        write("tagged.adoc", "// tag::a[]\nLine A\n// tag::b[]\nLine B\n// end::b[]\n// end::a[]\nUntagged\n// tag::c[]\nLine C\n// end::c[]\n");
+        write("sections.adoc", "== Section\n\nText\n\n----\n= Not a heading\n----\n\n=== Subsection\n");
+        write("chapters/chapter.adoc", "Chapter text\n\ninclude::fragment.adoc[]\n");
+        write("chapters/fragment.adoc", "Fragment text\n");
+        write("recursive.adoc", "Again\ninclude::recursive.adoc[]\n");
+        folder.newFile("outside.adoc");
+        resolver = AsciiIncludeResolver.fromDirectory(folder.getRoot().toPath().resolve("docs"));
+    }
+
+    private Path write(String name, String content) throws IOException {
+        Path path = folder.getRoot().toPath().resolve("docs").resolve(name);
+        Files.createDirectories(path.getParent());
+        return Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void assertIncludes(String expected, String asciidoc) {
+        Assert.assertEquals(AsciiDocument.from(expected).getHtml(),
+                AsciiDocument.from(asciidoc).with(resolver).getHtml());
+    }
+
+    @Test
+    public void testInclude() {
+        assertIncludes("Before\n\nFirst *line*\nSecond line\nThird line\n\nAfter\n",
+                "Before\n\ninclude::partial.adoc[]\n\nAfter\n");
+    }
+
+    @Test
+    public void testAttributeInTarget() {
+        assertIncludes("First *line*\nSecond line\nThird line\n",
+                ":name: partial\n\ninclude::{name}.adoc[]\n");
+    }
+
+    @Test
+    public void testLines() {
+        assertIncludes("First *line*\nThird line\n", "include::partial.adoc[lines=1;3..-1]\n");
+        assertIncludes("Second line\nThird line\n", "include::partial.adoc[lines=\"2..3\"]\n");
+    }
+
+    @Test
+    public void testTags() {
+        assertIncludes("Line A\nLine B\n", "include::tagged.adoc[tag=a]\n");
+        assertIncludes("Line A\nLine C\n", "include::tagged.adoc[tags=a;!b;c]\n");
+        assertIncludes("Line A\nLine B\nLine C\n", "include::tagged.adoc[tags=*]\n");
+        assertIncludes("Line A\nLine B\nUntagged\n", "include::tagged.adoc[tags=**;!c]\n");
+        assertIncludes("Untagged\nLine C\n", "include::tagged.adoc[tags=!a]\n");
+    }
+
+    @Test
+    public void testLevelOffset() {
+        assertIncludes("= Document\n\n=== Section\n\nText\n\n----\n= Not a heading\n----\n\n==== Subsection\n",
+                "= Document\n\ninclude::sections.adoc[leveloffset=+1]\n");
+    }
+
+    @Test
+    public void testNestedRelativeInclude() {
+        assertIncludes("Chapter text\n\nFragment text\n", "include::chapters/chapter.adoc[]\n");
+    }
+
+    @Test
+    public void testUnresolved() {
+        String html = AsciiDocument.from("include::missing.adoc[]\n").with(resolver).getHtml();
+        Assert.assertTrue(html, html.contains("Unresolved directive in &lt;stdin&gt; - include::missing.adoc[]"));
+
+        assertIncludes("Text\n", "include::missing.adoc[opts=optional]\nText\n");
+    }
+
+    @Test
+    public void testOutsideOfBaseDirectory() {
+        String html = AsciiDocument.from("include::../outside.adoc[]\n").with(resolver).getHtml();
+        Assert.assertTrue(html, html.contains("Unresolved directive"));
+    }
+
+    @Test
+    public void testRecursion() {
+        String html = AsciiDocument.from("include::recursive.adoc[]\n").with(resolver).getHtml();
+        Assert.assertTrue(html, html.contains("Unresolved directive"));
+    }
+
+    @Test
+    public void testEscaped() {
+        assertIncludes("include::partial.adoc[]\n", "\\include::partial.adoc[]\n");
+    }
+
+    @Test
+    public void testWithoutResolver() {
+        Assert.assertEquals(AsciiDocument.from("include::partial.adoc[]\n").getHtml(),
+                AsciiDocument.from("include::partial.adoc[]\n").with((AsciiIncludeResolver) null).getHtml());
+    }
+
+    @Test
+    public void testCache() throws IOException {
+        AsciiInclude first = resolver.resolve("partial.adoc", null);
+        Assert.assertSame(first, resolver.resolve("partial.adoc", null));
+
+        Path path = write("partial.adoc", "Changed\n");
+        Files.setLastModifiedTime(path, FileTime.fromMillis(Files.getLastModifiedTime(path).toMillis() + 1000));
+        AsciiInclude changed = resolver.resolve("partial.adoc", null);
+        Assert.assertNotSame(first, changed);
+        Assert.assertEquals("Changed", changed.getLines().get(0));
+    }
+}
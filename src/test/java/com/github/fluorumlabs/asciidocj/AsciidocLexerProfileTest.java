@@ -0,0 +1,71 @@
+package com.github.fluorumlabs.asciidocj;
+
+import com.github.fluorumlabs.asciidocj.impl.LexerProfile;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * Lexer profile must collect statistics of lexer rules without affecting conversion
+ */
+public class AsciidocLexerProfileTest {
+    private static final String DOCUMENT = "= Title\n\n== Section\n\nParagraph with *bold* and _italic_ text.\n\n"
+            + "* List item\n* Another item\n\n[source,java]\n----\nint x = 42;\n----\n";
+
+    @Test
+    public void testDocumentProfile() {
+        AsciiLexerProfile profile = new AsciiLexerProfile();
+        String html = AsciiDocument.from(DOCUMENT).with(profile).getHtml();
+
+        Assert.assertEquals(AsciiDocument.from(DOCUMENT).getHtml(), html);
+        // Parsing and rendering of one document
+        Assert.assertEquals(1, profile.getConversions());
+
+        List<AsciiLexerProfile.Rule> rules = profile.getRules();
+        Assert.assertTrue(rules.stream().anyMatch(rule -> rule.getLexer().equals("AsciidocDocumentParser")));
+        Assert.assertTrue(rules.stream().anyMatch(rule -> rule.getLexer().equals("AsciidocFormatter")));
+        Assert.assertTrue(rules.stream().anyMatch(rule -> rule.getSample().contains("*bold*")));
+        Assert.assertTrue(rules.stream().anyMatch(rule -> rule.getPushbacks() > 0));
+        for (AsciiLexerProfile.Rule rule : rules) {
+            Assert.assertTrue(rule.getHits() > 0);
+            Assert.assertTrue(rule.getSelfNanos() <= rule.getTotalNanos());
+        }
+        for (int i = 1; i < rules.size(); i++) {
+            Assert.assertTrue(rules.get(i - 1).getSelfNanos() >= rules.get(i).getSelfNanos());
+        }
+
+        String report = profile.getReport(5);
+        Assert.assertEquals(6, report.split("\n").length);
+        Assert.assertTrue(report.startsWith("  self ms"));
+
+        // Statistics of subsequent conversions are added up
+        long hits = rules.stream().mapToLong(AsciiLexerProfile.Rule::getHits).sum();
+        AsciiDocument.from(DOCUMENT).with(profile).getHtml();
+        Assert.assertEquals(2 * hits, profile.getRules().stream().mapToLong(AsciiLexerProfile.Rule::getHits).sum());
+        Assert.assertEquals(2, profile.getConversions());
+
+        profile.clear();
+        Assert.assertTrue(profile.getRules().isEmpty());
+        Assert.assertNull(LexerProfile.current());
+    }
+
+    @Test
+    public void testConcurrentProfiles() throws InterruptedException {
+        AsciiLexerProfile first = new AsciiLexerProfile();
+        AsciiLexerProfile second = new AsciiLexerProfile();
+        Thread thread = new Thread(() -> AsciiDocument.from(DOCUMENT).with(second).getHtml());
+        thread.start();
+
+        // Document is counted once for outline and conversion, and only by its own profile
+        AsciiDocument document = AsciiDocument.from(DOCUMENT).with(first);
+        document.getOutline();
+        document.getHtml();
+        AsciiDocument.from(DOCUMENT).getHtml();
+        thread.join();
+
+        Assert.assertEquals(1, first.getConversions());
+        Assert.assertEquals(1, second.getConversions());
+        Assert.assertFalse(second.getRules().isEmpty());
+    }
+}
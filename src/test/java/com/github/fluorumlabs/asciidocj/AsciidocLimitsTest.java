@@ -0,0 +1,114 @@
+package com.github.fluorumlabs.asciidocj;
+
+import com.github.fluorumlabs.asciidocj.AsciiLimitException.Limit;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Violation of each limit must abort conversion with specific exception
+ */
+public class AsciidocLimitsTest {
+    private static final String PARAGRAPHS = StringUtils.repeat("Some *bold* and _italic_ text.\n\n", 1000);
+
+    private static Limit violatedLimit(String asciidoc, AsciiLimits limits) {
+        try {
+            AsciiDocument.from(asciidoc).with(limits).getHtml();
+        } catch (AsciiLimitException e) {
+            return e.getLimit();
+        }
+        return null;
+    }
+
+    private static String nestedBlocks(int depth) {
+        String[] delimiters = {"====", "****", "____"};
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            result.append(delimiters[i]).append('\n');
+        }
+        result.append("Innermost\n");
+        for (int i = depth - 1; i >= 0; i--) {
+            result.append(delimiters[i]).append('\n');
+        }
+        return result.toString();
+    }
+
+    @Test
+    public void testUnlimited() {
+        Assert.assertNull(violatedLimit(PARAGRAPHS + nestedBlocks(3), AsciiLimits.unlimited()));
+    }
+
+    @Test
+    public void testInputLength() {
+        Assert.assertEquals(Limit.INPUT_LENGTH, violatedLimit(PARAGRAPHS, AsciiLimits.unlimited().withMaxInputLength(1000)));
+        Assert.assertNull(violatedLimit(PARAGRAPHS, AsciiLimits.unlimited().withMaxInputLength(PARAGRAPHS.length())));
+    }
+
+    @Test
+    public void testNestingDepth() {
+        AsciiLimits limits = AsciiLimits.unlimited().withMaxNestingDepth(2);
+        Assert.assertEquals(Limit.NESTING_DEPTH, violatedLimit(nestedBlocks(3), limits));
+        Assert.assertNull(violatedLimit(nestedBlocks(2), limits));
+    }
+
+    @Test
+    public void testNodes() {
+        Assert.assertEquals(Limit.NODES, violatedLimit(PARAGRAPHS, AsciiLimits.unlimited().withMaxNodes(1000)));
+    }
+
+    @Test
+    public void testFormatterInvocations() {
+        Assert.assertEquals(Limit.FORMATTER_INVOCATIONS, violatedLimit(PARAGRAPHS, AsciiLimits.unlimited().withMaxFormatterInvocations(100)));
+    }
+
+    @Test
+    public void testTimeout() {
+        Assert.assertEquals(Limit.TIMEOUT, violatedLimit(PARAGRAPHS, AsciiLimits.unlimited().withTimeout(Duration.ZERO)));
+    }
+
+    @Test
+    public void testCancellation() {
+        AtomicBoolean cancelled = new AtomicBoolean(true);
+        Assert.assertEquals(Limit.CANCELLED, violatedLimit(PARAGRAPHS, AsciiLimits.unlimited().withCancellation(cancelled::get)));
+    }
+
+    @Test
+    public void testDeferredRenderTimeout() throws InterruptedException {
+        AsciiDocument document = AsciiDocument.from(PARAGRAPHS)
+                .with(AsciiLimits.unlimited().withTimeout(Duration.ofSeconds(1)));
+        document.prepare();
+        // Waiting for rendering is not counted as conversion time
+        Thread.sleep(1200);
+        Assert.assertFalse(document.getHtml().isEmpty());
+    }
+
+    @Test
+    public void testRenderCancellation() {
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        AsciiDocument document = AsciiDocument.from(PARAGRAPHS)
+                .with(AsciiLimits.unlimited().withCancellation(cancelled::get));
+        document.prepare();
+        cancelled.set(true);
+        try {
+            document.getHtml();
+            Assert.fail();
+        } catch (AsciiLimitException e) {
+            Assert.assertEquals(Limit.CANCELLED, e.getLimit());
+        }
+    }
+
+    @Test
+    public void testOutline() {
+        AsciiDocument document = AsciiDocument.from("== Title\n\n" + PARAGRAPHS)
+                .with(AsciiLimits.unlimited().withMaxInputLength(1000));
+        try {
+            document.getOutline();
+            Assert.fail();
+        } catch (AsciiLimitException e) {
+            Assert.assertEquals(Limit.INPUT_LENGTH, e.getLimit());
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.fluorumlabs.asciidocj;
+
+import com.github.fluorumlabs.asciidocj.impl.Utils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.jsoup.nodes.Element;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Outline must list the same sections as the (non-discrete) headers of fully converted document
+ */
+@RunWith(Parameterized.class)
+public class AsciidocOutlineTest {
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> data() {
+        List<Object[]> dataSet = new ArrayList<>();
+
+        File folder = new File(AsciidocOutlineTest.class.getResource("tests").getFile());
+
+        FileUtils.listFiles(folder, new String[]{"adoc"}, true).stream()
+                .map(f -> f.toURI().toString())
+                .forEach(asciidocFile -> {
+                    String asciidocString = null;
+                    try {
+                        asciidocString = IOUtils.toString(new URL(asciidocFile), "UTF-8");
+                    } catch (IOException ignore) {
+                        // ignore
+                    }
+                    String fileName = asciidocFile.replace(".adoc", "");
+                    String id = Utils.extractAfterStrict(fileName.replace('\\', '/'), "tests/");
+                    if (asciidocString != null && asciidocString.contains("==")) {
+                        dataSet.add(new Object[]{id, asciidocString});
+                    }
+                });
+
+        return dataSet;
+    }
+
+    private String fInput;
+
+    public AsciidocOutlineTest(String id, String input) {
+        fInput = input;
+    }
+
+    @Test
+    public void testOutline() {
+        Assert.assertEquals(fromHeaders(AsciiDocument.from(fInput)), fromOutline(AsciiDocument.from(fInput).getOutline()));
+    }
+
+    @Test
+    public void testOutlineAfterConversion() {
+        AsciiDocument document = AsciiDocument.from(fInput);
+        Assert.assertEquals(fromHeaders(document), fromOutline(document.getOutline()));
+    }
+
+    private static List<String> fromHeaders(AsciiDocument document) {
+        Element body = document.getDocumentBody();
+        String selector = IntStream.rangeClosed(2, document.getAttributesAsJSON().optInt("toclevels", 3))
+                .mapToObj(i -> String.format("%s%d[id]:not(.discrete)", "h", i))
+                .collect(Collectors.joining(","));
+        return body.select(selector).stream()
+                .map(h -> (h.tagName().charAt(1) - '1') + " " + h.id() + " " + h.text())
+                .collect(Collectors.toList());
+    }
+
+    private static List<String> fromOutline(List<AsciiSection> sections) {
+        List<String> result = new ArrayList<>();
+        for (AsciiSection section : sections) {
+            result.add(section.getLevel() + " " + section.getId() + " " + section.getNumberedTitle());
+            result.addAll(fromOutline(section.getSections()));
+        }
+        return result;
+    }
+}
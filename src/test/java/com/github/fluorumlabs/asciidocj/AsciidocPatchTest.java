@@ -0,0 +1,128 @@
+package com.github.fluorumlabs.asciidocj;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Patches between renders must turn previous render into the next one, touching only changed blocks
+ */
+public class AsciidocPatchTest {
+    private static final String DOCUMENT = "= Document\n:toc:\n\nPreamble.\n\n"
+            + "== First\n\nParagraph one.\n\n[#custom]\nParagraph two.\n\n=== Nested\n\nParagraph three.\n\n"
+            + "== Second\n\n* Item\n* Item\n\nParagraph four.\n";
+
+    /**
+     * Parse HTML as browser would, since patches are parsed and rendered document is not
+     */
+    private static String reparse(String html) {
+        Document document = Jsoup.parseBodyFragment(html);
+        document.outputSettings().prettyPrint(false);
+        return document.body().html();
+    }
+
+    private static List<AsciiPatch> assertPatches(String previous, String next) {
+        Document document = AsciiDocument.from(previous).getDocument();
+        AsciiBlocks previousBlocks = AsciiBlocks.of(document.body());
+        AsciiBlocks nextBlocks = AsciiDocument.from(next).getBlocks();
+        Assert.assertEquals(AsciiDocument.from(next).getHtml(), nextBlocks.getHtml());
+
+        List<AsciiPatch> patches = nextBlocks.diff(previousBlocks);
+        AsciiPatch.apply(patches, document.body());
+        Assert.assertEquals(reparse(nextBlocks.getHtml()), reparse(document.body().html()));
+        return patches;
+    }
+
+    @Test
+    public void testBlocksHtml() {
+        String asciidoc = CorpusGenerator.generate(100_000);
+        Assert.assertEquals(AsciiDocument.from(asciidoc).getHtml(), AsciiDocument.from(asciidoc).getBlocks().getHtml());
+    }
+
+    @Test
+    public void testSameRender() {
+        Assert.assertTrue(assertPatches(DOCUMENT, DOCUMENT).isEmpty());
+    }
+
+    @Test
+    public void testReplaceParagraph() {
+        List<AsciiPatch> patches = assertPatches(DOCUMENT, DOCUMENT.replace("Paragraph three.", "Paragraph *three*."));
+        Assert.assertEquals(1, patches.size());
+        AsciiPatch patch = patches.get(0);
+        Assert.assertEquals(AsciiPatch.Type.REPLACE, patch.getType());
+        // Body > sect1 > sectionbody > sect2 > paragraph
+        Assert.assertArrayEquals(new int[]{3, 1, 2}, patch.getPath());
+        Assert.assertEquals(1, patch.getIndex());
+        Assert.assertEquals("<div class=\"paragraph\"><p>Paragraph <strong>three</strong>.</p></div>", patch.getHtml());
+    }
+
+    @Test
+    public void testReplaceById() {
+        List<AsciiPatch> patches = assertPatches(DOCUMENT, DOCUMENT.replace("Paragraph two.", "Paragraph 2."));
+        Assert.assertEquals(1, patches.size());
+        Assert.assertEquals("#custom", patches.get(0).getKey());
+    }
+
+    @Test
+    public void testInsertAndRemove() {
+        List<AsciiPatch> patches = assertPatches(DOCUMENT, DOCUMENT.replace("Paragraph one.\n\n", "Paragraph one.\n\nInserted.\n\n"));
+        Assert.assertEquals(1, patches.size());
+        Assert.assertEquals(AsciiPatch.Type.INSERT, patches.get(0).getType());
+
+        patches = assertPatches(DOCUMENT, DOCUMENT.replace("Paragraph one.\n\n", ""));
+        Assert.assertEquals(1, patches.size());
+        Assert.assertEquals(AsciiPatch.Type.REMOVE, patches.get(0).getType());
+    }
+
+    @Test
+    public void testRenameSection() {
+        // TOC and heading, while section gets a new key but keeps its content
+        List<AsciiPatch> patches = assertPatches(DOCUMENT, DOCUMENT.replace("== Second", "== Renamed"));
+        Assert.assertEquals(2, patches.size());
+        Assert.assertEquals("#toc", patches.get(0).getKey());
+        Assert.assertEquals("#_renamed", patches.get(1).getKey());
+        Assert.assertEquals(AsciiPatch.Type.REPLACE, patches.get(1).getType());
+        Assert.assertArrayEquals(new int[]{4}, patches.get(1).getPath());
+    }
+
+    @Test
+    public void testRandomEdits() {
+        String asciidoc = CorpusGenerator.generate(20_000);
+        Random random = new Random(42);
+        for (int i = 0; i < 30; i++) {
+            List<String> blocks = new ArrayList<>(Arrays.asList(asciidoc.split("\n\n")));
+            int edits = 1 + random.nextInt(3);
+            for (int j = 0; j < edits; j++) {
+                int position = random.nextInt(blocks.size());
+                switch (random.nextInt(3)) {
+                    case 0:
+                        blocks.remove(position);
+                        break;
+                    case 1:
+                        blocks.add(position, blocks.get(random.nextInt(blocks.size())));
+                        break;
+                    default:
+                        blocks.set(position, blocks.get(position) + " Edited.");
+                }
+            }
+            String edited = String.join("\n\n", blocks);
+            List<AsciiPatch> patches = assertPatches(asciidoc, edited);
+            int html = AsciiDocument.from(edited).getHtml().length();
+            Assert.assertTrue(patches.stream().mapToInt(patch -> patch.toJSON().toString().length()).sum() < html);
+            asciidoc = edited;
+        }
+    }
+
+    @Test
+    public void testJSON() {
+        List<AsciiPatch> patches = assertPatches(DOCUMENT, DOCUMENT.replace("Paragraph one.\n\n", ""));
+        Assert.assertEquals("[{\"op\":\"remove\",\"path\":[3,1],\"index\":0,\"key\":\"div.paragraph@1\"}]",
+                AsciiPatch.toJSON(patches).toString());
+    }
+}
@@ -0,0 +1,162 @@
+package com.github.fluorumlabs.asciidocj;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Throughput and peak heap usage of converting realistic documents, generated with {@link CorpusGenerator},
+ * must not regress against recorded baseline.
+ * <p>
+ * Not a part of default build, run with {@code mvn test -Pperformance}. Sizes are controlled with
+ * {@code performance.minSize} and {@code performance.maxSize} system properties; each step is 10x larger
+ * than the previous one. Results are compared with baseline file {@code performance.baseline}, failing if
+ * throughput drops or peak heap grows by more than {@code performance.threshold}. Sizes without baseline are
+ * skipped. Baselines are only comparable on the same machine and JVM, so baseline file is not committed: record
+ * it first with {@code mvn test -Pperformance -Dperformance.record=true}, then compare later builds against it.
+ */
+@RunWith(Parameterized.class)
+public class AsciidocPerformanceTest {
+    private static final int MIN_SIZE = Integer.getInteger("performance.minSize", 10 * 1024);
+    private static final int MAX_SIZE = Integer.getInteger("performance.maxSize", 100 * 1024 * 1024);
+    private static final int STEP = 10;
+
+    private static final Path BASELINE = Paths.get(System.getProperty("performance.baseline", "performance-baseline.properties"));
+    private static final double THRESHOLD = Double.parseDouble(System.getProperty("performance.threshold", "0.2"));
+    private static final boolean RECORD = Boolean.getBoolean("performance.record");
+
+    // Small documents are converted repeatedly for at least that long, best run is taken
+    private static final long MIN_MEASURED_NANOS = 2_000_000_000L;
+
+    // Differences of peak heap below that are dominated by allocation buffers and GC timing
+    private static final long MIN_HEAP_DIFFERENCE = 16 * 1024 * 1024;
+
+    private static final Properties baseline = new Properties();
+
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> data() {
+        List<Object[]> sizes = new ArrayList<>();
+        for (long size = MIN_SIZE; size <= MAX_SIZE; size *= STEP) {
+            sizes.add(new Object[]{(int) size});
+        }
+        return sizes;
+    }
+
+    @BeforeClass
+    public static void loadBaseline() throws IOException {
+        Assume.assumeTrue(String.format("No performance baseline %s, record it with -Dperformance.record=true", BASELINE),
+                RECORD || Files.exists(BASELINE));
+        if (Files.exists(BASELINE)) {
+            try (Reader reader = Files.newBufferedReader(BASELINE, StandardCharsets.UTF_8)) {
+                baseline.load(reader);
+            }
+        }
+        // Warm up parser and formatter so that the smallest size is not measured in interpreter
+        String asciidoc = CorpusGenerator.generate(MIN_SIZE);
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < MIN_MEASURED_NANOS) {
+            AsciiDocument.from(asciidoc).getHtml();
+        }
+    }
+
+    private final int size;
+
+    public AsciidocPerformanceTest(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Measure throughput as best of runs, in megabytes of Asciidoc per second.
+     */
+    private static double measureThroughput(String asciidoc) {
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        do {
+            long start = System.nanoTime();
+            AsciiDocument.from(asciidoc).getHtml();
+            long elapsed = System.nanoTime() - start;
+            best = Math.min(best, elapsed);
+            total += elapsed;
+        } while (total < MIN_MEASURED_NANOS);
+        return asciidoc.length() / 1e6 / (best / 1e9);
+    }
+
+    /**
+     * Measure peak heap usage of conversion above heap usage before it. Peaks of heap pools are reached at
+     * different times, so their sum is an upper bound of actual peak.
+     */
+    private static long measurePeakHeap(String asciidoc) {
+        List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pools.add(pool);
+            }
+        }
+        System.gc();
+        System.gc();
+        long before = 0;
+        for (MemoryPoolMXBean pool : pools) {
+            before += pool.getUsage().getUsed();
+            pool.resetPeakUsage();
+        }
+
+        String html = AsciiDocument.from(asciidoc).getHtml();
+
+        long peak = 0;
+        for (MemoryPoolMXBean pool : pools) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        // Keep result reachable until peak is taken
+        Assert.assertFalse(html.isEmpty());
+        return Math.max(peak - before, 0);
+    }
+
+    @Test
+    public void test() throws IOException {
+        String asciidoc = CorpusGenerator.generate(size);
+        double throughput = measureThroughput(asciidoc);
+        long peakHeap = measurePeakHeap(asciidoc);
+        System.out.printf("%d: %.2f MB/s, peak heap %.1f MB%n", size, throughput, peakHeap / 1e6);
+
+        String throughputKey = size + ".throughput";
+        String peakHeapKey = size + ".peakHeap";
+        synchronized (baseline) {
+            if (RECORD) {
+                baseline.setProperty(throughputKey, String.format("%.3f", throughput));
+                baseline.setProperty(peakHeapKey, Long.toString(peakHeap));
+                try (Writer writer = Files.newBufferedWriter(BASELINE, StandardCharsets.UTF_8)) {
+                    baseline.store(writer, "Conversion throughput (MB/s) and peak heap (bytes) by document size");
+                }
+                return;
+            }
+        }
+
+        Assume.assumeTrue(String.format("No baseline for size %d in %s, record it with -Dperformance.record=true", size, BASELINE),
+                baseline.containsKey(throughputKey) && baseline.containsKey(peakHeapKey));
+        double baselineThroughput = Double.parseDouble(baseline.getProperty(throughputKey));
+        long baselinePeakHeap = Long.parseLong(baseline.getProperty(peakHeapKey));
+        Assert.assertTrue(String.format("Throughput dropped from %.2f MB/s to %.2f MB/s", baselineThroughput, throughput),
+                throughput >= baselineThroughput * (1 - THRESHOLD));
+        Assert.assertTrue(String.format("Peak heap grew from %d to %d bytes", baselinePeakHeap, peakHeap),
+                peakHeap <= Math.max(baselinePeakHeap * (1 + THRESHOLD), baselinePeakHeap + MIN_HEAP_DIFFERENCE));
+    }
+}
@@ -0,0 +1,161 @@
+package com.github.fluorumlabs.asciidocj;
+
+import com.github.fluorumlabs.asciidocj.server.AsciiPreviewServer;
+import org.apache.commons.io.IOUtils;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Preview server must serve rendered pages from cache, honor conditional requests and coalesce conversions
+ */
+public class AsciidocPreviewServerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path root;
+    private AsciiPreviewServer server;
+
+    @Before
+    public void startServer() throws IOException {
+        root = folder.getRoot().toPath();
+        Files.write(root.resolve("index.adoc"), "= Index\n\nSee <<guide/install.adoc#setup>>.\n".getBytes(StandardCharsets.UTF_8));
+        Files.createDirectory(root.resolve("guide"));
+        Files.write(root.resolve("guide/install.adoc"), "== Setup\n\ninclude::steps.adoc[]\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(root.resolve("guide/steps.adoc"), "Run *it*.\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(root.resolve("style.css"), "p { margin: 0 }".getBytes(StandardCharsets.UTF_8));
+        server = AsciiPreviewServer.create(root, 0).start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop();
+    }
+
+    private HttpURLConnection request(String path) throws IOException {
+        return (HttpURLConnection) new URL("http", server.getAddress().getHostString(), server.getAddress().getPort(), path).openConnection();
+    }
+
+    private String get(String path) throws IOException {
+        HttpURLConnection connection = request(path);
+        Assert.assertEquals(200, connection.getResponseCode());
+        try (InputStream in = connection.getInputStream()) {
+            return IOUtils.toString(in, StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void testRender() throws IOException {
+        Assert.assertEquals(AsciiDocument.from("= Index\n\nSee <<guide/install.adoc#setup>>.\n").getHtml(), get("/"));
+        Assert.assertTrue(get("/guide/install.html").contains("Run <strong>it</strong>."));
+        Assert.assertEquals("p { margin: 0 }", get("/style.css"));
+        Assert.assertEquals(404, request("/missing.html").getResponseCode());
+        Assert.assertEquals(404, request("/../outside.html").getResponseCode());
+    }
+
+    @Test
+    public void testConditionalGet() throws IOException {
+        HttpURLConnection first = request("/index.html");
+        Assert.assertEquals(200, first.getResponseCode());
+        String etag = first.getHeaderField("ETag");
+        Assert.assertNotNull(etag);
+
+        HttpURLConnection second = request("/index.html");
+        second.setRequestProperty("If-None-Match", "\"other\", " + etag);
+        Assert.assertEquals(304, second.getResponseCode());
+
+        JSONObject stats = server.getStats();
+        Assert.assertEquals(1, stats.getLong("renders"));
+        Assert.assertEquals(1, stats.getLong("hits"));
+        Assert.assertEquals(1, stats.getLong("notModified"));
+    }
+
+    @Test
+    public void testGzip() throws IOException {
+        HttpURLConnection connection = request("/index.html");
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        Assert.assertEquals("gzip", connection.getHeaderField("Content-Encoding"));
+        try (InputStream in = new GZIPInputStream(connection.getInputStream())) {
+            Assert.assertEquals(get("/index.html"), IOUtils.toString(in, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testInvalidation() throws IOException {
+        Path index = root.resolve("index.adoc");
+        String etag = request("/").getHeaderField("ETag");
+
+        // Touched, but not changed: no conversion
+        Files.setLastModifiedTime(index, FileTime.fromMillis(Files.getLastModifiedTime(index).toMillis() + 5000));
+        Assert.assertEquals(etag, request("/").getHeaderField("ETag"));
+        Assert.assertEquals(1, server.getStats().getLong("revalidated"));
+
+        Files.write(index, "Changed\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(index, FileTime.fromMillis(Files.getLastModifiedTime(index).toMillis() + 10000));
+        Assert.assertTrue(get("/").contains("Changed"));
+        Assert.assertEquals(2, server.getStats().getLong("renders"));
+    }
+
+    @Test
+    public void testIncludeInvalidation() throws IOException {
+        Path steps = root.resolve("guide/steps.adoc");
+        Assert.assertTrue(get("/guide/install.html").contains("Run <strong>it</strong>."));
+
+        Files.write(steps, "Run *them*.\n".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(steps, FileTime.fromMillis(Files.getLastModifiedTime(steps).toMillis() + 10000));
+        Assert.assertTrue(get("/guide/install.html").contains("Run <strong>them</strong>."));
+        Assert.assertEquals(2, server.getStats().getLong("renders"));
+    }
+
+    @Test
+    public void testMissingIncludeInvalidation() throws IOException {
+        Files.write(root.resolve("optional.adoc"), "Text\n\ninclude::_extra.adoc[opts=optional]\n".getBytes(StandardCharsets.UTF_8));
+        Assert.assertFalse(get("/optional.html").contains("Extra"));
+        Assert.assertFalse(get("/optional.html").contains("Extra"));
+        Assert.assertEquals(1, server.getStats().getLong("renders"));
+
+        Files.write(root.resolve("_extra.adoc"), "Extra\n".getBytes(StandardCharsets.UTF_8));
+        Assert.assertTrue(get("/optional.html").contains("Extra"));
+        Assert.assertEquals(2, server.getStats().getLong("renders"));
+    }
+
+    @Test
+    public void testCoalescing() throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> responses = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                responses.add(clients.submit(() -> get("/guide/install.html")));
+            }
+            for (Future<String> response : responses) {
+                Assert.assertEquals(responses.get(0).get(), response.get());
+            }
+        } finally {
+            clients.shutdown();
+        }
+
+        JSONObject stats = new JSONObject(get(AsciiPreviewServer.STATS_PATH));
+        Assert.assertEquals(1, stats.getLong("misses"));
+        Assert.assertEquals(1, stats.getLong("renders"));
+        Assert.assertEquals(8, stats.getLong("hits") + stats.getLong("coalesced") + stats.getLong("misses"));
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.fluorumlabs.asciidocj;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Pre-encoded HTML must match {@link AsciiDocument#getHtml()}
+ */
+public class AsciidocRenderedHtmlTest {
+    private static final String DOCUMENT = "= Document\n\nText with _formatting_ and non-ASCII é€😀.\n\n== Section\n\nText\n";
+
+    @Test
+    public void testBytes() {
+        AsciiRenderedHtml html = AsciiDocument.from(DOCUMENT).getRenderedHtml();
+
+        byte[] expected = AsciiDocument.from(DOCUMENT).getHtml().getBytes(StandardCharsets.UTF_8);
+        Assert.assertArrayEquals(expected, html.getBytes());
+        Assert.assertEquals(expected.length, html.getLength());
+        Assert.assertNull(html.getBytes(AsciiRenderedHtml.Encoding.GZIP));
+        Assert.assertNull(html.getBytes(AsciiRenderedHtml.Encoding.DEFLATE));
+    }
+
+    @Test
+    public void testCompressed() throws IOException {
+        AsciiRenderedHtml html = AsciiDocument.from(DOCUMENT).getRenderedHtml(AsciiRenderedHtml.Encoding.GZIP, AsciiRenderedHtml.Encoding.DEFLATE);
+
+        Assert.assertArrayEquals(html.getBytes(), IOUtils.toByteArray(new GZIPInputStream(
+                new ByteArrayInputStream(html.getBytes(AsciiRenderedHtml.Encoding.GZIP)))));
+        Assert.assertArrayEquals(html.getBytes(), IOUtils.toByteArray(new InflaterInputStream(
+                new ByteArrayInputStream(html.getBytes(AsciiRenderedHtml.Encoding.DEFLATE)))));
+    }
+
+    @Test
+    public void testETag() {
+        String etag = AsciiDocument.from(DOCUMENT).getRenderedHtml().getETag();
+
+        Assert.assertTrue(etag.matches("\"[A-Za-z0-9_-]{43}\""));
+        Assert.assertEquals(etag, AsciiDocument.from(DOCUMENT).getRenderedHtml(AsciiRenderedHtml.Encoding.GZIP).getETag());
+        Assert.assertNotEquals(etag, AsciiDocument.from(DOCUMENT + "\nMore text\n").getRenderedHtml().getETag());
+    }
+}
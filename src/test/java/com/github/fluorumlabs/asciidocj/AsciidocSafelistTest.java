@@ -0,0 +1,97 @@
+package com.github.fluorumlabs.asciidocj;
+
+import com.github.fluorumlabs.asciidocj.impl.Utils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.jsoup.nodes.Document;
+import org.jsoup.safety.Cleaner;
+import org.jsoup.safety.Safelist;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Sanitizing during conversion must produce the same HTML as cleaning converted document with {@link Cleaner}
+ */
+@RunWith(Parameterized.class)
+public class AsciidocSafelistTest {
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> data() throws IOException {
+        List<Object[]> dataSet = new ArrayList<>();
+
+        File folder = new File(AsciidocSafelistTest.class.getResource("tests").getFile());
+        for (File file : FileUtils.listFiles(folder, new String[]{"adoc"}, true)) {
+            String asciidoc = IOUtils.toString(file.toURI(), StandardCharsets.UTF_8);
+            if (!asciidoc.contains("include::")) {
+                String id = Utils.extractAfterStrict(file.getPath().replace('\\', '/'), "tests/");
+                dataSet.add(new Object[]{id, asciidoc});
+            }
+        }
+        dataSet.add(new Object[]{"passthrough-block", "= Document\n:toc:\n\n== Section\n\n"
+                + "++++\n<div onclick=\"alert(1)\" class=\"raw\">Raw <script>alert(2)</script><b>bold</b></div>\n"
+                + "<!-- comment --><style>p {}</style>\n++++\n\nText\n"});
+        dataSet.add(new Object[]{"passthrough-paragraph", "[pass]\n<iframe src=\"https://example.com\"></iframe><u>text</u>\n"});
+        dataSet.add(new Object[]{"passthrough-inline", "Image pass:[<img src=\"x.png\" onerror=\"alert(1)\">] and "
+                + "+++<iframe src=\"x\"></iframe><i>kept</i>+++ and $$<b>escaped</b>$$.\n"});
+        dataSet.add(new Object[]{"links", "link:javascript:alert(1)[Click] and https://example.com[Safe] "
+                + "and <<section>>.footnote:[Note]\n\n[[section]]\n== Section\n\nText\n"});
+        dataSet.add(new Object[]{"toc-passthrough", "= Document\n:toc:\n\n== Section +++<img src=x>+++\n\n"
+                + "== Other +++<iframe src=x></iframe>+++\n\nText\n"});
+        dataSet.add(new Object[]{"corpus", CorpusGenerator.generate(50_000)});
+        return dataSet;
+    }
+
+    private static final Safelist SAFELIST = Safelist.relaxed()
+            .addAttributes(":all", "class", "id")
+            .addProtocols("a", "href", "#");
+
+    private final String input;
+
+    public AsciidocSafelistTest(String id, String input) {
+        this.input = input;
+    }
+
+    private static String clean(String asciidoc) {
+        Document document = AsciiDocument.from(asciidoc).getDocument();
+        Document clean = new Cleaner(SAFELIST).clean(document);
+        clean.outputSettings(document.outputSettings());
+        return clean.body().html();
+    }
+
+    @Test
+    public void testSameAsCleaner() {
+        Assert.assertEquals(clean(input), AsciiDocument.from(input).with(SAFELIST).getHtml());
+    }
+
+    @Test
+    public void testStreamingSameAsCleaner() {
+        StringWriter out = new StringWriter();
+        try {
+            AsciiDocument.from(input).with(SAFELIST).writeHtml(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Assert.assertEquals(clean(input), out.toString());
+    }
+
+    @Test
+    public void testNoUnsafeContent() {
+        String html = AsciiDocument.from(input).with(SAFELIST).getHtml();
+        Assert.assertFalse(html.contains("<script"));
+        Assert.assertFalse(html.contains("<iframe"));
+        Assert.assertFalse(html.contains("onclick"));
+        Assert.assertFalse(html.contains("onerror"));
+        Assert.assertFalse(html.contains("javascript:"));
+    }
+}
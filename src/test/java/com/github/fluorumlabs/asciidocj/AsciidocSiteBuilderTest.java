@@ -0,0 +1,165 @@
+package com.github.fluorumlabs.asciidocj;
+
+import com.github.fluorumlabs.asciidocj.site.AsciiSiteBuilder;
+import com.github.fluorumlabs.asciidocj.site.AsciiSiteReport;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Site builder must render only documents that changed or include changed files
+ */
+public class AsciidocSiteBuilderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path source;
+    private Path output;
+    private int writes;
+
+    private void write(String file, String content) throws IOException {
+        Path path = source.resolve(file);
+        Files.createDirectories(path.getParent());
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        // Make modification visible regardless of file system timestamp resolution
+        Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() + 2000 * ++writes));
+    }
+
+    private String read(String file) throws IOException {
+        return new String(Files.readAllBytes(output.resolve(file)), StandardCharsets.UTF_8);
+    }
+
+    @Before
+    public void createSource() throws IOException {
+        source = folder.newFolder("src").toPath();
+        output = folder.getRoot().toPath().resolve("out");
+        write("index.adoc", "= Index\n\nWelcome\n");
+        write("guide/install.adoc", "== Install\n\ninclude::_steps.adoc[]\n");
+        write("guide/_steps.adoc", "Run *setup*.\n");
+        write("guide/image.png", "PNG");
+        write(".hidden/secret.adoc", "Secret\n");
+    }
+
+    @Test
+    public void testBuild() throws IOException {
+        AsciiSiteReport report = AsciiSiteBuilder.create(source, output).build();
+
+        Assert.assertEquals(2, report.getDocuments());
+        Assert.assertEquals(2, report.getRendered());
+        Assert.assertEquals(1, report.getCopied());
+        Assert.assertEquals(AsciiDocument.from("= Index\n\nWelcome\n").getHtml(), read("index.html"));
+        Assert.assertTrue(read("guide/install.html").contains("Run <strong>setup</strong>."));
+        Assert.assertEquals("PNG", read("guide/image.png"));
+        Assert.assertFalse(Files.exists(output.resolve("guide/_steps.html")));
+        Assert.assertFalse(Files.exists(output.resolve(".hidden")));
+    }
+
+    @Test
+    public void testIncrementalBuild() throws IOException {
+        AsciiSiteBuilder.create(source, output).build();
+
+        AsciiSiteReport report = AsciiSiteBuilder.create(source, output).build();
+        Assert.assertEquals(0, report.getRendered());
+        Assert.assertEquals(0, report.getCopied());
+        Assert.assertEquals(1.0, report.getCacheHitRatio(), 0.0);
+
+        // Touched, but not changed: new modification time is recorded, so that file is not hashed again
+        FileTime touched = FileTime.fromMillis(System.currentTimeMillis() + 100000);
+        Files.setLastModifiedTime(source.resolve("index.adoc"), touched);
+        Assert.assertEquals(0, AsciiSiteBuilder.create(source, output).build().getRendered());
+        JSONObject manifest = new JSONObject(read(AsciiSiteBuilder.MANIFEST));
+        Assert.assertEquals(touched.toMillis(), manifest.getJSONObject("documents").getJSONObject("index.adoc")
+                .getJSONObject("source").getLong("modified"));
+
+        // Change of include re-renders including document only
+        write("guide/_steps.adoc", "Run *install*.\n");
+        report = AsciiSiteBuilder.create(source, output).build();
+        Assert.assertEquals(1, report.getRendered());
+        Assert.assertTrue(read("guide/install.html").contains("Run <strong>install</strong>."));
+
+        write("index.adoc", "= Index\n\nChanged\n");
+        Assert.assertEquals(1, AsciiSiteBuilder.create(source, output).build().getRendered());
+        Assert.assertTrue(read("index.html").contains("Changed"));
+    }
+
+    @Test
+    public void testMissingInclude() throws IOException {
+        write("optional.adoc", "Text\n\ninclude::_extra.adoc[opts=optional]\n");
+        AsciiSiteBuilder.create(source, output).build();
+        Assert.assertEquals(0, AsciiSiteBuilder.create(source, output).build().getRendered());
+
+        // Creating missing include re-renders including document
+        write("_extra.adoc", "Extra\n");
+        Assert.assertEquals(1, AsciiSiteBuilder.create(source, output).build().getRendered());
+        Assert.assertTrue(read("optional.html").contains("Extra"));
+    }
+
+    @Test
+    public void testAttributes() throws IOException {
+        AsciiSiteBuilder.create(source, output).build();
+
+        AsciiSiteReport report = AsciiSiteBuilder.create(source, output).with(Collections.singletonMap("sectnums", "")).build();
+        Assert.assertEquals(2, report.getRendered());
+        Assert.assertTrue(read("guide/install.html").contains("1. Install"));
+    }
+
+    @Test
+    public void testDeletion() throws IOException {
+        AsciiSiteBuilder.create(source, output).build();
+        Files.delete(source.resolve("index.adoc"));
+        Files.delete(source.resolve("guide/image.png"));
+
+        AsciiSiteReport report = AsciiSiteBuilder.create(source, output).build();
+        Assert.assertEquals(2, report.getDeleted());
+        Assert.assertFalse(Files.exists(output.resolve("index.html")));
+        Assert.assertFalse(Files.exists(output.resolve("guide/image.png")));
+    }
+
+    @Test
+    public void testFailure() throws IOException {
+        AsciiSiteReport report = AsciiSiteBuilder.create(source, output)
+                .with(AsciiLimits.unlimited().withMaxInputLength(20))
+                .build();
+
+        Assert.assertEquals(Collections.singleton("guide/install.adoc"), report.getFailures().keySet());
+        Assert.assertEquals(1, report.getRendered());
+        // Failed documents are retried
+        Assert.assertEquals(1, AsciiSiteBuilder.create(source, output).build().getRendered());
+    }
+
+    @Test
+    public void testWatch() throws Exception {
+        BlockingQueue<AsciiSiteReport> reports = new LinkedBlockingQueue<>();
+        AsciiSiteBuilder builder = AsciiSiteBuilder.create(source, output);
+        Thread watcher = new Thread(() -> {
+            try {
+                builder.watch(reports::add);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        watcher.start();
+        try {
+            Assert.assertEquals(2, reports.poll(10, TimeUnit.SECONDS).getRendered());
+            write("guide/_steps.adoc", "Run *watch*.\n");
+            Assert.assertEquals(1, reports.poll(10, TimeUnit.SECONDS).getRendered());
+            Assert.assertTrue(read("guide/install.html").contains("Run <strong>watch</strong>."));
+        } finally {
+            watcher.interrupt();
+            watcher.join(10000);
+        }
+    }
+}
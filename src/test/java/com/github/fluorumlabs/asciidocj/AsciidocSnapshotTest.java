@@ -0,0 +1,69 @@
+package com.github.fluorumlabs.asciidocj;
+
+import com.github.fluorumlabs.asciidocj.impl.Utils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Restored snapshots must produce the same HTML as original documents
+ */
+@RunWith(Parameterized.class)
+public class AsciidocSnapshotTest {
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> data() throws IOException {
+        List<Object[]> dataSet = new ArrayList<>();
+
+        File folder = new File(AsciidocSnapshotTest.class.getResource("tests").getFile());
+        for (File file : FileUtils.listFiles(folder, new String[]{"adoc"}, true)) {
+            String asciidoc = IOUtils.toString(file.toURI(), StandardCharsets.UTF_8);
+            if (!asciidoc.contains("include::")) {
+                String id = Utils.extractAfterStrict(file.getPath().replace('\\', '/'), "tests/");
+                dataSet.add(new Object[]{id, asciidoc});
+            }
+        }
+        dataSet.add(new Object[]{"escaping", "Text with <, >, &, \"quotes\", non\u00A0breaking space, \u0001control, "
+                + "😀 and lone \uD83D surrogate.\n\nimage::a.png[\"Alt <&> \\\"x\\\"\"]\n"});
+        dataSet.add(new Object[]{"raw-html", "++++\n<!-- comment --><input type=\"checkbox\" checked disabled=\"\">"
+                + "<script>if (a < b && c) {}</script><custom-tag></custom-tag>\n++++\n"});
+        dataSet.add(new Object[]{"boolean-attributes", "video::video.mp4[options=\"autoplay,loop\"]\n\naudio::audio.mp3[options=\"autoplay,nocontrols\"]\n"});
+        dataSet.add(new Object[]{"empty", ""});
+        return dataSet;
+    }
+
+    private final String input;
+
+    public AsciidocSnapshotTest(String id, String input) {
+        this.input = input;
+    }
+
+    @Test
+    public void testHtml() {
+        AsciiDocument document = AsciiDocument.from(input);
+        String expected = document.getHtml();
+        AsciiSnapshot snapshot = AsciiSnapshot.of(document.snapshot().getBytes().clone());
+
+        Assert.assertEquals(expected, snapshot.getHtml());
+    }
+
+    @Test
+    public void testRestore() {
+        AsciiDocument document = AsciiDocument.from(input);
+        AsciiSnapshot snapshot = document.snapshot();
+
+        Assert.assertEquals(document.getDocument().outerHtml(), snapshot.restore().outerHtml());
+        // Restored document takes the same snapshot
+        Assert.assertArrayEquals(snapshot.getBytes(), AsciiSnapshot.of(snapshot.restore().body()).getBytes());
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.fluorumlabs.asciidocj;
+
+import com.github.fluorumlabs.asciidocj.impl.Utils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Bounded-memory conversion must produce the same HTML as regular conversion
+ */
+@RunWith(Parameterized.class)
+public class AsciidocStreamingTest {
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> data() throws IOException {
+        List<Object[]> dataSet = new ArrayList<>();
+
+        File folder = new File(AsciidocStreamingTest.class.getResource("tests").getFile());
+        for (File file : FileUtils.listFiles(folder, new String[]{"adoc"}, true)) {
+            String asciidoc = IOUtils.toString(file.toURI(), StandardCharsets.UTF_8);
+            if (!asciidoc.contains("include::")) {
+                String id = Utils.extractAfterStrict(file.getPath().replace('\\', '/'), "tests/");
+                dataSet.add(new Object[]{id, asciidoc});
+            }
+        }
+        dataSet.add(new Object[]{"forward-references", "= Document\n:toc:\n:sectnums:\n:xrefstyle: short\n\n"
+                + "Preamble referencing <<last>> and <<Second section>>.footnote:[Preamble note]\n\n"
+                + "== First section\n\nSee <<_second_section>> and <<missing>>.\n\n"
+                + "== Second section\n\nBack to <<_first_section>>.footnote:[Second note]\n\n"
+                + "[[last,Last section]]\n== Last section\n\n=== Subsection\n\nText\n"});
+        dataSet.add(new Object[]{"toc-macro", "= Document\n:toc: macro\n\n== First\n\nText\n\n"
+                + "== Second\n\ntoc::[]\n\n== Third\n\nText\n"});
+        dataSet.add(new Object[]{"toc-preamble", "= Document\n:toc: preamble\n\nPreamble\n\n== First\n\nText\n"});
+        dataSet.add(new Object[]{"duplicate-ids", "== Section\n\n[#same]\nText\n\n== Section\n\n[#same]\nText\n"});
+        dataSet.add(new Object[]{"book-parts", "= Book\n:doctype: book\n\n= Part\n\n== Chapter\n\nText\n\n= Part\n\nText\n"});
+        return dataSet;
+    }
+
+    private final String input;
+
+    public AsciidocStreamingTest(String id, String input) {
+        this.input = input;
+    }
+
+    private static String writeHtml(AsciiDocument document) {
+        StringWriter out = new StringWriter();
+        try {
+            document.writeHtml(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    @Test
+    public void testSameAsRegularConversion() {
+        Assert.assertEquals(AsciiDocument.from(input).getHtml(), writeHtml(AsciiDocument.from(input)));
+    }
+}
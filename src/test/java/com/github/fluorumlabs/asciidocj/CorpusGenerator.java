@@ -0,0 +1,310 @@
+package com.github.fluorumlabs.asciidocj;
+
+import java.util.Random;
+
+/**
+ * Deterministic generator of large realistic documents: nested sections with cross references, long and
+ * nested lists, big tables, listings with callouts, admonitions and footnotes, mixed in proportions of
+ * typical technical documentation. The same seed and size always give the same document.
+ */
+public class CorpusGenerator {
+    private static final String[] WORDS = {
+            "the", "a", "of", "to", "and", "in", "is", "for", "that", "with", "on", "as", "by", "this", "be", "are",
+            "from", "or", "it", "can", "an", "which", "when", "each", "all", "will", "not", "if", "must", "should",
+            "document", "section", "value", "server", "request", "response", "client", "configuration", "file",
+            "option", "attribute", "element", "service", "data", "method", "parameter", "default", "instance",
+            "cache", "thread", "memory", "input", "output", "format", "system", "user", "version", "module",
+            "property", "resource", "handler", "connection", "timeout", "limit", "error", "message", "event",
+            "returns", "creates", "reads", "writes", "updates", "contains", "requires", "supports", "defines",
+            "processes", "converts", "validates", "stores", "loads", "sends", "receives", "starts", "stops",
+            "new", "existing", "local", "remote", "large", "small", "optional", "required", "internal", "public",
+    };
+
+    private static final String[] ADMONITIONS = {"NOTE", "TIP", "IMPORTANT", "WARNING", "CAUTION"};
+
+    private final Random random;
+    private final StringBuilder out;
+    private int sections;
+    // Named footnotes
+    private int footnotes;
+
+    public CorpusGenerator(long seed, int size) {
+        this.random = new Random(seed);
+        this.out = new StringBuilder(size + 4096);
+    }
+
+    /**
+     * Generate document of given size with seed derived from size.
+     *
+     * @param size approximate size in characters, exceeded by at most one block
+     * @return document
+     */
+    public static String generate(int size) {
+        return new CorpusGenerator(size, size).document(size);
+    }
+
+    /**
+     * Generate document.
+     *
+     * @param size approximate size in characters, exceeded by at most one block
+     * @return document
+     */
+    public String document(int size) {
+        out.append("= ").append(capitalize(words(3, 6))).append('\n')
+                .append("Jane Doe <jane@example.com>\n")
+                .append(":toc:\n:sectnums:\n:icons: font\n:product: Example Server\n\n");
+        paragraph();
+        while (out.length() < size) {
+            section(2, size);
+        }
+        return out.toString();
+    }
+
+    private void section(int level, int size) {
+        int id = ++sections;
+        out.append("[[sec-").append(id).append("]]\n");
+        for (int i = 0; i < level; i++) {
+            out.append('=');
+        }
+        out.append(' ').append(capitalize(words(2, 5))).append("\n\n");
+
+        int blocks = 2 + random.nextInt(6);
+        for (int i = 0; i < blocks && out.length() < size; i++) {
+            block();
+        }
+        if (level < 5) {
+            int subsections = random.nextInt(4);
+            for (int i = 0; i < subsections && out.length() < size; i++) {
+                section(level + 1, size);
+            }
+        }
+    }
+
+    private void block() {
+        int kind = random.nextInt(100);
+        if (kind < 45) {
+            paragraph();
+        } else if (kind < 60) {
+            list();
+        } else if (kind < 68) {
+            orderedList();
+        } else if (kind < 74) {
+            descriptionList();
+        } else if (kind < 82) {
+            listing();
+        } else if (kind < 88) {
+            table();
+        } else if (kind < 96) {
+            admonition();
+        } else {
+            example();
+        }
+    }
+
+    private void paragraph() {
+        int sentences = 2 + random.nextInt(6);
+        for (int i = 0; i < sentences; i++) {
+            if (i > 0) {
+                out.append(' ');
+            }
+            sentence();
+        }
+        out.append("\n\n");
+    }
+
+    private void sentence() {
+        out.append(capitalize(words(3, 8)));
+        int extras = random.nextInt(4);
+        for (int i = 0; i < extras; i++) {
+            out.append(' ');
+            inline();
+            out.append(' ').append(words(1, 5));
+        }
+        if (random.nextInt(20) == 0) {
+            footnote();
+        }
+        out.append('.');
+    }
+
+    private void inline() {
+        switch (random.nextInt(9)) {
+            case 0:
+                out.append('*').append(words(1, 3)).append('*');
+                break;
+            case 1:
+                out.append('_').append(words(1, 3)).append('_');
+                break;
+            case 2:
+                out.append('`').append(word()).append('.').append(word()).append("()`");
+                break;
+            case 3:
+                out.append("https://example.com/").append(word()).append('[').append(words(1, 3)).append(']');
+                break;
+            case 4:
+                // References to earlier sections and to the next one, which is forward reference
+                out.append("<<sec-").append(1 + random.nextInt(sections + 1)).append(">>");
+                break;
+            case 5:
+                out.append("<<sec-").append(1 + random.nextInt(sections + 1)).append(',').append(words(1, 3)).append(">>");
+                break;
+            case 6:
+                out.append("{product}");
+                break;
+            case 7:
+                out.append("kbd:[Ctrl+").append(Character.toUpperCase(word().charAt(0))).append(']');
+                break;
+            default:
+                out.append("#").append(words(1, 2)).append('#');
+        }
+    }
+
+    private void footnote() {
+        out.append(' ');
+        if (footnotes > 0 && random.nextInt(4) == 0) {
+            // Reference to a footnote defined earlier
+            out.append("footnoteref:[note").append(1 + random.nextInt(footnotes)).append(']');
+        } else if (random.nextInt(4) == 0) {
+            out.append("footnoteref:[note").append(++footnotes).append(',').append(capitalize(words(4, 10))).append(".]");
+        } else {
+            out.append("footnote:[").append(capitalize(words(4, 10))).append(".]");
+        }
+    }
+
+    private void list() {
+        int items = 3 + random.nextInt(random.nextInt(10) == 0 ? 60 : 8);
+        int depth = 1;
+        for (int i = 0; i < items; i++) {
+            for (int j = 0; j < depth; j++) {
+                out.append('*');
+            }
+            out.append(' ');
+            sentence();
+            out.append('\n');
+            if (random.nextInt(8) == 0) {
+                out.append("+\n");
+                sentence();
+                out.append('\n');
+            }
+            int change = random.nextInt(5);
+            if (change == 0 && depth < 4) {
+                depth++;
+            } else if (change == 1 && depth > 1) {
+                depth--;
+            }
+        }
+        out.append('\n');
+    }
+
+    private void orderedList() {
+        int items = 3 + random.nextInt(8);
+        for (int i = 0; i < items; i++) {
+            out.append(". ");
+            sentence();
+            out.append('\n');
+            if (random.nextInt(4) == 0) {
+                int nested = 2 + random.nextInt(3);
+                for (int j = 0; j < nested; j++) {
+                    out.append(".. ").append(capitalize(words(2, 6))).append('\n');
+                }
+            }
+        }
+        out.append('\n');
+    }
+
+    private void descriptionList() {
+        int items = 3 + random.nextInt(12);
+        for (int i = 0; i < items; i++) {
+            out.append('`').append(word()).append('-').append(word()).append("`:: ");
+            sentence();
+            out.append('\n');
+        }
+        out.append('\n');
+    }
+
+    private void listing() {
+        int lines = 4 + random.nextInt(random.nextInt(8) == 0 ? 80 : 16);
+        int callouts = 0;
+        out.append(".").append(capitalize(words(2, 4))).append('\n');
+        out.append("[source,java]\n----\n");
+        out.append("public class ").append(capitalize(word())).append(capitalize(word())).append(" {\n");
+        for (int i = 0; i < lines; i++) {
+            out.append("    private final String ").append(word()).append(i).append(" = \"")
+                    .append(words(1, 4)).append("\";");
+            if (callouts < 5 && random.nextInt(5) == 0) {
+                out.append(" // <").append(++callouts).append('>');
+            }
+            out.append('\n');
+        }
+        out.append("}\n----\n");
+        for (int i = 1; i <= callouts; i++) {
+            out.append('<').append(i).append("> ").append(capitalize(words(3, 8))).append('\n');
+        }
+        out.append('\n');
+    }
+
+    private void table() {
+        int columns = 2 + random.nextInt(5);
+        int rows = 3 + random.nextInt(random.nextInt(6) == 0 ? 200 : 15);
+        out.append(".").append(capitalize(words(2, 4))).append('\n');
+        out.append("[cols=\"").append(columns).append("*\",options=\"header\"]\n|===\n");
+        for (int i = 0; i < columns; i++) {
+            out.append('|').append(capitalize(word())).append(' ');
+        }
+        out.append("\n\n");
+        for (int row = 0; row < rows; row++) {
+            for (int i = 0; i < columns; i++) {
+                out.append('|');
+                if (i == 0) {
+                    out.append('`').append(word()).append('`');
+                } else if (random.nextInt(4) == 0) {
+                    out.append(random.nextInt(10000));
+                } else {
+                    out.append(words(1, 6));
+                }
+                out.append('\n');
+            }
+            out.append('\n');
+        }
+        out.append("|===\n\n");
+    }
+
+    private void admonition() {
+        String type = ADMONITIONS[random.nextInt(ADMONITIONS.length)];
+        if (random.nextBoolean()) {
+            out.append(type).append(": ");
+            paragraph();
+        } else {
+            out.append('[').append(type).append("]\n====\n");
+            paragraph();
+            list();
+            out.append("====\n\n");
+        }
+    }
+
+    private void example() {
+        out.append(".").append(capitalize(words(2, 4))).append("\n====\n");
+        paragraph();
+        listing();
+        out.append("====\n\n");
+    }
+
+    private String word() {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private String words(int min, int max) {
+        int count = min + random.nextInt(max - min + 1);
+        StringBuilder result = new StringBuilder(count * 8);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                result.append(' ');
+            }
+            result.append(word());
+        }
+        return result.toString();
+    }
+
+    private static String capitalize(String text) {
+        return Character.toUpperCase(text.charAt(0)) + text.substring(1);
+    }
+}